@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.I_Result;
+
+/**
+ * 多个线程同时第一次访问注册表，只能创建一个配置代，并且都能读取到配置
+ *
+ * @author liuzh
+ */
+@JCStressTest
+@Outcome(id = "1", expect = Expect.ACCEPTABLE, desc = "所有线程使用同一个配置代")
+@Outcome(id = "0", expect = Expect.FORBIDDEN, desc = "创建了多个配置代或读取到 null")
+@State
+public class FirstAccessStressTest {
+  static {
+    StressSupport.init();
+  }
+
+  private final ConfigRegistry   registry = new ConfigRegistry(FirstAccessStressTest.class.getClassLoader());
+  private       ConfigGeneration g1;
+  private       ConfigGeneration g2;
+  private       String           v1;
+  private       String           v2;
+
+  @Actor
+  public void actor1() {
+    g1 = registry.generation();
+    v1 = g1.getStr(StressSupport.GREETING_KEY);
+  }
+
+  @Actor
+  public void actor2() {
+    g2 = registry.generation();
+    v2 = g2.getStr(StressSupport.GREETING_KEY);
+  }
+
+  @Arbiter
+  public void arbiter(I_Result r) {
+    r.r1 = g1 == g2 && StressSupport.GREETING.equals(v1) && StressSupport.GREETING.equals(v2) ? 1 : 0;
+    registry.close();
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.I_Result;
+
+/**
+ * reload 的同时读取配置，读取到的只能是旧的或新的配置代中完整的值，不能读取到 null 或未解析的占位符
+ *
+ * @author liuzh
+ */
+@JCStressTest
+@Outcome(id = "1", expect = Expect.ACCEPTABLE, desc = "读取到完整的值")
+@Outcome(id = "0", expect = Expect.FORBIDDEN, desc = "读取到 null 或未解析的值")
+@State
+public class ReloadStressTest {
+  static {
+    StressSupport.init();
+  }
+
+  private final ConfigRegistry registry = new ConfigRegistry(ReloadStressTest.class.getClassLoader());
+
+  public ReloadStressTest() {
+    registry.generation().getStr(StressSupport.GREETING_KEY);
+  }
+
+  @Actor
+  public void reload() {
+    registry.reload();
+  }
+
+  @Actor
+  public void read(I_Result r) {
+    r.r1 = StressSupport.GREETING.equals(registry.generation().getStr(StressSupport.GREETING_KEY)) ? 1 : 0;
+  }
+
+  @Arbiter
+  public void close(I_Result r) {
+    //每个状态创建了自己的注册表，结束后关闭，避免刷新任务和 MBean 一直保留
+    registry.close();
+  }
+}
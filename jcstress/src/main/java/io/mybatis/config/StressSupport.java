@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import io.mybatis.config.defaults.UserConfig;
+import io.mybatis.config.defaults.VersionConfig;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 并发测试使用的配置，类加载时设置系统变量并生成用户配置文件
+ *
+ * @author liuzh
+ */
+final class StressSupport {
+  static final String NAME_KEY     = "jcstress.name";
+  static final String GREETING_KEY = "jcstress.greeting";
+  static final String USER_KEY     = "jcstress.user";
+  static final String GREETING     = "hello mybatis";
+  static final String VERSION_KEY  = "jcstress.version-name";
+
+  static {
+    System.setProperty(NAME_KEY, "mybatis");
+    System.setProperty(GREETING_KEY, "hello ${" + NAME_KEY + "}");
+    try {
+      File file = File.createTempFile("mybatis-config-jcstress", ".properties");
+      file.deleteOnExit();
+      try (OutputStream out = new FileOutputStream(file)) {
+        out.write((USER_KEY + "=user").getBytes(StandardCharsets.UTF_8));
+      }
+      System.setProperty(StressUserConfig.CONFIG_KEY, file.getAbsolutePath());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private StressSupport() {
+  }
+
+  static void init() {
+  }
+
+  /**
+   * 用户配置，每个测试状态使用一个新的实例
+   */
+  static class StressUserConfig extends UserConfig {
+    static final String CONFIG_KEY = "jcstress.properties";
+
+    @Override
+    protected String getConfigKey() {
+      return CONFIG_KEY;
+    }
+
+    @Override
+    protected String getConfigName() {
+      return "mybatis-config-jcstress";
+    }
+  }
+
+  /**
+   * 版本配置，版本文件在 jcstress 模块的资源中，每个测试状态使用一个新的实例
+   */
+  static class StressVersionConfig extends VersionConfig {
+    @Override
+    protected String getConfigName() {
+      return "mybatis-config-jcstress";
+    }
+
+    @Override
+    protected String getVersionKey() {
+      return "jcstress.version";
+    }
+  }
+}
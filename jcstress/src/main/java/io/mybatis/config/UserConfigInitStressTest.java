@@ -0,0 +1,47 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.LL_Result;
+
+/**
+ * 多个线程同时第一次读取用户配置，延迟初始化不能让任何线程读取到空的配置
+ *
+ * @author liuzh
+ */
+@JCStressTest
+@Outcome(id = "user, user", expect = Expect.ACCEPTABLE, desc = "都读取到配置")
+@Outcome(expect = Expect.FORBIDDEN, desc = "读取到未初始化完成的配置")
+@State
+public class UserConfigInitStressTest {
+  static {
+    StressSupport.init();
+  }
+
+  private final StressSupport.StressUserConfig config = new StressSupport.StressUserConfig();
+
+  @Actor
+  public void actor1(LL_Result r) {
+    r.r1 = config.getStr(StressSupport.USER_KEY);
+  }
+
+  @Actor
+  public void actor2(LL_Result r) {
+    r.r2 = config.getStr(StressSupport.USER_KEY);
+  }
+}
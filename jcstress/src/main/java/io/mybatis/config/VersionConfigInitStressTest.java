@@ -0,0 +1,48 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.LL_Result;
+
+/**
+ * 多个线程同时第一次读取版本配置，一个线程读取当前版本，另一个线程读取指定版本，
+ * 版本表只构建一次，两个线程都不能读取到未构建完成的版本表或合并结果
+ *
+ * @author liuzh
+ */
+@JCStressTest
+@Outcome(id = "v2.0, v1.0", expect = Expect.ACCEPTABLE, desc = "都读取到对应版本的配置")
+@Outcome(expect = Expect.FORBIDDEN, desc = "读取到未初始化完成的版本配置")
+@State
+public class VersionConfigInitStressTest {
+  static {
+    StressSupport.init();
+  }
+
+  private final StressSupport.StressVersionConfig config = new StressSupport.StressVersionConfig();
+
+  @Actor
+  public void actor1(LL_Result r) {
+    r.r1 = config.getStr(StressSupport.VERSION_KEY);
+  }
+
+  @Actor
+  public void actor2(LL_Result r) {
+    r.r2 = config.getProperties("v1.0").getProperty(StressSupport.VERSION_KEY);
+  }
+}
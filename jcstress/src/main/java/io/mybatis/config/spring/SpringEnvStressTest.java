@@ -0,0 +1,91 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.spring;
+
+import org.openjdk.jcstress.annotations.*;
+import org.openjdk.jcstress.infra.results.L_Result;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一个线程设置 Spring 环境的同时其他线程读取配置，只能读取到设置前或设置后的状态
+ * <p>
+ * {@link SpringContexts} 是全局状态，jcstress 会同时运行多个状态实例，为了互不影响，每个实例使用自己的上下文类加载器注册和读取环境，
+ * 并且使用自己的配置 key，读取到其他实例的环境时结果为 null
+ *
+ * @author liuzh
+ */
+@JCStressTest
+@Outcome(id = "null", expect = Expect.ACCEPTABLE, desc = "环境还未发布")
+@Outcome(id = "spring", expect = Expect.ACCEPTABLE, desc = "环境已发布")
+@Outcome(expect = Expect.FORBIDDEN, desc = "读取到不完整的环境")
+@State
+public class SpringEnvStressTest {
+  private static final AtomicLong          IDS         = new AtomicLong();
+  private final        String              key         = "jcstress.spring." + IDS.incrementAndGet();
+  private final        ClassLoader         classLoader = new IsolatedClassLoader();
+  private final        StandardEnvironment environment = new StandardEnvironment();
+  private final        SpringConfig        config      = new SpringConfig();
+  private final        SpringEnvUtil       util        = new SpringEnvUtil();
+
+  public SpringEnvStressTest() {
+    environment.getPropertySources().addFirst(
+        new MapPropertySource("jcstress", Collections.singletonMap(key, "spring")));
+  }
+
+  @Actor
+  public void publish() {
+    Thread thread = Thread.currentThread();
+    ClassLoader previous = thread.getContextClassLoader();
+    thread.setContextClassLoader(classLoader);
+    try {
+      util.setEnvironment(environment);
+    } finally {
+      thread.setContextClassLoader(previous);
+    }
+  }
+
+  @Actor
+  public void read(L_Result r) {
+    Thread thread = Thread.currentThread();
+    ClassLoader previous = thread.getContextClassLoader();
+    thread.setContextClassLoader(classLoader);
+    try {
+      r.r1 = config.getStr(key);
+    } finally {
+      thread.setContextClassLoader(previous);
+    }
+  }
+
+  @Arbiter
+  public void unregister(L_Result r) {
+    //恢复为未注册的状态
+    util.destroy();
+  }
+
+  /**
+   * 只用于区分状态实例的类加载器
+   */
+  private static final class IsolatedClassLoader extends ClassLoader {
+    IsolatedClassLoader() {
+      super(SpringEnvStressTest.class.getClassLoader());
+    }
+  }
+}
@@ -39,6 +39,11 @@ public interface Config {
    */
   int USER_ORDER = 200;
 
+  /**
+   * 远程配置
+   */
+  int REMOTE_ORDER = 250;
+
   /**
    * 环境变量
    */
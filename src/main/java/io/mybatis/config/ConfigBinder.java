@@ -0,0 +1,498 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * 将指定前缀下的配置绑定到对象上
+ * <p>
+ * 每个类型的 setter 只通过反射解析一次，之后缓存为 {@link MethodHandle}，重复绑定时（例如每次 reload）不再查找反射信息。
+ * <p>
+ * 属性名支持宽松匹配，例如属性 maxActive 会依次尝试 prefix.maxActive, prefix.max-active, prefix.max_active, prefix.maxactive，
+ * 环境变量形式（PREFIX_MAXACTIVE, PREFIX_MAX_ACTIVE）由 {@link io.mybatis.config.defaults.EnvConfig} 负责转换。
+ * <p>
+ * 支持普通 JavaBean（通过 setter 绑定）和 Java 16+ 的 record（通过规范构造方法绑定）。
+ *
+ * @author liuzh
+ */
+final class ConfigBinder {
+  /**
+   * 类型绑定信息缓存
+   */
+  private static final ClassValue<BindMeta> METAS = new ClassValue<BindMeta>() {
+    @Override
+    protected BindMeta computeValue(Class<?> type) {
+      return BindMeta.of(type);
+    }
+  };
+
+  /**
+   * 属性没有被配置覆盖
+   */
+  private static final Object UNBOUND = new Object();
+
+  /**
+   * 已绑定的对象，reload 后自动重新绑定，使用弱引用避免对象无法回收，每次绑定新对象时清理已经回收的对象
+   */
+  private final List<Bound> bounds = new ArrayList<>();
+
+  /**
+   * 绑定配置，创建一个新的对象，JavaBean 对象会被记录，reload 后自动重新绑定
+   *
+   * @param prefix 配置前缀
+   * @param type   类型
+   * @param lookup 配置查找方法
+   */
+  <T> T bind(String prefix, Class<T> type, Function<String, String> lookup) {
+    BindMeta meta = METAS.get(type);
+    if (meta.isRecord()) {
+      return type.cast(meta.create(prefix, lookup));
+    }
+    return type.cast(bind(prefix, meta.newInstance(), lookup));
+  }
+
+  /**
+   * 绑定配置到已有对象上并记录该对象，reload 后自动重新绑定
+   *
+   * @param prefix 配置前缀
+   * @param target 对象
+   * @param lookup 配置查找方法
+   */
+  synchronized <T> T bind(String prefix, T target, Function<String, String> lookup) {
+    BindMeta meta = METAS.get(target.getClass());
+    Bound bound = null;
+    Iterator<Bound> iterator = bounds.iterator();
+    while (iterator.hasNext()) {
+      Bound current = iterator.next();
+      Object object = current.target.get();
+      if (object == null) {
+        iterator.remove();
+      } else if (object == target && current.prefix.equals(prefix)) {
+        bound = current;
+      }
+    }
+    if (bound == null) {
+      bound = new Bound(prefix, target, meta.properties.length);
+      meta.populate(prefix, target, lookup, bound.originals);
+      bounds.add(bound);
+    } else {
+      meta.populate(prefix, target, lookup, bound.originals);
+    }
+    return target;
+  }
+
+  /**
+   * 重新绑定所有记录的对象，之前绑定过但是已经不存在的配置恢复为绑定前的值
+   * <p>
+   * 某个对象绑定失败（例如配置值无法转换）时只记录日志，该对象保持原来的值，继续绑定其他对象
+   *
+   * @param lookup 配置查找方法
+   */
+  synchronized void rebind(Function<String, String> lookup) {
+    Iterator<Bound> iterator = bounds.iterator();
+    while (iterator.hasNext()) {
+      Bound bound = iterator.next();
+      Object target = bound.target.get();
+      if (target == null) {
+        iterator.remove();
+      } else {
+        try {
+          METAS.get(target.getClass()).populate(bound.prefix, target, lookup, bound.originals);
+        } catch (RuntimeException e) {
+          ConfigHelper.log.warn("重新绑定配置 " + bound.prefix + " 到 " + target.getClass().getName() + " 失败: " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  /**
+   * 宽松匹配的候选 key
+   *
+   * @param prefix 配置前缀
+   * @param name   属性名
+   */
+  static String[] candidateKeys(String prefix, String name) {
+    String base = (prefix == null || prefix.isEmpty()) ? "" : (prefix.endsWith(".") ? prefix : prefix + ".");
+    StringBuilder kebab = new StringBuilder(name.length() + 4);
+    StringBuilder snake = new StringBuilder(name.length() + 4);
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (Character.isUpperCase(c)) {
+        if (i > 0) {
+          kebab.append('-');
+          snake.append('_');
+        }
+        c = Character.toLowerCase(c);
+      }
+      kebab.append(c);
+      snake.append(c);
+    }
+    Set<String> keys = new LinkedHashSet<>();
+    keys.add(base + name);
+    keys.add(base + kebab);
+    keys.add(base + snake);
+    keys.add(base + name.toLowerCase(Locale.ROOT));
+    return keys.toArray(new String[0]);
+  }
+
+  /**
+   * 类型转换
+   *
+   * @param key   配置键
+   * @param value 配置值
+   * @param type  目标类型
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  static Object convert(String key, String value, Class<?> type) {
+    try {
+      if (type == String.class || type == Object.class) {
+        return value;
+      }
+      value = value.trim();
+      if (type == int.class || type == Integer.class) {
+        return Integer.parseInt(value);
+      } else if (type == long.class || type == Long.class) {
+        return Long.parseLong(value);
+      } else if (type == boolean.class || type == Boolean.class) {
+        return Boolean.valueOf(value);
+      } else if (type == double.class || type == Double.class) {
+        return Double.parseDouble(value);
+      } else if (type == float.class || type == Float.class) {
+        return Float.parseFloat(value);
+      } else if (type == short.class || type == Short.class) {
+        return Short.parseShort(value);
+      } else if (type == byte.class || type == Byte.class) {
+        return Byte.parseByte(value);
+      } else if (type == char.class || type == Character.class) {
+        if (value.length() != 1) {
+          throw new IllegalArgumentException("字符长度必须为 1");
+        }
+        return value.charAt(0);
+      } else if (type == BigDecimal.class) {
+        return new BigDecimal(value);
+      } else if (type == BigInteger.class) {
+        return new BigInteger(value);
+      } else if (type.isEnum()) {
+        String name = value.replace('-', '_');
+        for (Object constant : type.getEnumConstants()) {
+          if (((Enum) constant).name().equalsIgnoreCase(name)) {
+            return constant;
+          }
+        }
+        throw new IllegalArgumentException("不存在的枚举值");
+      } else if (type == String[].class) {
+        return value.isEmpty() ? new String[0] : value.split("\\s*,\\s*");
+      } else if (type == List.class || type == Collection.class) {
+        return value.isEmpty() ? new ArrayList<>() : new ArrayList<>(Arrays.asList(value.split("\\s*,\\s*")));
+      } else if (type == Set.class) {
+        return value.isEmpty() ? new LinkedHashSet<>() : new LinkedHashSet<>(Arrays.asList(value.split("\\s*,\\s*")));
+      }
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("配置 " + key + " 的值 [" + value + "] 无法转换为 " + type.getName(), e);
+    }
+    throw new IllegalArgumentException("配置 " + key + " 不支持的绑定类型 " + type.getName());
+  }
+
+  /**
+   * 已绑定对象
+   */
+  private static class Bound {
+    private final String            prefix;
+    private final Reference<Object> target;
+    /**
+     * 属性被配置覆盖前的值，没有被覆盖的属性为 {@link #UNBOUND}
+     */
+    private final Object[]          originals;
+
+    Bound(String prefix, Object target, int size) {
+      this.prefix = prefix;
+      this.target = new WeakReference<>(target);
+      this.originals = new Object[size];
+      Arrays.fill(originals, UNBOUND);
+    }
+  }
+
+  /**
+   * 绑定属性
+   */
+  private static class BindProperty {
+    private final String       name;
+    private final Class<?>     type;
+    private final MethodHandle setter;
+    /**
+     * 对应的 getter，不存在时为 null
+     */
+    private final MethodHandle getter;
+
+    BindProperty(String name, Class<?> type, MethodHandle setter, MethodHandle getter) {
+      this.name = name;
+      this.type = type;
+      this.setter = setter;
+      this.getter = getter;
+    }
+  }
+
+  /**
+   * 类型绑定信息
+   */
+  private static class BindMeta {
+    private final Class<?>                          type;
+    private final boolean                           record;
+    private final MethodHandle                      constructor;
+    private final BindProperty[]                    properties;
+    /**
+     * 前缀对应的候选 key，避免每次绑定都拼接字符串
+     */
+    private final ConcurrentMap<String, String[][]> keyCache = new ConcurrentHashMap<>();
+
+    private BindMeta(Class<?> type, boolean record, MethodHandle constructor, BindProperty[] properties) {
+      this.type = type;
+      this.record = record;
+      this.constructor = constructor;
+      this.properties = properties;
+    }
+
+    static BindMeta of(Class<?> type) {
+      if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || type.isPrimitive() || type.isArray()) {
+        throw new IllegalArgumentException("无法绑定配置到类型 " + type.getName());
+      }
+      try {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Object[] components = recordComponents(type);
+        if (components != null) {
+          Class<?>[] types = new Class<?>[components.length];
+          BindProperty[] properties = new BindProperty[components.length];
+          Method getName = components.getClass().getComponentType().getMethod("getName");
+          Method getType = components.getClass().getComponentType().getMethod("getType");
+          for (int i = 0; i < components.length; i++) {
+            types[i] = (Class<?>) getType.invoke(components[i]);
+            properties[i] = new BindProperty((String) getName.invoke(components[i]), types[i], null, null);
+          }
+          Constructor<?> constructor = type.getDeclaredConstructor(types);
+          constructor.setAccessible(true);
+          MethodHandle handle = lookup.unreflectConstructor(constructor)
+              .asSpreader(Object[].class, types.length)
+              .asType(MethodType.methodType(Object.class, Object[].class));
+          return new BindMeta(type, true, handle, properties);
+        }
+        Constructor<?> constructor = type.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        MethodHandle handle = lookup.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+        Map<String, BindProperty> properties = new LinkedHashMap<>();
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+          for (Method method : current.getDeclaredMethods()) {
+            String name = method.getName();
+            if (name.length() > 3 && name.startsWith("set") && method.getParameterCount() == 1
+                && !Modifier.isStatic(method.getModifiers()) && !method.isBridge()) {
+              String property = Character.toLowerCase(name.charAt(3)) + name.substring(4);
+              if (!properties.containsKey(property)) {
+                method.setAccessible(true);
+                MethodHandle setter = lookup.unreflect(method)
+                    .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                Class<?> propertyType = method.getParameterTypes()[0];
+                properties.put(property, new BindProperty(property, propertyType, setter,
+                    getter(lookup, type, name.substring(3), propertyType)));
+              }
+            }
+          }
+        }
+        return new BindMeta(type, false, handle, properties.values().toArray(new BindProperty[0]));
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalArgumentException("无法绑定配置到类型 " + type.getName() + ", 需要无参构造方法", e);
+      }
+    }
+
+    /**
+     * 查找属性的 getter，用于记录属性被配置覆盖前的值
+     */
+    private static MethodHandle getter(MethodHandles.Lookup lookup, Class<?> type, String name, Class<?> propertyType) {
+      String[] names = propertyType == boolean.class ? new String[]{"is" + name, "get" + name} : new String[]{"get" + name};
+      for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+        for (String getterName : names) {
+          try {
+            Method method = current.getDeclaredMethod(getterName);
+            if (method.getReturnType() == propertyType && !Modifier.isStatic(method.getModifiers())) {
+              method.setAccessible(true);
+              return lookup.unreflect(method).asType(MethodType.methodType(Object.class, Object.class));
+            }
+          } catch (ReflectiveOperationException ignored) {
+          }
+        }
+      }
+      return null;
+    }
+
+    /**
+     * 获取 record 的组件，Java 16 以下或者不是 record 时返回 null
+     */
+    private static Object[] recordComponents(Class<?> type) {
+      try {
+        Method isRecord = Class.class.getMethod("isRecord");
+        if ((Boolean) isRecord.invoke(type)) {
+          return (Object[]) Class.class.getMethod("getRecordComponents").invoke(type);
+        }
+      } catch (ReflectiveOperationException ignored) {
+      }
+      return null;
+    }
+
+    boolean isRecord() {
+      return record;
+    }
+
+    private String[][] keys(String prefix) {
+      return keyCache.computeIfAbsent(prefix, p -> {
+        String[][] keys = new String[properties.length][];
+        for (int i = 0; i < properties.length; i++) {
+          keys[i] = candidateKeys(p, properties[i].name);
+        }
+        return keys;
+      });
+    }
+
+    private static String lookup(String[] keys, Function<String, String> lookup) {
+      for (String key : keys) {
+        String value = lookup.apply(key);
+        if (value != null) {
+          return value;
+        }
+      }
+      return null;
+    }
+
+    Object create(String prefix, Function<String, String> lookup) {
+      try {
+        if (record) {
+          String[][] keys = keys(prefix);
+          Object[] args = new Object[properties.length];
+          for (int i = 0; i < properties.length; i++) {
+            BindProperty property = properties[i];
+            String value = lookup(keys[i], lookup);
+            if (value != null) {
+              args[i] = convert(keys[i][0], value, property.type);
+            } else if (property.type.isPrimitive()) {
+              args[i] = defaultValue(property.type);
+            }
+          }
+          return (Object) constructor.invokeExact(args);
+        }
+        Object target = newInstance();
+        populate(prefix, target, lookup, null);
+        return target;
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new IllegalStateException("创建配置对象 " + type.getName() + " 失败", e);
+      }
+    }
+
+    /**
+     * 使用无参构造方法创建对象
+     */
+    Object newInstance() {
+      try {
+        return (Object) constructor.invokeExact();
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Throwable e) {
+        throw new IllegalStateException("创建配置对象 " + type.getName() + " 失败", e);
+      }
+    }
+
+    /**
+     * 绑定配置到已有对象上，先转换所有配置值，全部转换成功后才修改对象，转换失败时对象保持原来的值
+     *
+     * @param prefix    配置前缀
+     * @param target    对象
+     * @param lookup    配置查找方法
+     * @param originals 属性被配置覆盖前的值，配置不存在时恢复为该值，为 null 时不记录
+     */
+    void populate(String prefix, Object target, Function<String, String> lookup, Object[] originals) {
+      if (record) {
+        throw new IllegalArgumentException("record 类型 " + type.getName() + " 不可修改，无法绑定到已有对象");
+      }
+      String[][] keys = keys(prefix);
+      Object[] values = new Object[properties.length];
+      for (int i = 0; i < properties.length; i++) {
+        String value = lookup(keys[i], lookup);
+        values[i] = value != null ? convert(keys[i][0], value, properties[i].type) : UNBOUND;
+      }
+      for (int i = 0; i < properties.length; i++) {
+        BindProperty property = properties[i];
+        try {
+          if (values[i] != UNBOUND) {
+            if (originals != null && originals[i] == UNBOUND) {
+              originals[i] = original(property, target);
+            }
+            property.setter.invokeExact(target, values[i]);
+          } else if (originals != null && originals[i] != UNBOUND) {
+            //配置已经被删除，恢复绑定前的值
+            property.setter.invokeExact(target, originals[i]);
+            originals[i] = UNBOUND;
+          }
+        } catch (RuntimeException e) {
+          throw e;
+        } catch (Throwable e) {
+          throw new IllegalStateException("绑定配置 " + keys[i][0] + " 失败", e);
+        }
+      }
+    }
+
+    /**
+     * 属性当前的值，没有 getter 时使用类型的默认值
+     */
+    private static Object original(BindProperty property, Object target) throws Throwable {
+      if (property.getter != null) {
+        return (Object) property.getter.invokeExact(target);
+      }
+      return property.type.isPrimitive() ? defaultValue(property.type) : null;
+    }
+
+    private static Object defaultValue(Class<?> type) {
+      if (type == boolean.class) {
+        return false;
+      } else if (type == char.class) {
+        return '\0';
+      } else if (type == long.class) {
+        return 0L;
+      } else if (type == double.class) {
+        return 0D;
+      } else if (type == float.class) {
+        return 0F;
+      } else if (type == short.class) {
+        return (short) 0;
+      } else if (type == byte.class) {
+        return (byte) 0;
+      }
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 配置目录，一组编译时确定的配置键，通常由 {@link ConfigKey} 生成
+ * <p>
+ * 每一代配置第一次读取目录时解析目录中的所有配置并保存在数组中，之后按下标读取，不需要计算字符串哈希和依次查找各个配置实现。
+ * 系统变量等实时读取的配置变化后需要 {@link ConfigHelper#reload()} 才能通过目录读取到，需要立即生效的配置键可以声明为实时读取，
+ * 实时读取的配置键每次都和 {@link ConfigHelper#getStr(String)} 一样依次查找
+ *
+ * @author liuzh
+ */
+public final class ConfigCatalog {
+  private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+  /**
+   * 目录编号，用作配置代中保存目录配置值的下标
+   */
+  private final int      id;
+  private final String[]  keys;
+  /**
+   * 实时读取的配置键，没有时为 null
+   */
+  private final boolean[] live;
+
+  public ConfigCatalog(String... keys) {
+    this(keys, null);
+  }
+
+  /**
+   * @param keys 配置键
+   * @param live 和配置键对应，是否实时读取，为 null 时都不实时读取
+   */
+  public ConfigCatalog(String[] keys, boolean[] live) {
+    if (live != null && live.length != keys.length) {
+      throw new IllegalArgumentException("配置键数量 " + keys.length + " 和实时读取标记数量 " + live.length + " 不一致");
+    }
+    this.id = SEQUENCE.getAndIncrement();
+    this.keys = keys.clone();
+    this.live = live != null ? live.clone() : null;
+  }
+
+  int getId() {
+    return id;
+  }
+
+  /**
+   * 配置键的数量
+   */
+  public int size() {
+    return keys.length;
+  }
+
+  /**
+   * 获取下标对应的配置键
+   *
+   * @param index 下标
+   */
+  public String getKey(int index) {
+    return keys[index];
+  }
+
+  /**
+   * 下标对应的配置键是否实时读取
+   *
+   * @param index 下标
+   */
+  public boolean isLive(int index) {
+    return live != null && live[index];
+  }
+
+}
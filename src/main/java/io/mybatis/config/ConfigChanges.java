@@ -0,0 +1,413 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+import static io.mybatis.config.ConfigHelper.log;
+
+/**
+ * 配置变化发布者，reload 后计算新旧两代配置之间每个 key 的变化并通知订阅者
+ * <p>
+ * 接口和 {@code java.util.concurrent.Flow} 一致，订阅者通过 {@link Subscription#request(long)} 控制接收速度。
+ * 短时间内的多次 reload 合并为一次计算，同一个 key 尚未发送的变化也会合并，所有通知都在注册表自己的后台线程中发送。
+ * <p>
+ * 参与比较的 key 包括 {@link PropertiesConfig} 中的所有配置和精确订阅的 key，只有存在订阅者时才会记录和比较
+ *
+ * @author liuzh
+ */
+public final class ConfigChanges {
+  /**
+   * 合并 reload 的等待时间（毫秒），默认 100
+   */
+  public static final String DELAY_KEY = "io.mybatis.config.change.delay";
+
+  /**
+   * 注册表的类加载器，计算变化和发送通知时作为线程上下文类加载器
+   */
+  private final    Supplier<ClassLoader>    classLoader;
+  private final    List<Sub>                subscriptions = new CopyOnWriteArrayList<>();
+  private volatile ScheduledExecutorService executor;
+  /**
+   * 上次计算时所有参与比较的配置值，读取系统变量等实时配置的实现在新旧两代中的值相同，因此和这里记录的值比较
+   */
+  private       Map<String, String> baseline;
+  /**
+   * 等待计算的配置代
+   */
+  private       ConfigGeneration    pending;
+
+  ConfigChanges(Supplier<ClassLoader> classLoader) {
+    this.classLoader = classLoader;
+  }
+
+  /**
+   * 每个注册表使用自己的后台线程，保证同一个订阅者的通知按顺序发送，空闲一段时间后线程退出。
+   * 线程本身不设置上下文类加载器，避免空闲线程持有应用的类加载器
+   */
+  private ScheduledExecutorService executor() {
+    ScheduledExecutorService executor = this.executor;
+    if (executor == null) {
+      synchronized (subscriptions) {
+        executor = this.executor;
+        if (executor == null) {
+          ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "mybatis-config-change");
+            thread.setDaemon(true);
+            thread.setContextClassLoader(null);
+            return thread;
+          });
+          pool.setKeepAliveTime(60, TimeUnit.SECONDS);
+          pool.allowCoreThreadTimeOut(true);
+          executor = pool;
+          this.executor = executor;
+        }
+      }
+    }
+    return executor;
+  }
+
+  /**
+   * 在后台线程中执行，执行期间使用注册表的类加载器
+   *
+   * @param task 任务
+   */
+  private void execute(Runnable task) {
+    try {
+      executor().execute(() -> runInContext(task));
+    } catch (RejectedExecutionException e) {
+      //注册表已经释放
+      log.debug("配置变化发布者已经结束，忽略通知");
+    }
+  }
+
+  private void runInContext(Runnable task) {
+    Thread thread = Thread.currentThread();
+    ClassLoader original = thread.getContextClassLoader();
+    thread.setContextClassLoader(classLoader.get());
+    try {
+      task.run();
+    } finally {
+      thread.setContextClassLoader(original);
+    }
+  }
+
+  /**
+   * 订阅指定 key 的变化
+   *
+   * @param key        配置键
+   * @param subscriber 订阅者
+   * @param generation 当前配置代
+   */
+  void subscribe(String key, Subscriber subscriber, ConfigGeneration generation) {
+    subscribe(new Sub(key, false, subscriber), generation);
+  }
+
+  /**
+   * 订阅指定前缀的所有 key 的变化，前缀为空字符串时订阅所有变化
+   *
+   * @param prefix     前缀
+   * @param subscriber 订阅者
+   * @param generation 当前配置代
+   */
+  void subscribePrefix(String prefix, Subscriber subscriber, ConfigGeneration generation) {
+    subscribe(new Sub(prefix, true, subscriber), generation);
+  }
+
+  private void subscribe(Sub sub, ConfigGeneration generation) {
+    synchronized (this) {
+      if (baseline == null) {
+        Set<String> keys = new HashSet<>();
+        collectKeys(generation, keys);
+        baseline = new HashMap<>();
+        keys.forEach(key -> baseline.put(key, getStr(generation, key)));
+      }
+      if (!sub.prefix && !baseline.containsKey(sub.key)) {
+        baseline.put(sub.key, getStr(generation, sub.key));
+      }
+      subscriptions.add(sub);
+    }
+    execute(() -> sub.subscriber.onSubscribe(sub));
+  }
+
+  /**
+   * 移除订阅，没有订阅者时不再记录配置值，之后再订阅时重新记录，不会收到订阅之前的变化
+   *
+   * @param sub 订阅
+   */
+  private void unsubscribe(Sub sub) {
+    synchronized (this) {
+      if (subscriptions.remove(sub) && subscriptions.isEmpty()) {
+        baseline = null;
+        pending = null;
+      }
+    }
+  }
+
+  /**
+   * 发布新的配置代，等待一段时间后计算，期间的多次发布合并为一次
+   *
+   * @param generation 新的配置代
+   */
+  void publish(ConfigGeneration generation) {
+    if (subscriptions.isEmpty()) {
+      return;
+    }
+    synchronized (this) {
+      ConfigGeneration pending = this.pending;
+      this.pending = generation;
+      if (pending != null) {
+        return;
+      }
+    }
+    try {
+      executor().schedule(() -> runInContext(this::diff), Long.getLong(DELAY_KEY, 100L), TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      log.debug("配置变化发布者已经结束，忽略通知");
+    }
+  }
+
+  /**
+   * 结束所有订阅，发送完结束通知后停止后台线程
+   */
+  void complete() {
+    for (Sub sub : subscriptions) {
+      subscriptions.remove(sub);
+      execute(sub::complete);
+    }
+    synchronized (subscriptions) {
+      if (executor != null) {
+        executor.shutdown();
+      }
+    }
+  }
+
+  private void diff() {
+    List<Change> changes = new ArrayList<>();
+    synchronized (this) {
+      ConfigGeneration generation = this.pending;
+      this.pending = null;
+      if (generation == null || baseline == null) {
+        return;
+      }
+      Set<String> keys = new TreeSet<>(baseline.keySet());
+      collectKeys(generation, keys);
+      Map<String, String> current = new HashMap<>();
+      for (String key : keys) {
+        String oldValue = baseline.get(key);
+        String newValue = getStr(generation, key);
+        current.put(key, newValue);
+        if (!Objects.equals(oldValue, newValue)) {
+          changes.add(new Change(key, oldValue, newValue));
+        }
+      }
+      baseline = current;
+    }
+    for (Sub sub : subscriptions) {
+      for (Change change : changes) {
+        if (sub.matches(change.key)) {
+          sub.offer(change);
+        }
+      }
+      sub.drain();
+    }
+  }
+
+  private static void collectKeys(ConfigGeneration generation, Set<String> keys) {
+    for (PropertiesConfig config : generation.getPropertiesConfigs()) {
+      keys.addAll(config.getProperties().stringPropertyNames());
+    }
+  }
+
+  private static String getStr(ConfigGeneration generation, String key) {
+    try {
+      return generation.getStr(key);
+    } catch (RuntimeException e) {
+      log.warn("计算配置 " + key + " 的变化失败: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * 配置变化订阅者，和 {@code java.util.concurrent.Flow.Subscriber} 一致
+   */
+  public interface Subscriber {
+    /**
+     * 订阅成功，需要通过 {@link Subscription#request(long)} 请求数据
+     *
+     * @param subscription 订阅
+     */
+    void onSubscribe(Subscription subscription);
+
+    /**
+     * 配置变化
+     *
+     * @param change 变化
+     */
+    void onNext(Change change);
+
+    /**
+     * 处理出错，之后不再接收通知
+     *
+     * @param throwable 异常
+     */
+    default void onError(Throwable throwable) {
+    }
+
+    /**
+     * 订阅结束，类加载器对应的配置被释放时调用
+     */
+    default void onComplete() {
+    }
+  }
+
+  /**
+   * 订阅，和 {@code java.util.concurrent.Flow.Subscription} 一致
+   */
+  public interface Subscription {
+    /**
+     * 请求接收 n 个变化
+     *
+     * @param n 数量，必须大于 0
+     */
+    void request(long n);
+
+    /**
+     * 取消订阅
+     */
+    void cancel();
+  }
+
+  /**
+   * 单个 key 的变化，值为 null 表示不存在
+   */
+  public static final class Change {
+    private final String key;
+    private final String oldValue;
+    private final String newValue;
+
+    public Change(String key, String oldValue, String newValue) {
+      this.key = key;
+      this.oldValue = oldValue;
+      this.newValue = newValue;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    public String getOldValue() {
+      return oldValue;
+    }
+
+    public String getNewValue() {
+      return newValue;
+    }
+
+    @Override
+    public String toString() {
+      return key + ": " + oldValue + " -> " + newValue;
+    }
+  }
+
+  /**
+   * 订阅实现，未发送的变化按 key 合并，通知只在后台线程中发送
+   */
+  private final class Sub implements Subscription {
+    private final    String                        key;
+    private final    boolean                       prefix;
+    private final    Subscriber                    subscriber;
+    private final    LinkedHashMap<String, Change> pending = new LinkedHashMap<>();
+    private          long                          demand;
+    private volatile boolean                       cancelled;
+
+    Sub(String key, boolean prefix, Subscriber subscriber) {
+      this.key = Objects.requireNonNull(key);
+      this.prefix = prefix;
+      this.subscriber = Objects.requireNonNull(subscriber);
+    }
+
+    boolean matches(String key) {
+      return prefix ? key.startsWith(this.key) : key.equals(this.key);
+    }
+
+    synchronized void offer(Change change) {
+      Change previous = pending.remove(change.key);
+      if (previous == null) {
+        pending.put(change.key, change);
+      } else if (!Objects.equals(previous.oldValue, change.newValue)) {
+        pending.put(change.key, new Change(change.key, previous.oldValue, change.newValue));
+      }
+    }
+
+    private synchronized Change poll() {
+      if (cancelled || demand == 0 || pending.isEmpty()) {
+        return null;
+      }
+      Iterator<Change> iterator = pending.values().iterator();
+      Change change = iterator.next();
+      iterator.remove();
+      demand--;
+      return change;
+    }
+
+    void drain() {
+      Change change;
+      while ((change = poll()) != null) {
+        try {
+          subscriber.onNext(change);
+        } catch (Throwable e) {
+          cancel();
+          log.warn("配置变化订阅者处理失败: " + e.getMessage());
+          subscriber.onError(e);
+          return;
+        }
+      }
+    }
+
+    void complete() {
+      if (!cancelled) {
+        cancelled = true;
+        subscriber.onComplete();
+      }
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        cancel();
+        execute(() -> subscriber.onError(new IllegalArgumentException("请求数量必须大于 0: " + n)));
+        return;
+      }
+      synchronized (this) {
+        demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+      }
+      execute(this::drain);
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+      unsubscribe(this);
+      synchronized (this) {
+        pending.clear();
+      }
+    }
+  }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+/**
+ * 配置值解码，用于 Base64、压缩、加密（如 {@code ENC(...)}）等编码后保存的配置，通过 SPI 注册
+ * <p>
+ * 解码在占位符解析之后进行，结果在同一代配置中缓存，相同的编码值只解码一次
+ * <p>
+ * 没有默认启用的解码器，内置的 {@link io.mybatis.config.decoder.Base64Decoder} 和 {@link io.mybatis.config.decoder.GzipDecoder}
+ * 也需要在 {@code META-INF/services/io.mybatis.config.ConfigDecoder} 中注册后才会使用，避免恰好符合格式的普通配置值被解码
+ *
+ * @author liuzh
+ */
+public interface ConfigDecoder {
+  /**
+   * 是否在加载配置时并行解码 {@link PropertiesConfig} 中所有需要解码的值，默认在第一次读取时解码
+   */
+  String EAGER_KEY = "io.mybatis.config.decoder.eager";
+
+  /**
+   * 是否支持解码该值，读取配置时都会调用，应当只做简单的判断
+   *
+   * @param value 配置值
+   */
+  boolean supports(String value);
+
+  /**
+   * 解码
+   *
+   * @param value 配置值
+   * @return 解码后的值
+   */
+  String decode(String value);
+
+  /**
+   * 执行顺序，多个解码器支持同一个值时使用优先级高的
+   */
+  default int getOrder() {
+    return 0;
+  }
+
+}
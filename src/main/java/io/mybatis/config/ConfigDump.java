@@ -0,0 +1,143 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 输出生效的配置和来源，用于对比不同节点之间的配置
+ * <p>
+ * 每行格式为 {@code key=value # 配置类 order=优先级 [version=版本文件]}，按 key 排序，只包含 {@link PropertiesConfig} 中存在的 key，
+ * 值为配置实现提供的原始值，不解析占位符，也不解码。最后一行为前面所有行的 SHA-256，内容相同的配置哈希值相同
+ *
+ * @author liuzh
+ */
+final class ConfigDump {
+  /**
+   * 最后一行哈希值的前缀
+   */
+  static final String HASH_PREFIX = "# sha256=";
+
+  private ConfigDump() {
+  }
+
+  /**
+   * 输出配置
+   *
+   * @param generation 配置代
+   * @param writer     输出，为 null 时只计算哈希值
+   * @return 哈希值
+   */
+  static String dump(ConfigGeneration generation, Writer writer) throws IOException {
+    Set<String> keys = new TreeSet<>();
+    for (PropertiesConfig config : generation.getPropertiesConfigs()) {
+      keys.addAll(config.getProperties().stringPropertyNames());
+    }
+    MessageDigest digest = sha256();
+    StringBuilder line = new StringBuilder();
+    Config[] chain = generation.getChain();
+    for (String key : keys) {
+      for (Config link : chain) {
+        String value = link.getStr(key);
+        if (value == null) {
+          continue;
+        }
+        Config config = LazyConfig.unwrap(link);
+        line.setLength(0);
+        escape(line, key, true);
+        line.append('=');
+        escape(line, value, false);
+        line.append(" # ").append(config.getClass().getName()).append(" order=").append(config.getOrder());
+        if (config instanceof PropertiesConfig) {
+          String version = ((PropertiesConfig) config).getVersion();
+          if (version != null) {
+            line.append(" version=").append(version);
+          }
+        }
+        line.append('\n');
+        String text = line.toString();
+        digest.update(text.getBytes(StandardCharsets.UTF_8));
+        if (writer != null) {
+          writer.write(text);
+        }
+        break;
+      }
+    }
+    String hash = toHex(digest.digest());
+    if (writer != null) {
+      writer.write(HASH_PREFIX + hash + "\n");
+      writer.flush();
+    }
+    return hash;
+  }
+
+  /**
+   * 按 properties 文件的规则转义，保证每个配置只占一行
+   */
+  private static void escape(StringBuilder builder, String text, boolean key) {
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      switch (c) {
+        case '\\':
+          builder.append("\\\\");
+          break;
+        case '\n':
+          builder.append("\\n");
+          break;
+        case '\r':
+          builder.append("\\r");
+          break;
+        case '\t':
+          builder.append("\\t");
+          break;
+        case '=':
+        case ':':
+        case ' ':
+        case '#':
+          if (key) {
+            builder.append('\\');
+          }
+          builder.append(c);
+          break;
+        default:
+          builder.append(c);
+      }
+    }
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder builder = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,473 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 配置代，每次 {@link ConfigHelper#reload()} 都会产生新的一代，包含当时的配置实现和各种缓存
+ * <p>
+ * 包含占位符的配置值只编译一次，解析结果在同一代中缓存，依赖的配置发生变化时需要 reload。
+ * 需要解码的配置值在解析占位符之后通过 {@link ConfigDecoder} 解码，解码结果也在同一代中缓存。
+ * {@link ContextualConfig} 的值和线程所在的上下文有关时，不使用占位符和配置目录的解析结果缓存
+ *
+ * @author liuzh
+ */
+final class ConfigGeneration {
+  private static final AtomicLong SEQUENCE = new AtomicLong();
+
+  /**
+   * 代号，递增
+   */
+  private final    long                                  id;
+  /**
+   * 按优先级排序后的配置链，包含还没有创建的 {@link LazyConfig}
+   */
+  private final    Config[]                              configs;
+  /**
+   * 创建后的配置实现
+   */
+  private volatile Config[]                              providers;
+  /**
+   * 编译后的模板，key 为原始配置值
+   */
+  private final    ConcurrentMap<String, ConfigTemplate> templates = new ConcurrentHashMap<>();
+  /**
+   * 占位符解析结果，key 为配置键
+   */
+  private final    ConcurrentMap<String, Resolved>       resolved  = new ConcurrentHashMap<>();
+  /**
+   * 按优先级排序后的解码器
+   */
+  private final    ConfigDecoder[]                       decoders;
+  /**
+   * 解码结果，key 为编码后的值
+   */
+  private final    ConcurrentMap<String, String>         decoded   = new ConcurrentHashMap<>();
+  /**
+   * 配置目录中的配置值，下标为目录编号，新增目录时复制整个数组后替换
+   */
+  private volatile CatalogValues[]                       catalogs  = new CatalogValues[0];
+  /**
+   * 租户的覆盖配置
+   */
+  private final    TenantCache                           tenants;
+  /**
+   * 生效配置的哈希值，第一次获取时计算
+   */
+  private volatile String                                hash;
+  /**
+   * 配置链中的 {@link ContextualConfig}，包含还没有创建的 {@link LazyConfig}
+   */
+  private final    Config[]                              contextual;
+
+  ConfigGeneration(List<Config> configs, List<ConfigDecoder> decoders, TenantCache tenants) {
+    this.id = SEQUENCE.incrementAndGet();
+    this.configs = configs.toArray(new Config[0]);
+    this.decoders = decoders.toArray(new ConfigDecoder[0]);
+    this.tenants = tenants;
+    this.contextual = contextual(this.configs);
+  }
+
+  /**
+   * 替换部分配置实现后创建新的一代，模板和解码结果与配置值无关，直接沿用上一代的缓存，租户的覆盖配置也直接沿用
+   *
+   * @param previous 上一代
+   * @param configs  新的配置链
+   */
+  ConfigGeneration(ConfigGeneration previous, Config[] configs) {
+    this(previous, configs, SEQUENCE.incrementAndGet());
+  }
+
+  private ConfigGeneration(ConfigGeneration previous, Config[] configs, long id) {
+    this.id = id;
+    this.configs = configs;
+    this.decoders = previous.decoders;
+    this.tenants = previous.tenants;
+    this.templates.putAll(previous.templates);
+    this.decoded.putAll(previous.decoded);
+    this.contextual = contextual(configs);
+  }
+
+  private static Config[] contextual(Config[] configs) {
+    List<Config> contextual = new ArrayList<>();
+    for (Config config : configs) {
+      Class<?> type = config instanceof LazyConfig ? ((LazyConfig) config).getType() : config.getClass();
+      if (ContextualConfig.class.isAssignableFrom(type)) {
+        contextual.add(config);
+      }
+    }
+    return contextual.toArray(new Config[0]);
+  }
+
+  /**
+   * 当前读取到的值是否和线程所在的上下文有关，此时不能使用解析结果的缓存，还没有创建的延迟配置还没有提供过值
+   */
+  private boolean isContextual() {
+    for (Config config : contextual) {
+      if (config instanceof LazyConfig) {
+        LazyConfig lazy = (LazyConfig) config;
+        if (!lazy.isCreated()) {
+          continue;
+        }
+        config = lazy.get();
+      }
+      if (((ContextualConfig) config).isContextual()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  long getId() {
+    return id;
+  }
+
+  /**
+   * 按优先级排序后的配置实现，延迟创建的配置实现会在这时创建
+   */
+  Config[] getConfigs() {
+    Config[] providers = this.providers;
+    if (providers == null) {
+      providers = new Config[configs.length];
+      for (int i = 0; i < configs.length; i++) {
+        providers[i] = LazyConfig.unwrap(configs[i]);
+      }
+      this.providers = providers;
+    }
+    return providers;
+  }
+
+  /**
+   * 按优先级排序后的 {@link PropertiesConfig}，只创建这一类延迟配置，系统变量、Spring 环境等其他延迟配置不会创建
+   */
+  List<PropertiesConfig> getPropertiesConfigs() {
+    return getPropertiesConfigs(type -> true);
+  }
+
+  /**
+   * 按优先级排序后的 {@link PropertiesConfig}，还没有创建的延迟配置只在满足条件时创建
+   *
+   * @param create 是否创建该类型的延迟配置
+   */
+  List<PropertiesConfig> getPropertiesConfigs(Predicate<Class<? extends Config>> create) {
+    List<PropertiesConfig> list = new ArrayList<>();
+    for (Config config : configs) {
+      if (config instanceof LazyConfig) {
+        LazyConfig lazy = (LazyConfig) config;
+        if (!PropertiesConfig.class.isAssignableFrom(lazy.getType())
+            || !lazy.isCreated() && !create.test(lazy.getType())) {
+          continue;
+        }
+        config = lazy.get();
+      }
+      if (config instanceof PropertiesConfig) {
+        list.add((PropertiesConfig) config);
+      }
+    }
+    return list;
+  }
+
+  /**
+   * 只包含指定配置实现的一层，属于同一代，沿用模板和解码结果的缓存，占位符只在这一层中解析
+   *
+   * @param config 配置实现
+   */
+  ConfigGeneration layer(Config config) {
+    return new ConfigGeneration(this, new Config[]{config}, id);
+  }
+
+  /**
+   * 读取配置时使用的配置链，包含还没有创建的 {@link LazyConfig}
+   */
+  Config[] getChain() {
+    return configs;
+  }
+
+  /**
+   * 生效配置的哈希值，参考 {@link ConfigDump}，同一代只计算一次
+   */
+  String hash() {
+    String hash = this.hash;
+    if (hash == null) {
+      try {
+        hash = ConfigDump.dump(this, null);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      this.hash = hash;
+    }
+    return hash;
+  }
+
+  /**
+   * 关闭配置实现，用于停止远程配置等实现的后台任务，关闭后仍然可以读取配置
+   */
+  void close() {
+    for (Config config : configs) {
+      close(config);
+    }
+  }
+
+  /**
+   * 关闭配置实现并停止定时刷新
+   *
+   * @param config 配置实现
+   */
+  static void close(Config config) {
+    ConfigRefresher.cancel(config);
+    if (config instanceof AutoCloseable) {
+      try {
+        ((AutoCloseable) config).close();
+      } catch (Exception e) {
+        ConfigHelper.log.warn("关闭配置类 " + config.getClass().getName() + " 失败: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * 按优先级获取原始配置值，不处理占位符
+   *
+   * @param key 配置键
+   */
+  String getRaw(String key) {
+    for (Config config : configs) {
+      String value = config.getStr(key);
+      if (value != null) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * 获取配置值，处理其中的占位符
+   *
+   * @param key 配置键
+   */
+  String getStr(String key) {
+    return resolve(key, null, null);
+  }
+
+  /**
+   * 获取配置值，优先使用作用域中的临时配置，占位符引用的配置也会使用临时配置，此时不缓存解析结果
+   *
+   * @param key   配置键
+   * @param scope 临时配置作用域
+   */
+  String getStr(String key, ConfigOverrides.Scope scope) {
+    return resolve(key, null, scope);
+  }
+
+  /**
+   * 获取租户的配置值，优先级为：临时配置作用域、租户的覆盖配置、全局配置，
+   * 占位符引用的配置也会使用租户的覆盖配置，租户有覆盖配置时不缓存解析结果
+   *
+   * @param tenant 租户，为 null 时只使用全局配置
+   * @param key    配置键
+   * @param scope  临时配置作用域
+   */
+  String getStr(String tenant, String key, ConfigOverrides.Scope scope) {
+    if (tenant != null) {
+      ConfigOverrides.Scope overrides = tenants.get(tenant);
+      if (!overrides.isEmpty()) {
+        return resolve(key, null, scope != null ? scope.over(overrides) : overrides);
+      }
+    }
+    return resolve(key, null, scope);
+  }
+
+  /**
+   * 按下标获取配置目录中的配置值，第一次读取目录时解析目录中的所有配置，之后只按下标读取
+   * <p>
+   * 实时读取的配置键每次都按配置键读取，系统变量、共享配置等没有产生新配置代的变化也会立即生效
+   *
+   * @param catalog 配置目录
+   * @param index   下标
+   */
+  String getStr(ConfigCatalog catalog, int index) {
+    if (catalog.isLive(index) || contextual.length > 0 && isContextual()) {
+      return getStr(catalog.getKey(index));
+    }
+    CatalogValues[] catalogs = this.catalogs;
+    int id = catalog.getId();
+    CatalogValues values = id < catalogs.length ? catalogs[id] : null;
+    if (values == null) {
+      values = resolve(catalog);
+    }
+    if (values.failed != null && values.failed[index]) {
+      //解析失败的配置每次读取时重新解析并抛出异常
+      return getStr(catalog.getKey(index));
+    }
+    return values.values[index];
+  }
+
+  private CatalogValues resolve(ConfigCatalog catalog) {
+    String[] values = new String[catalog.size()];
+    boolean[] failed = null;
+    for (int i = 0; i < values.length; i++) {
+      if (catalog.isLive(i)) {
+        continue;
+      }
+      try {
+        values[i] = getStr(catalog.getKey(i));
+      } catch (RuntimeException e) {
+        if (failed == null) {
+          failed = new boolean[values.length];
+        }
+        failed[i] = true;
+      }
+    }
+    CatalogValues resolved = new CatalogValues(values, failed);
+    int id = catalog.getId();
+    synchronized (this) {
+      CatalogValues[] catalogs = this.catalogs;
+      if (id < catalogs.length && catalogs[id] != null) {
+        return catalogs[id];
+      }
+      catalogs = Arrays.copyOf(catalogs, Math.max(catalogs.length, id + 1));
+      catalogs[id] = resolved;
+      this.catalogs = catalogs;
+    }
+    return resolved;
+  }
+
+  private String resolve(String key, Deque<String> visiting, ConfigOverrides.Scope scope) {
+    String raw = scope != null && scope.contains(key) ? scope.get(key) : getRaw(key);
+    if (!ConfigTemplate.hasPlaceholder(raw)) {
+      return decode(raw);
+    }
+    boolean memoize = scope == null && (contextual.length == 0 || !isContextual());
+    Resolved cached = memoize ? resolved.get(key) : null;
+    if (cached != null && cached.raw.equals(raw)) {
+      return cached.value;
+    }
+    if (visiting == null) {
+      visiting = new ArrayDeque<>();
+    } else if (visiting.contains(key)) {
+      StringBuilder chain = new StringBuilder();
+      visiting.descendingIterator().forEachRemaining(k -> chain.append(k).append(" -> "));
+      throw new IllegalStateException("配置存在循环引用: " + chain + key);
+    }
+    visiting.push(key);
+    try {
+      ConfigTemplate template = templates.computeIfAbsent(raw, ConfigTemplate::compile);
+      Deque<String> path = visiting;
+      String value = decode(template.render(k -> resolve(k, path, scope)));
+      if (memoize) {
+        resolved.put(key, new Resolved(raw, value));
+      }
+      return value;
+    } finally {
+      visiting.pop();
+    }
+  }
+
+  /**
+   * 解码配置值，结果按编码后的值缓存
+   *
+   * @param value 配置值
+   */
+  private String decode(String value) {
+    if (value == null || decoders.length == 0) {
+      return value;
+    }
+    String cached = decoded.get(value);
+    if (cached != null) {
+      return cached;
+    }
+    ConfigDecoder decoder = findDecoder(value);
+    if (decoder == null) {
+      return value;
+    }
+    try {
+      return decoded.computeIfAbsent(value, decoder::decode);
+    } catch (RuntimeException e) {
+      throw new IllegalArgumentException("配置值使用 " + decoder.getClass().getName() + " 解码失败", e);
+    }
+  }
+
+  private ConfigDecoder findDecoder(String value) {
+    for (ConfigDecoder decoder : decoders) {
+      if (decoder.supports(value)) {
+        return decoder;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * 并行解码 {@link PropertiesConfig} 中所有需要解码的值，读取配置时不再需要解码
+   */
+  void preload() {
+    if (decoders.length == 0) {
+      return;
+    }
+    Set<String> values = new HashSet<>();
+    for (PropertiesConfig config : getPropertiesConfigs()) {
+      Properties properties = config.getProperties();
+      for (String name : properties.stringPropertyNames()) {
+        String value = properties.getProperty(name);
+        if (value != null && findDecoder(value) != null) {
+          values.add(value);
+        }
+      }
+    }
+    values.parallelStream().forEach(value -> {
+      try {
+        decode(value);
+      } catch (RuntimeException e) {
+        ConfigHelper.log.warn(e.getMessage());
+      }
+    });
+  }
+
+  /**
+   * 配置目录中的配置值
+   */
+  private static class CatalogValues {
+    private final String[]  values;
+    /**
+     * 解析失败的配置，全部成功时为 null
+     */
+    private final boolean[] failed;
+
+    CatalogValues(String[] values, boolean[] failed) {
+      this.values = values;
+      this.failed = failed;
+    }
+  }
+
+  /**
+   * 解析结果，原始值变化时重新解析
+   */
+  private static class Resolved {
+    private final String raw;
+    private final String value;
+
+    Resolved(String raw, String value) {
+      this.raw = raw;
+      this.value = value;
+    }
+  }
+}
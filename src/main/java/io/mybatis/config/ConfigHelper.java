@@ -16,16 +16,34 @@
 
 package io.mybatis.config;
 
+import io.mybatis.config.util.ConfigSnapshot;
+import io.mybatis.config.util.ResourceUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.Comparator;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.ServiceLoader;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * 配置工具类，按照优先级顺序获取配置值，参考 {@link Config}
+ * <p>
+ * 配置实现按线程上下文类加载器分别注册，应用服务器或插件环境中每个应用使用自己的配置实现和缓存。
+ * 注册表中的配置实现通常由应用的类加载器加载，会间接强引用类加载器，应用卸载时必须调用 {@link #release(ClassLoader)}，
+ * 否则类加载器和对应的配置都不会被回收。
  *
  * @author liuzh
  */
@@ -33,24 +51,68 @@ public class ConfigHelper {
   public static final Logger log = LoggerFactory.getLogger(ConfigHelper.class);
 
   /**
-   * 所有配置实现
+   * 类加载器对应的注册表，读取时不加锁。key 只弱引用类加载器，但是注册表中由该类加载器加载的配置实现会强引用类加载器，
+   * 只有配置实现都来自父类加载器时，类加载器才能在没有调用 {@link #release(ClassLoader)} 的情况下被回收并自动移除
    */
-  private static volatile List<Config> CONFIGS;
+  private static final ConcurrentMap<LoaderKey, ConfigRegistry> REGISTRIES = new ConcurrentHashMap<>();
+  /**
+   * 已经回收的类加载器
+   */
+  private static final ReferenceQueue<ClassLoader>               RELEASED   = new ReferenceQueue<>();
 
   /**
-   * 获取配置信息
+   * 最近使用的注册表，类加载器相同时直接使用
+   */
+  private static volatile Reference<ConfigRegistry> LAST = new WeakReference<>(null);
+
+  /**
+   * 获取配置信息，配置值中的 ${key} 和 ${key:default} 占位符会被解析
    *
    * @param key 配置键
    */
   public static String getStr(String key) {
-    init();
-    for (Config config : CONFIGS) {
-      String value = config.getStr(key);
-      if (value != null) {
-        return value;
-      }
+    ConfigOverrides.Scope scope = ConfigOverrides.current();
+    if (scope != null) {
+      return registry().generation().getStr(key, scope);
     }
-    return null;
+    return registry().generation().getStr(key);
+  }
+
+  /**
+   * 按下标获取配置目录中的配置信息，同一代配置中只在第一次读取目录时解析，声明为实时读取的配置键每次都依次查找，参考 {@link ConfigKey}
+   *
+   * @param catalog 配置目录
+   * @param index   配置键在目录中的下标
+   */
+  public static String getStr(ConfigCatalog catalog, int index) {
+    ConfigOverrides.Scope scope = ConfigOverrides.current();
+    if (scope != null) {
+      return registry().generation().getStr(catalog.getKey(index), scope);
+    }
+    return registry().generation().getStr(catalog, index);
+  }
+
+  /**
+   * 获取租户的配置信息，优先使用 {@link TenantConfig} 提供的租户覆盖配置，租户中没有时使用全局配置
+   *
+   * @param tenant 租户，为 null 时和 {@link #getStr(String)} 相同
+   * @param key    配置键
+   */
+  public static String getTenantStr(String tenant, String key) {
+    return registry().generation().getStr(tenant, key, ConfigOverrides.current());
+  }
+
+  /**
+   * 获取租户的配置信息
+   *
+   * @param tenant       租户
+   * @param key          配置键
+   * @param defaultValue 默认值
+   * @return 配置值
+   */
+  public static String getTenantStr(String tenant, String key, String defaultValue) {
+    String val = getTenantStr(tenant, key);
+    return val != null ? val : defaultValue;
   }
 
   /**
@@ -117,30 +179,323 @@ public class ConfigHelper {
   }
 
   /**
-   * 初始化
+   * 将指定前缀下的配置绑定到新创建的对象上，支持 JavaBean 和 record
+   * <p>
+   * JavaBean 对象会被记录（弱引用），调用 {@link #reload()} 后会自动重新绑定，已经删除的配置恢复为绑定前的值，
+   * record 不可变，需要重新调用该方法获取
+   *
+   * @param prefix 配置前缀，例如 mybatis.provider
+   * @param type   对象类型
+   * @return 绑定后的对象
    */
-  private static void init() {
-    if (CONFIGS == null) {
-      synchronized (ConfigHelper.class) {
-        if (CONFIGS == null) {
-          CONFIGS = new ArrayList<>();
-          ServiceLoader<Config> serviceLoader = ServiceLoader.load(Config.class);
-          for (Config config : serviceLoader) {
-            CONFIGS.add(config);
-          }
-          CONFIGS.sort(Comparator.comparing(Config::getOrder).reversed());
-          CONFIGS.forEach(c -> log.debug("加载配置类: " + c.getClass().getName()));
-        }
+  public static <T> T bind(String prefix, Class<T> type) {
+    return registry().getBinder().bind(prefix, type, ConfigHelper::getStr);
+  }
+
+  /**
+   * 将指定前缀下的配置绑定到已有对象上，调用 {@link #reload()} 后会自动重新绑定，已经删除的配置恢复为绑定前的值
+   *
+   * @param prefix 配置前缀，例如 mybatis.provider
+   * @param target 对象
+   * @return 绑定后的对象
+   */
+  public static <T> T bind(String prefix, T target) {
+    return registry().getBinder().bind(prefix, target, ConfigHelper::getStr);
+  }
+
+  /**
+   * 获取固定在当前配置代上的只读视图，读取一组相关配置时使用，不会受到期间 reload 的影响，
+   * 实时读取和后台刷新的配置实现仍然返回当前值，参考 {@link ConfigView}
+   */
+  public static ConfigView view() {
+    return new ConfigView(registry().generation(), ConfigOverrides.current(), null);
+  }
+
+  /**
+   * 获取租户的只读视图，优先使用租户的覆盖配置，参考 {@link #getTenantStr(String, String)}
+   *
+   * @param tenant 租户
+   */
+  public static ConfigView view(String tenant) {
+    return new ConfigView(registry().generation(), ConfigOverrides.current(), tenant);
+  }
+
+  /**
+   * 当前配置代号，每次 reload 后变化，可以用来判断基于配置的缓存是否需要更新
+   */
+  public static long getGeneration() {
+    return registry().generation().getId();
+  }
+
+  /**
+   * 当前的所有配置实现，按优先级从高到低排序，所有延迟创建的配置实现都会在这时创建
+   */
+  public static List<Config> getConfigs() {
+    return Collections.unmodifiableList(Arrays.asList(registry().generation().getConfigs()));
+  }
+
+  /**
+   * 当前的所有属性文件配置（{@link PropertiesConfig}），按优先级从高到低排序，其他延迟创建的配置实现不会创建
+   */
+  public static List<PropertiesConfig> getPropertiesConfigs() {
+    return Collections.unmodifiableList(registry().generation().getPropertiesConfigs());
+  }
+
+  /**
+   * 当前的属性文件配置（{@link PropertiesConfig}），按优先级从高到低排序，还没有创建的延迟配置只在满足条件时创建
+   *
+   * @param create 是否创建该类型的延迟配置
+   */
+  public static List<PropertiesConfig> getPropertiesConfigs(Predicate<Class<? extends Config>> create) {
+    return Collections.unmodifiableList(registry().generation().getPropertiesConfigs(create));
+  }
+
+  /**
+   * 只通过指定的配置实现读取配置，占位符也只在其中解析，解码方式和当前配置相同，不会读取配置链中的其他配置实现
+   *
+   * @param config 配置实现
+   * @return 解析占位符并解码后的配置
+   */
+  public static Config layer(Config config) {
+    return registry().generation().layer(config)::getStr;
+  }
+
+  /**
+   * 按 key 排序输出生效的配置，每个配置包含来源的配置类、优先级和版本文件，最后一行为内容的 SHA-256，
+   * 不同节点可以通过哈希值快速比较配置是否一致。只输出 {@link PropertiesConfig} 中存在的 key，值为原始值，不会输出解码后的内容
+   *
+   * @param writer 输出
+   * @return 哈希值
+   * @throws IOException 输出失败
+   */
+  public static String dump(Writer writer) throws IOException {
+    return ConfigDump.dump(registry().generation(), writer);
+  }
+
+  /**
+   * 生效配置的哈希值，和 {@link #dump(Writer)} 返回的值相同
+   * <p>
+   * 哈希值在同一代配置中只计算一次，没有产生新配置代的变化（如默认实时读取的系统变量）需要 reload 后才会反映到哈希值中
+   */
+  public static String hash() {
+    return registry().generation().hash();
+  }
+
+  /**
+   * 将当前属性文件配置（{@link PropertiesConfig}）解析后的结果写入快照文件，包括选择的版本和来源文件信息
+   * <p>
+   * 启动时通过系统变量 {@link ConfigSnapshot#SNAPSHOT_KEY} 指定快照文件，来源文件没有变化时直接使用快照中的配置
+   *
+   * @param file 快照文件
+   * @throws IOException 写入失败
+   */
+  public static void writeSnapshot(File file) throws IOException {
+    ConfigSnapshot.write(file, registry().generation().getPropertiesConfigs());
+  }
+
+  /**
+   * 在临时配置作用域中执行，作用域中的配置优先级最高，只对当前线程有效，
+   * 嵌套使用时内层覆盖外层，线程池中的任务可以通过 {@link #wrap(Runnable)} 传递作用域
+   *
+   * @param overrides 临时配置，值为 null 时表示该配置不存在
+   * @param runnable  执行的方法
+   */
+  public static void withOverrides(Map<String, String> overrides, Runnable runnable) {
+    ConfigOverrides.Scope scope = ConfigOverrides.create(overrides);
+    ConfigOverrides.Scope previous = ConfigOverrides.enter(scope);
+    try {
+      runnable.run();
+    } finally {
+      ConfigOverrides.exit(previous);
+    }
+  }
+
+  /**
+   * 在临时配置作用域中执行，参考 {@link #withOverrides(Map, Runnable)}
+   *
+   * @param overrides 临时配置，值为 null 时表示该配置不存在
+   * @param supplier  执行的方法
+   * @return 执行结果
+   */
+  public static <T> T withOverrides(Map<String, String> overrides, Supplier<T> supplier) {
+    ConfigOverrides.Scope scope = ConfigOverrides.create(overrides);
+    ConfigOverrides.Scope previous = ConfigOverrides.enter(scope);
+    try {
+      return supplier.get();
+    } finally {
+      ConfigOverrides.exit(previous);
+    }
+  }
+
+  /**
+   * 将当前线程的临时配置作用域传递给任务，任务在其他线程执行时使用相同的临时配置
+   *
+   * @param runnable 任务
+   * @return 包装后的任务
+   */
+  public static Runnable wrap(Runnable runnable) {
+    ConfigOverrides.Scope scope = ConfigOverrides.current();
+    if (scope == null) {
+      return runnable;
+    }
+    return () -> {
+      ConfigOverrides.Scope previous = ConfigOverrides.enter(scope);
+      try {
+        runnable.run();
+      } finally {
+        ConfigOverrides.exit(previous);
+      }
+    };
+  }
+
+  /**
+   * 将当前线程的临时配置作用域传递给任务，参考 {@link #wrap(Runnable)}
+   *
+   * @param callable 任务
+   * @return 包装后的任务
+   */
+  public static <T> Callable<T> wrap(Callable<T> callable) {
+    ConfigOverrides.Scope scope = ConfigOverrides.current();
+    if (scope == null) {
+      return callable;
+    }
+    return () -> {
+      ConfigOverrides.Scope previous = ConfigOverrides.enter(scope);
+      try {
+        return callable.call();
+      } finally {
+        ConfigOverrides.exit(previous);
+      }
+    };
+  }
+
+  /**
+   * 获取当前线程上下文类加载器对应的注册表
+   */
+  static ConfigRegistry registry() {
+    ClassLoader classLoader = ResourceUtil.getDefaultClassLoader();
+    ConfigRegistry registry = LAST.get();
+    //并发释放时最近使用的注册表可能已经关闭
+    if (registry != null && registry.getClassLoader() == classLoader && !registry.isClosed()) {
+      return registry;
+    }
+    registry = REGISTRIES.get(new LoaderKey(classLoader, null));
+    if (registry == null) {
+      expunge();
+      registry = REGISTRIES.computeIfAbsent(new LoaderKey(classLoader, RELEASED), key -> new ConfigRegistry(classLoader));
+    }
+    LAST = new WeakReference<>(registry);
+    return registry;
+  }
+
+  /**
+   * 移除已经回收的类加载器对应的注册表
+   */
+  private static void expunge() {
+    Reference<? extends ClassLoader> reference;
+    while ((reference = RELEASED.poll()) != null) {
+      ConfigRegistry registry = REGISTRIES.remove(reference);
+      if (registry != null) {
+        registry.close();
       }
     }
   }
 
   /**
-   * 重新加载
+   * 释放类加载器对应的配置，应用卸载时调用
+   *
+   * @param classLoader 类加载器
+   */
+  public static void release(ClassLoader classLoader) {
+    ConfigRegistry registry = REGISTRIES.remove(new LoaderKey(classLoader, null));
+    if (registry != null) {
+      registry.close();
+    }
+    //关闭之后再清除，其他线程之后写回的已经关闭的注册表在读取时会被忽略
+    ConfigRegistry last = LAST.get();
+    if (last != null && last.getClassLoader() == classLoader) {
+      LAST = new WeakReference<>(null);
+    }
+  }
+
+  /**
+   * 订阅指定 key 的变化，reload 后在后台线程中通知
+   *
+   * @param key        配置键
+   * @param subscriber 订阅者
+   */
+  public static void subscribe(String key, ConfigChanges.Subscriber subscriber) {
+    ConfigRegistry registry = registry();
+    registry.getChanges().subscribe(key, subscriber, registry.generation());
+  }
+
+  /**
+   * 订阅指定前缀的所有配置的变化，前缀为空字符串时订阅所有变化，只能发现 {@link PropertiesConfig} 中存在的配置
+   *
+   * @param prefix     前缀
+   * @param subscriber 订阅者
+   */
+  public static void subscribePrefix(String prefix, ConfigChanges.Subscriber subscriber) {
+    ConfigRegistry registry = registry();
+    registry.getChanges().subscribePrefix(prefix, subscriber, registry.generation());
+  }
+
+  /**
+   * 重新加载当前线程上下文类加载器对应的配置，调用 {@link #bind(String, Class)} 绑定过的对象会重新绑定
    */
   public static void reload() {
-    CONFIGS = null;
-    init();
+    registry().reload();
+  }
+
+  /**
+   * 在后台只重新加载指定类型的配置实现，不会重新扫描类路径，其他配置实现和缓存保持不变，加载完成前读取的仍然是旧的配置
+   *
+   * @param type 配置类型，如 {@link io.mybatis.config.defaults.UserConfig}
+   * @return 加载完成时结束，不存在该类型的配置实现时结果为 false
+   */
+  public static CompletableFuture<Boolean> reload(Class<? extends Config> type) {
+    ConfigRegistry registry = registry();
+    ClassLoader classLoader = registry.getClassLoader();
+    return CompletableFuture.supplyAsync(() -> {
+      //配置实现重新加载时读取的其他配置也要来自同一个注册表
+      Thread thread = Thread.currentThread();
+      ClassLoader original = thread.getContextClassLoader();
+      thread.setContextClassLoader(classLoader);
+      try {
+        return registry.reload(type);
+      } finally {
+        thread.setContextClassLoader(original);
+      }
+    });
+  }
+
+  /**
+   * 弱引用类加载器的 key，按类加载器的标识比较，类加载器回收后只和自己相等
+   */
+  private static final class LoaderKey extends WeakReference<ClassLoader> {
+    private final int hash;
+
+    LoaderKey(ClassLoader classLoader, ReferenceQueue<ClassLoader> queue) {
+      super(classLoader, queue);
+      this.hash = System.identityHashCode(classLoader);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof LoaderKey)) {
+        return false;
+      }
+      ClassLoader classLoader = get();
+      return classLoader != null && classLoader == ((LoaderKey) o).get();
+    }
   }
 
 }
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import java.lang.annotation.*;
+
+/**
+ * 声明配置键，编译时由 {@link io.mybatis.config.processor.ConfigKeyProcessor} 生成对应的配置目录
+ * <p>
+ * 只能用于 static final 字段，字段是字符串常量时必须和配置键相同，例如：
+ * <pre>
+ * public class ProviderKeys {
+ *   &#64;ConfigKey("mybatis.provider.style")
+ *   public static final String STYLE = "mybatis.provider.style";
+ * }
+ * </pre>
+ * 编译后生成 ProviderKeysCatalog，通过 {@code ProviderKeysCatalog.getStr(ProviderKeysCatalog.STYLE)} 按下标读取配置。
+ * <p>
+ * 编译时只校验配置键的格式，不检查配置键是否存在，配置可能来自系统变量、环境变量或者运行时加载的配置文件
+ *
+ * @author liuzh
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.FIELD)
+public @interface ConfigKey {
+
+  /**
+   * 配置键，只能包含字母、数字、'-'、'_' 和用 '.' 分隔的多段
+   */
+  String value();
+
+  /**
+   * 是否实时读取，默认 false，每一代配置只解析一次，系统变量等没有产生新配置代的变化需要 {@link ConfigHelper#reload()} 后才能读取到；
+   * 为 true 时每次都按配置键读取
+   */
+  boolean live() default false;
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+
+/**
+ * 配置管理 JMX 实现，通过 {@link #register()} 注册当前线程上下文类加载器对应的配置
+ * <p>
+ * 名称中包含类加载器的标识，同一个 MBeanServer 中不同应用的配置互不覆盖。
+ * MBean 只引用配置注册表，注册表释放时（{@link ConfigHelper#release(ClassLoader)}）自动注销。
+ * JMX 调用所在的线程使用的类加载器可能不同，所有操作都会切换到注册时的类加载器
+ *
+ * @author liuzh
+ */
+public class ConfigManager implements ConfigManagerMBean {
+  /**
+   * 名称前缀，完整的名称还包含类加载器标识，如 {@code io.mybatis.config:type=ConfigManager,loader="..."}
+   */
+  public static final String OBJECT_NAME = "io.mybatis.config:type=ConfigManager";
+
+  private final ConfigRegistry registry;
+
+  ConfigManager(ConfigRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * 注册到平台 MBeanServer，已经注册时直接返回
+   *
+   * @return 注册的名称
+   */
+  public static ObjectName register() {
+    return ConfigHelper.registry().registerManager();
+  }
+
+  /**
+   * 注册配置注册表对应的 MBean
+   *
+   * @param registry 配置注册表
+   * @param name     上次注册的名称，没有注册过时为 null
+   * @return 注册的名称
+   */
+  static ObjectName register(ConfigRegistry registry, ObjectName name) {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (name != null && server.isRegistered(name)) {
+        return name;
+      }
+      ClassLoader classLoader = registry.getClassLoader();
+      String loader = classLoader == null ? "null"
+          : classLoader.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(classLoader));
+      name = new ObjectName(OBJECT_NAME + ",loader=" + ObjectName.quote(loader));
+      server.registerMBean(new ConfigManager(registry), name);
+      return name;
+    } catch (JMException e) {
+      throw new IllegalStateException("注册配置管理 MBean 失败", e);
+    }
+  }
+
+  /**
+   * 注销 MBean
+   *
+   * @param name 注册的名称
+   */
+  static void unregister(ObjectName name) {
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+    } catch (JMException e) {
+      ConfigHelper.log.warn("注销配置管理 MBean " + name + " 失败: " + e.getMessage());
+    }
+  }
+
+  private <T> T call(Callable<T> callable) {
+    Thread thread = Thread.currentThread();
+    ClassLoader original = thread.getContextClassLoader();
+    thread.setContextClassLoader(registry.getClassLoader());
+    try {
+      return callable.call();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    } finally {
+      thread.setContextClassLoader(original);
+    }
+  }
+
+  @Override
+  public long getGeneration() {
+    return call(() -> registry.generation().getId());
+  }
+
+  @Override
+  public String getHash() {
+    return call(() -> registry.generation().hash());
+  }
+
+  @Override
+  public String dump() {
+    return call(() -> {
+      StringWriter writer = new StringWriter();
+      ConfigDump.dump(registry.generation(), writer);
+      return writer.toString();
+    });
+  }
+
+  @Override
+  public void reload() {
+    call(() -> {
+      registry.reload();
+      return null;
+    });
+  }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+/**
+ * 配置管理 JMX 接口
+ *
+ * @author liuzh
+ */
+public interface ConfigManagerMBean {
+
+  /**
+   * 当前配置代号
+   */
+  long getGeneration();
+
+  /**
+   * 生效配置的哈希值
+   */
+  String getHash();
+
+  /**
+   * 输出生效的配置和来源，参考 {@link ConfigHelper#dump(java.io.Writer)}
+   */
+  String dump();
+
+  /**
+   * 重新加载配置
+   */
+  void reload();
+
+}
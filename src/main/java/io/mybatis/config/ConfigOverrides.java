@@ -0,0 +1,150 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 作用域内的临时配置，优先级最高，只对当前线程有效，其他线程中的任务需要通过 {@link ConfigHelper#wrap(Runnable)} 传递
+ * <p>
+ * 从来没有进入过作用域时，读取配置只需要读取一个 volatile 变量，不访问 {@link ThreadLocal}。
+ * 不会通过 {@link InheritableThreadLocal} 传递给子线程，避免作用域内创建的线程池线程一直持有已经结束的作用域
+ *
+ * @author liuzh
+ */
+final class ConfigOverrides {
+  /**
+   * 当前线程的作用域
+   */
+  private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+  /**
+   * 是否进入过作用域，只会从 false 变为 true，进入作用域的线程自己写入，因此总能读到 true
+   */
+  private static volatile boolean         entered;
+
+  private ConfigOverrides() {
+  }
+
+  /**
+   * 当前线程的作用域，没有时返回 null
+   */
+  static Scope current() {
+    return entered ? CURRENT.get() : null;
+  }
+
+  /**
+   * 创建作用域，嵌套时内层覆盖外层
+   *
+   * @param overrides 临时配置，值为 null 时表示该配置不存在
+   */
+  static Scope create(Map<String, String> overrides) {
+    Scope parent = current();
+    Map<String, String> values = new HashMap<>();
+    if (parent != null) {
+      values.putAll(parent.values);
+    }
+    values.putAll(overrides);
+    return new Scope(values);
+  }
+
+  /**
+   * 进入作用域，必须在 finally 中调用 {@link #exit(Scope)}
+   *
+   * @param scope 作用域
+   * @return 之前的作用域
+   */
+  static Scope enter(Scope scope) {
+    if (!entered) {
+      entered = true;
+    }
+    Scope previous = CURRENT.get();
+    CURRENT.set(scope);
+    return previous;
+  }
+
+  /**
+   * 退出作用域，恢复之前的作用域
+   *
+   * @param previous 之前的作用域
+   */
+  static void exit(Scope previous) {
+    if (previous != null) {
+      CURRENT.set(previous);
+    } else {
+      CURRENT.remove();
+    }
+  }
+
+  /**
+   * 作用域中的临时配置，创建后不可修改，可以直接传递给其他线程
+   */
+  static final class Scope {
+    /**
+     * 缓存的合并结果数量上限，超过时清空
+     */
+    private static final int                         MERGED_LIMIT = 64;
+    private final        Map<String, String>         values;
+    /**
+     * 和租户配置合并后的作用域，key 为被覆盖的租户配置（按对象判断），延迟创建
+     */
+    private volatile     ConcurrentMap<Scope, Scope> merged;
+
+    Scope(Map<String, String> values) {
+      this.values = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * 用当前作用域覆盖指定的配置，用于临时配置和租户配置同时存在时，合并结果按租户配置缓存，重复读取时不再复制
+     *
+     * @param base 被覆盖的配置
+     */
+    Scope over(Scope base) {
+      ConcurrentMap<Scope, Scope> merged = this.merged;
+      if (merged == null) {
+        merged = new ConcurrentHashMap<>();
+        this.merged = merged;
+      }
+      Scope scope = merged.get(base);
+      if (scope == null) {
+        Map<String, String> values = new HashMap<>(base.values);
+        values.putAll(this.values);
+        scope = new Scope(values);
+        if (merged.size() >= MERGED_LIMIT) {
+          merged.clear();
+        }
+        merged.put(base, scope);
+      }
+      return scope;
+    }
+
+    boolean isEmpty() {
+      return values.isEmpty();
+    }
+
+    boolean contains(String key) {
+      return values.containsKey(key);
+    }
+
+    String get(String key) {
+      return values.get(key);
+    }
+  }
+}
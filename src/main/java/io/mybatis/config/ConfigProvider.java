@@ -0,0 +1,55 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import java.lang.annotation.*;
+
+/**
+ * 声明配置实现的元数据，注册的配置类有该注解时延迟创建，只有读取的配置到达该实现时才会创建和初始化
+ * <p>
+ * 使用注解后以注解中的 {@link #order()} 排序，不会调用 {@link Config#getOrder()}。子类继承父类的注解，
+ * 子类重写了 {@link Config#getOrder()} 又没有声明自己的注解时，按原来的方式立即创建
+ *
+ * @author liuzh
+ */
+@Documented
+@Inherited
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ConfigProvider {
+
+  /**
+   * 优先级，和 {@link Config#getOrder()} 相同
+   */
+  int order();
+
+  /**
+   * 提供的配置键前缀，为空时提供所有配置，不匹配的配置不会创建当前实现
+   */
+  String[] prefixes() default {};
+
+  /**
+   * 指定前缀的系统变量，值为逗号分隔的前缀，设置后代替 {@link #prefixes()}，用于部署时才能确定配置范围的实现，如远程配置
+   */
+  String prefixesKey() default "";
+
+  /**
+   * 需要存在的类，任何一个不存在时不加载当前实现，如 Spring 相关的实现
+   */
+  String[] requires() default {};
+
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Predicate;
+
+import static io.mybatis.config.ConfigHelper.log;
+
+/**
+ * 定时刷新 {@link RefreshableConfig}，所有注册表中的配置实现共用一个计时线程，到期后在工作线程中刷新，
+ * 一个配置实现刷新时阻塞不会推迟其他配置实现的刷新。
+ * <p>
+ * 任务只弱引用配置实现和注册表，注册表释放或者被回收后任务随之移除，后台线程本身不设置上下文类加载器，
+ * 避免持有应用的类加载器
+ *
+ * @author liuzh
+ */
+final class ConfigRefresher {
+  /**
+   * 刷新间隔随机增减的比例
+   */
+  private static final    double                   JITTER = 0.1;
+  private static final    List<Task>               TASKS  = new ArrayList<>();
+  private static volatile ScheduledExecutorService timer;
+  private static volatile ExecutorService          workers;
+
+  private ConfigRefresher() {
+  }
+
+  private static ThreadFactory factory(String name) {
+    return r -> {
+      Thread thread = new Thread(r, name);
+      thread.setDaemon(true);
+      thread.setContextClassLoader(null);
+      return thread;
+    };
+  }
+
+  private static ScheduledExecutorService timer() {
+    ScheduledExecutorService timer = ConfigRefresher.timer;
+    if (timer == null) {
+      synchronized (ConfigRefresher.class) {
+        timer = ConfigRefresher.timer;
+        if (timer == null) {
+          timer = Executors.newSingleThreadScheduledExecutor(factory("mybatis-config-refresh"));
+          ConfigRefresher.timer = timer;
+        }
+      }
+    }
+    return timer;
+  }
+
+  /**
+   * 执行刷新的线程，同一个配置实现同时只有一次刷新，线程数不超过注册的配置实现数量，空闲一段时间后线程退出
+   */
+  private static ExecutorService workers() {
+    ExecutorService workers = ConfigRefresher.workers;
+    if (workers == null) {
+      synchronized (ConfigRefresher.class) {
+        workers = ConfigRefresher.workers;
+        if (workers == null) {
+          workers = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS,
+              new SynchronousQueue<>(), factory("mybatis-config-refresh-worker"));
+          ConfigRefresher.workers = workers;
+        }
+      }
+    }
+    return workers;
+  }
+
+  /**
+   * 注册配置实现，刷新间隔小于等于 0 时不注册
+   *
+   * @param config   配置实现
+   * @param registry 配置实现所在的注册表，配置变化时产生新的配置代
+   */
+  static void register(RefreshableConfig config, ConfigRegistry registry) {
+    long interval = config.getRefreshInterval();
+    if (interval <= 0) {
+      return;
+    }
+    Task task = new Task(config, registry, interval);
+    synchronized (TASKS) {
+      for (Iterator<Task> iterator = TASKS.iterator(); iterator.hasNext(); ) {
+        Task existing = iterator.next();
+        RefreshableConfig other = existing.config.get();
+        if (other == config) {
+          return;
+        }
+        //顺便移除已经回收的任务
+        if (other == null || existing.registry.get() == null) {
+          iterator.remove();
+        }
+      }
+      TASKS.add(task);
+    }
+    task.schedule(Math.max(config.getInitialDelay(), 0));
+  }
+
+  /**
+   * 停止刷新配置实现
+   *
+   * @param config 配置实现
+   */
+  static void cancel(Config config) {
+    remove(task -> task.config.get() == config);
+  }
+
+  /**
+   * 停止刷新注册表中的所有配置实现，释放注册表时调用
+   *
+   * @param registry 注册表
+   */
+  static void cancel(ConfigRegistry registry) {
+    remove(task -> task.registry.get() == registry);
+  }
+
+  /**
+   * 是否正在刷新注册表中的配置实现
+   *
+   * @param registry 注册表
+   */
+  static boolean isRegistered(ConfigRegistry registry) {
+    synchronized (TASKS) {
+      for (Task task : TASKS) {
+        if (task.registry.get() == registry) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 移除并停止满足条件的任务
+   *
+   * @param predicate 条件
+   */
+  private static void remove(Predicate<Task> predicate) {
+    List<Task> cancelled = new ArrayList<>();
+    synchronized (TASKS) {
+      for (Iterator<Task> iterator = TASKS.iterator(); iterator.hasNext(); ) {
+        Task task = iterator.next();
+        if (predicate.test(task)) {
+          iterator.remove();
+          cancelled.add(task);
+        }
+      }
+    }
+    cancelled.forEach(Task::cancel);
+  }
+
+  /**
+   * 增加随机抖动后的间隔
+   *
+   * @param interval 间隔
+   */
+  static long jitter(long interval) {
+    double offset = (ThreadLocalRandom.current().nextDouble() * 2 - 1) * JITTER;
+    return Math.max(1, Math.round(interval * (1 + offset)));
+  }
+
+  private static final class Task implements Runnable {
+    private final    WeakReference<RefreshableConfig> config;
+    private final    WeakReference<ConfigRegistry>    registry;
+    private final    String                           name;
+    private final    long                             interval;
+    /**
+     * 上次刷新时的指纹，同一时间只有一个线程刷新，通过线程池的提交保证可见性
+     */
+    private          Object                           fingerprint;
+    private volatile boolean                          cancelled;
+    private volatile Future<?>                        future;
+
+    Task(RefreshableConfig config, ConfigRegistry registry, long interval) {
+      this.config = new WeakReference<>(config);
+      this.registry = new WeakReference<>(registry);
+      this.name = config.getClass().getName();
+      this.interval = interval;
+      //创建时已经读取了配置，来源没有变化时不需要刷新
+      this.fingerprint = config.getFingerprint();
+    }
+
+    void schedule(long delay) {
+      if (!cancelled) {
+        future = timer().schedule(this, delay, TimeUnit.MILLISECONDS);
+      }
+    }
+
+    void cancel() {
+      cancelled = true;
+      Future<?> future = this.future;
+      if (future != null) {
+        future.cancel(false);
+      }
+    }
+
+    /**
+     * 在计时线程中执行，只把刷新交给工作线程
+     */
+    @Override
+    public void run() {
+      if (cancelled) {
+        return;
+      }
+      if (config.get() == null || registry.get() == null) {
+        remove(task -> task == this);
+        return;
+      }
+      try {
+        future = workers().submit(this::refresh);
+      } catch (RejectedExecutionException e) {
+        schedule(jitter(interval));
+      }
+    }
+
+    private void refresh() {
+      RefreshableConfig config = this.config.get();
+      ConfigRegistry registry = this.registry.get();
+      if (cancelled || config == null || registry == null) {
+        return;
+      }
+      //刷新时读取的其他配置也要来自同一个注册表
+      Thread thread = Thread.currentThread();
+      ClassLoader original = thread.getContextClassLoader();
+      thread.setContextClassLoader(registry.getClassLoader());
+      try {
+        Object current = config.getFingerprint();
+        if (current == null || !current.equals(fingerprint)) {
+          boolean changed = config.refresh();
+          if (changed && !cancelled) {
+            registry.refreshed();
+          }
+          //刷新或者产生新的配置代失败时会抛出异常，不记录指纹，下次继续刷新
+          fingerprint = current;
+        }
+      } catch (RuntimeException e) {
+        log.warn("刷新配置类 " + name + " 失败: " + e.getMessage());
+      } finally {
+        thread.setContextClassLoader(original);
+        schedule(jitter(interval));
+      }
+    }
+  }
+}
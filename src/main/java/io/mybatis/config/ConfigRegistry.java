@@ -0,0 +1,449 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import javax.management.ObjectName;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static io.mybatis.config.ConfigHelper.log;
+
+/**
+ * 类加载器对应的配置注册表，每个类加载器有独立的配置实现和缓存
+ * <p>
+ * 应用服务器或插件环境中不同应用之间互不影响。注册表本身只弱引用类加载器，但是由该类加载器加载的配置实现会强引用类加载器，
+ * 应用卸载时需要通过 {@link ConfigHelper#release(ClassLoader)} 释放
+ *
+ * @author liuzh
+ */
+final class ConfigRegistry {
+  private static final String SERVICES = "META-INF/services/";
+  /**
+   * Java 9 及以上的 ServiceLoader#stream() 和 ServiceLoader.Provider#type()，Java 8 中为 null
+   */
+  private static final Method STREAM;
+  private static final Method TYPE;
+
+  static {
+    Method stream;
+    Method type;
+    try {
+      stream = ServiceLoader.class.getMethod("stream");
+      type = Class.forName("java.util.ServiceLoader$Provider").getMethod("type");
+    } catch (ReflectiveOperationException e) {
+      stream = null;
+      type = null;
+    }
+    STREAM = stream;
+    TYPE = type;
+  }
+
+  private final    Reference<ClassLoader> classLoader;
+  /**
+   * 配置绑定，记录绑定过的对象，reload 后自动重新绑定
+   */
+  private final    ConfigBinder           binder  = new ConfigBinder();
+  /**
+   * 配置变化发布者
+   */
+  private final    ConfigChanges          changes = new ConfigChanges(this::getClassLoader);
+  /**
+   * 当前配置代，包含所有配置实现
+   */
+  private volatile ConfigGeneration       generation;
+  /**
+   * 注册的配置管理 MBean 名称
+   */
+  private          ObjectName             manager;
+  /**
+   * 是否已经释放
+   */
+  private volatile boolean                closed;
+
+  ConfigRegistry(ClassLoader classLoader) {
+    this.classLoader = new WeakReference<>(classLoader);
+  }
+
+  ClassLoader getClassLoader() {
+    return classLoader.get();
+  }
+
+  boolean isClosed() {
+    return closed;
+  }
+
+  ConfigBinder getBinder() {
+    return binder;
+  }
+
+  ConfigChanges getChanges() {
+    return changes;
+  }
+
+  /**
+   * 获取当前配置代，第一次调用时加载所有配置实现
+   */
+  ConfigGeneration generation() {
+    ConfigGeneration generation = this.generation;
+    if (generation == null) {
+      synchronized (this) {
+        generation = this.generation;
+        if (generation == null) {
+          generation = create();
+          this.generation = generation;
+        }
+      }
+    }
+    return generation;
+  }
+
+  /**
+   * 创建新的配置代，启用 {@link ConfigDecoder#EAGER_KEY} 时预先解码所有需要解码的配置值
+   */
+  private ConfigGeneration create() {
+    ConfigGeneration generation = new ConfigGeneration(load(), loadDecoders(), loadTenants());
+    for (Config config : generation.getChain()) {
+      if (!(config instanceof LazyConfig)) {
+        watch(config);
+      }
+    }
+    if (Boolean.getBoolean(ConfigDecoder.EAGER_KEY)) {
+      generation.preload();
+    }
+    return generation;
+  }
+
+  /**
+   * 定时刷新 {@link RefreshableConfig}，延迟创建的配置实现在创建后注册
+   *
+   * @param config 配置实现
+   */
+  private void watch(Config config) {
+    if (config instanceof RefreshableConfig) {
+      ConfigRefresher.register((RefreshableConfig) config, this);
+    }
+  }
+
+  /**
+   * 加载解码器
+   */
+  private List<ConfigDecoder> loadDecoders() {
+    List<ConfigDecoder> decoders = new ArrayList<>();
+    for (ConfigDecoder decoder : ServiceLoader.load(ConfigDecoder.class, classLoader.get())) {
+      decoders.add(decoder);
+    }
+    decoders.sort(Comparator.comparing(ConfigDecoder::getOrder).reversed());
+    return decoders;
+  }
+
+  /**
+   * 加载租户配置，每一代 reload 都使用新的缓存
+   */
+  private TenantCache loadTenants() {
+    List<TenantConfig> tenants = new ArrayList<>();
+    for (TenantConfig tenant : ServiceLoader.load(TenantConfig.class, classLoader.get())) {
+      tenants.add(tenant);
+    }
+    return new TenantCache(tenants, Integer.getInteger(TenantConfig.CACHE_SIZE_KEY, 1024));
+  }
+
+  /**
+   * 加载配置实现，有 {@link ConfigProvider} 注解的配置类延迟创建，其他配置类立即创建
+   */
+  private List<Config> load() {
+    ClassLoader loader = classLoader.get();
+    if (loader == null) {
+      loader = ConfigRegistry.class.getClassLoader();
+    }
+    List<Config> configs = new ArrayList<>();
+    for (Class<? extends Config> type : serviceTypes(loader)) {
+      ConfigProvider provider = provider(type);
+      if (provider == null) {
+        configs.add(newInstance(type));
+      } else if (isPresent(provider.requires(), loader)) {
+        configs.add(new LazyConfig(type, provider, this::watch));
+      } else {
+        log.debug("缺少依赖，跳过配置类: " + type.getName());
+      }
+    }
+    configs.sort(Comparator.comparing(Config::getOrder).reversed());
+    configs.forEach(c -> log.debug("加载配置类: " + (c instanceof LazyConfig ? ((LazyConfig) c).getType() : c.getClass()).getName()));
+    return configs;
+  }
+
+  /**
+   * 配置类的元数据，继承的注解只在子类没有重写 {@link Config#getOrder()} 时使用，否则注解中的优先级和实际的不一致
+   *
+   * @param type 配置类
+   */
+  private static ConfigProvider provider(Class<? extends Config> type) {
+    ConfigProvider provider = type.getAnnotation(ConfigProvider.class);
+    if (provider == null || type.getDeclaredAnnotation(ConfigProvider.class) != null) {
+      return provider;
+    }
+    Class<?> annotated = type.getSuperclass();
+    while (annotated.getDeclaredAnnotation(ConfigProvider.class) == null) {
+      annotated = annotated.getSuperclass();
+    }
+    try {
+      Class<?> declaring = type.getMethod("getOrder").getDeclaringClass();
+      return declaring != annotated && annotated.isAssignableFrom(declaring) ? null : provider;
+    } catch (NoSuchMethodException e) {
+      return provider;
+    }
+  }
+
+  /**
+   * 通过 {@link ServiceLoader} 加载所有注册的配置类，只加载类，不创建实例
+   * <p>
+   * Java 9 及以上通过 ServiceLoader#stream() 延迟遍历，Java 8 的 ServiceLoader 只能在遍历时创建实例，
+   * 这时按照 ServiceLoader 的格式读取 META-INF/services 中的类名
+   *
+   * @param loader 类加载器
+   */
+  @SuppressWarnings("unchecked")
+  private static List<Class<? extends Config>> serviceTypes(ClassLoader loader) {
+    List<Class<? extends Config>> types = new ArrayList<>();
+    if (STREAM == null) {
+      for (String name : serviceNames(loader)) {
+        types.add(loadClass(name, loader));
+      }
+      return types;
+    }
+    try {
+      Iterator<?> providers = ((Stream<?>) STREAM.invoke(ServiceLoader.load(Config.class, loader))).iterator();
+      while (providers.hasNext()) {
+        types.add((Class<? extends Config>) TYPE.invoke(providers.next()));
+      }
+    } catch (InvocationTargetException e) {
+      throw new IllegalStateException("加载配置类失败: " + e.getCause().getMessage(), e.getCause());
+    } catch (ServiceConfigurationError e) {
+      throw new IllegalStateException("加载配置类失败: " + e.getMessage(), e);
+    } catch (IllegalAccessException e) {
+      throw new IllegalStateException(e);
+    }
+    return types;
+  }
+
+  /**
+   * 读取所有 META-INF/services 中注册的配置类名，和 {@link ServiceLoader} 的格式相同，只在 Java 8 中使用
+   */
+  private static Set<String> serviceNames(ClassLoader loader) {
+    Set<String> names = new LinkedHashSet<>();
+    try {
+      Enumeration<URL> urls = loader.getResources(SERVICES + Config.class.getName());
+      while (urls.hasMoreElements()) {
+        URL url = urls.nextElement();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(url.openStream(), StandardCharsets.UTF_8))) {
+          String line;
+          while ((line = reader.readLine()) != null) {
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+              line = line.substring(0, comment);
+            }
+            line = line.trim();
+            if (!line.isEmpty()) {
+              names.add(line);
+            }
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("读取配置类注册文件失败", e);
+    }
+    return names;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Class<? extends Config> loadClass(String name, ClassLoader loader) {
+    Class<?> type;
+    try {
+      type = Class.forName(name, false, loader);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException("配置类 " + name + " 不存在", e);
+    }
+    if (!Config.class.isAssignableFrom(type)) {
+      throw new IllegalStateException("配置类 " + name + " 没有实现 " + Config.class.getName());
+    }
+    return (Class<? extends Config>) type;
+  }
+
+  private static boolean isPresent(String[] classes, ClassLoader loader) {
+    for (String name : classes) {
+      if (loader.getResource(name.replace('.', '/') + ".class") == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 创建配置实现
+   *
+   * @param type 配置类
+   */
+  static Config newInstance(Class<? extends Config> type) {
+    try {
+      return type.getDeclaredConstructor().newInstance();
+    } catch (InvocationTargetException e) {
+      throw new IllegalStateException("创建配置类 " + type.getName() + " 失败", e.getTargetException());
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("创建配置类 " + type.getName() + " 失败", e);
+    }
+  }
+
+  /**
+   * 重新加载，新的配置代加载完成后再替换，加载期间读取的仍然是旧的配置
+   */
+  void reload() {
+    ConfigGeneration generation = create();
+    ConfigGeneration previous;
+    synchronized (this) {
+      previous = this.generation;
+      this.generation = generation;
+    }
+    if (previous != null) {
+      previous.close();
+      changes.publish(generation);
+    }
+    binder.rebind(generation::getStr);
+  }
+
+  /**
+   * 只重新加载指定类型的配置实现，其他配置实现和缓存保持不变
+   * <p>
+   * 匹配的配置实现都会创建新的实例，实现了 {@link Reloadable} 的新实例直接读取来源，不使用配置快照。新实例只属于新的配置代，
+   * 固定在旧配置代上的 {@link ConfigView} 仍然读取旧的实例。新的配置代生效后关闭旧的实例，期间发生了完整的 reload 时关闭新的实例。
+   * 还没有创建的延迟配置不需要处理
+   *
+   * @param type 配置类型
+   * @return 是否存在该类型的配置实现
+   */
+  boolean reload(Class<? extends Config> type) {
+    ConfigGeneration previous = generation();
+    Config[] chain = previous.getChain().clone();
+    List<Config> replaced = new ArrayList<>();
+    List<Config> fresh = new ArrayList<>();
+    boolean found = false;
+    for (int i = 0; i < chain.length; i++) {
+      Config config = chain[i];
+      if (config instanceof LazyConfig) {
+        LazyConfig lazy = (LazyConfig) config;
+        if (!type.isAssignableFrom(lazy.getType())) {
+          continue;
+        }
+        found = true;
+        if (!lazy.isCreated()) {
+          continue;
+        }
+        config = lazy.get();
+      } else if (!type.isInstance(config)) {
+        continue;
+      }
+      found = true;
+      Config created = newInstance(config.getClass());
+      if (created instanceof Reloadable) {
+        ((Reloadable) created).reload();
+      }
+      replaced.add(chain[i]);
+      chain[i] = created;
+      fresh.add(created);
+    }
+    if (!found) {
+      return false;
+    }
+    ConfigGeneration generation = new ConfigGeneration(previous, chain);
+    synchronized (this) {
+      if (this.generation != previous) {
+        //期间发生了完整的 reload，新的配置代已经包含最新的配置
+        generation = null;
+      } else {
+        this.generation = generation;
+      }
+    }
+    if (generation == null) {
+      fresh.forEach(ConfigGeneration::close);
+      return true;
+    }
+    fresh.forEach(this::watch);
+    replaced.forEach(ConfigGeneration::close);
+    changes.publish(generation);
+    binder.rebind(generation::getStr);
+    return true;
+  }
+
+  /**
+   * 配置实现在后台刷新后产生新的配置代，所有配置实现和模板、解码缓存保持不变
+   */
+  void refreshed() {
+    ConfigGeneration previous = this.generation;
+    if (previous == null) {
+      return;
+    }
+    ConfigGeneration generation = new ConfigGeneration(previous, previous.getChain());
+    synchronized (this) {
+      if (this.generation != previous) {
+        //期间发生了 reload，新的配置代已经包含最新的配置
+        return;
+      }
+      this.generation = generation;
+    }
+    changes.publish(generation);
+    binder.rebind(generation::getStr);
+  }
+
+  /**
+   * 注册配置管理 MBean，已经注册时直接返回
+   *
+   * @return 注册的名称
+   */
+  synchronized ObjectName registerManager() {
+    manager = ConfigManager.register(this, manager);
+    return manager;
+  }
+
+  /**
+   * 释放注册表，停止定时刷新、关闭配置实现、注销配置管理 MBean 并结束所有变化订阅
+   */
+  void close() {
+    closed = true;
+    ConfigRefresher.cancel(this);
+    ConfigGeneration generation;
+    ObjectName manager;
+    synchronized (this) {
+      generation = this.generation;
+      manager = this.manager;
+      this.manager = null;
+    }
+    if (generation != null) {
+      generation.close();
+    }
+    if (manager != null) {
+      ConfigManager.unregister(manager);
+    }
+    changes.complete();
+  }
+}
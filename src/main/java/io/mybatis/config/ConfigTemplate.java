@@ -0,0 +1,145 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 编译后的占位符模板，支持 ${key} 和 ${key:default} 形式，默认值中可以继续嵌套占位符
+ * <p>
+ * 配置值只解析一次，之后只按片段拼接
+ *
+ * @author liuzh
+ */
+final class ConfigTemplate {
+  public static final String PREFIX    = "${";
+  public static final String SUFFIX    = "}";
+  public static final char   SEPARATOR = ':';
+
+  /**
+   * 片段，字符串常量或者 {@link Placeholder}
+   */
+  private final Object[] parts;
+
+  private ConfigTemplate(Object[] parts) {
+    this.parts = parts;
+  }
+
+  /**
+   * 是否包含占位符
+   *
+   * @param value 配置值
+   */
+  static boolean hasPlaceholder(String value) {
+    return value != null && value.contains(PREFIX);
+  }
+
+  /**
+   * 编译模板
+   *
+   * @param value 配置值
+   */
+  static ConfigTemplate compile(String value) {
+    List<Object> parts = new ArrayList<>();
+    int pos = 0;
+    int start = value.indexOf(PREFIX);
+    while (start >= 0) {
+      int end = findEnd(value, start + PREFIX.length());
+      if (end < 0) {
+        break;
+      }
+      if (start > pos) {
+        parts.add(value.substring(pos, start));
+      }
+      String content = value.substring(start + PREFIX.length(), end);
+      int separator = content.indexOf(SEPARATOR);
+      if (separator >= 0) {
+        parts.add(new Placeholder(content.substring(0, separator).trim(),
+            compile(content.substring(separator + 1)), value.substring(start, end + SUFFIX.length())));
+      } else {
+        parts.add(new Placeholder(content.trim(), null, value.substring(start, end + SUFFIX.length())));
+      }
+      pos = end + SUFFIX.length();
+      start = value.indexOf(PREFIX, pos);
+    }
+    if (pos < value.length()) {
+      parts.add(value.substring(pos));
+    }
+    return new ConfigTemplate(parts.toArray());
+  }
+
+  /**
+   * 查找匹配的结束符，支持嵌套
+   */
+  private static int findEnd(String value, int from) {
+    int depth = 0;
+    for (int i = from; i < value.length(); i++) {
+      if (value.startsWith(PREFIX, i)) {
+        depth++;
+        i += PREFIX.length() - 1;
+      } else if (value.startsWith(SUFFIX, i)) {
+        if (depth == 0) {
+          return i;
+        }
+        depth--;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * 渲染模板，无法解析且没有默认值的占位符原样保留
+   *
+   * @param resolver 占位符解析
+   */
+  String render(Function<String, String> resolver) {
+    if (parts.length == 1 && parts[0] instanceof String) {
+      return (String) parts[0];
+    }
+    StringBuilder sb = new StringBuilder();
+    for (Object part : parts) {
+      if (part instanceof Placeholder) {
+        Placeholder placeholder = (Placeholder) part;
+        String value = resolver.apply(placeholder.key);
+        if (value == null && placeholder.defaultValue != null) {
+          value = placeholder.defaultValue.render(resolver);
+        }
+        sb.append(value != null ? value : placeholder.text);
+      } else {
+        sb.append((String) part);
+      }
+    }
+    return sb.toString();
+  }
+
+  /**
+   * 占位符
+   */
+  private static class Placeholder {
+    private final String         key;
+    private final ConfigTemplate defaultValue;
+    private final String         text;
+
+    Placeholder(String key, ConfigTemplate defaultValue, String text) {
+      this.key = key;
+      this.defaultValue = defaultValue;
+      this.text = text;
+    }
+  }
+}
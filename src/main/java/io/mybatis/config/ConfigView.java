@@ -0,0 +1,129 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+/**
+ * 固定在某一代配置上的只读视图，通过 {@link ConfigHelper#view()} 获取
+ * <p>
+ * 视图只保存配置代的引用，获取视图不需要复制配置。读取多个相关配置时使用同一个视图，
+ * 期间发生 {@link ConfigHelper#reload()} 或 {@link ConfigHelper#reload(Class)} 也不会读到一部分旧配置、一部分新配置，
+ * 这两种方式都会创建新的配置实现，旧的配置实现不会被修改。
+ * <p>
+ * 视图不会复制配置实现自己的状态，以下配置在视图中仍然读取到当前值：
+ * <ul>
+ *   <li>实时读取的配置实现，如系统变量、环境变量、Spring 环境</li>
+ *   <li>后台刷新的 {@link RefreshableConfig}，如远程配置，刷新时替换的是配置实现中的配置</li>
+ *   <li>共享配置等读取时检查外部变化的配置实现</li>
+ * </ul>
+ *
+ * @author liuzh
+ */
+public final class ConfigView {
+  private final ConfigGeneration      generation;
+  private final ConfigOverrides.Scope scope;
+  private final String                tenant;
+
+  ConfigView(ConfigGeneration generation, ConfigOverrides.Scope scope, String tenant) {
+    this.generation = generation;
+    this.scope = scope;
+    this.tenant = tenant;
+  }
+
+  /**
+   * 视图对应的配置代号，参考 {@link ConfigHelper#getGeneration()}
+   */
+  public long getGeneration() {
+    return generation.getId();
+  }
+
+  /**
+   * 视图对应的租户，不是租户视图时为 null
+   */
+  public String getTenant() {
+    return tenant;
+  }
+
+  /**
+   * 获取配置信息，创建视图时所在的临时配置作用域仍然有效，租户视图优先使用租户的覆盖配置
+   *
+   * @param key 配置键
+   */
+  public String getStr(String key) {
+    if (tenant != null) {
+      return generation.getStr(tenant, key, scope);
+    }
+    return scope != null ? generation.getStr(key, scope) : generation.getStr(key);
+  }
+
+  /**
+   * 获取配置信息
+   *
+   * @param key          配置键
+   * @param defaultValue 默认值
+   * @return 配置值
+   */
+  public String getStr(String key, String defaultValue) {
+    String val = getStr(key);
+    return val != null ? val : defaultValue;
+  }
+
+  /**
+   * 获取配置信息
+   *
+   * @param key 配置键
+   * @return 配置值
+   */
+  public Integer getInt(String key) {
+    String val = getStr(key);
+    return val == null ? null : Integer.parseInt(val);
+  }
+
+  /**
+   * 获取配置信息
+   *
+   * @param key          配置键
+   * @param defaultValue 默认值
+   * @return 配置值
+   */
+  public Integer getInt(String key, Integer defaultValue) {
+    Integer val = getInt(key);
+    return val != null ? val : defaultValue;
+  }
+
+  /**
+   * 获取配置信息
+   *
+   * @param key 配置键
+   * @return 配置值
+   */
+  public boolean getBoolean(String key) {
+    return Boolean.valueOf(getStr(key));
+  }
+
+  /**
+   * 获取配置信息
+   *
+   * @param key          配置键
+   * @param defaultValue 默认值
+   * @return 配置值
+   */
+  public boolean getBoolean(String key, boolean defaultValue) {
+    String val = getStr(key);
+    return val != null ? Boolean.valueOf(val) : defaultValue;
+  }
+
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+/**
+ * 读取到的值和当前线程所在的上下文有关的配置实现，如同时存在多个 Spring 上下文时的 {@link io.mybatis.config.spring.SpringConfig}
+ * <p>
+ * 其他配置中的占位符可能引用这类配置，{@link #isContextual()} 返回 true 时，占位符和配置目录的解析结果不会在同一代中缓存，
+ * 每次读取时按当前线程所在的上下文重新解析
+ *
+ * @author liuzh
+ */
+public interface ContextualConfig {
+
+  /**
+   * 当前读取到的值是否和线程所在的上下文有关，读取配置时都会调用，应当只做简单的判断
+   */
+  boolean isContextual();
+
+}
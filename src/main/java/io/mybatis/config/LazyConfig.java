@@ -0,0 +1,136 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 延迟创建的配置实现，根据 {@link ConfigProvider} 中的元数据判断是否需要创建
+ *
+ * @author liuzh
+ */
+final class LazyConfig implements Config, AutoCloseable {
+  private final    Class<? extends Config> type;
+  private final    int                     order;
+  private final    String[]                prefixes;
+  /**
+   * 创建配置实现后调用
+   */
+  private final    Consumer<Config>        created;
+  private volatile Config                  delegate;
+
+  LazyConfig(Class<? extends Config> type, ConfigProvider provider, Consumer<Config> created) {
+    this.type = type;
+    this.order = provider.order();
+    this.prefixes = prefixes(provider);
+    this.created = created;
+  }
+
+  /**
+   * 配置键前缀，系统变量 {@link ConfigProvider#prefixesKey()} 优先
+   *
+   * @param provider 元数据
+   */
+  private static String[] prefixes(ConfigProvider provider) {
+    String key = provider.prefixesKey();
+    String value = key.isEmpty() ? null : System.getProperty(key);
+    if (value == null || value.trim().isEmpty()) {
+      return provider.prefixes();
+    }
+    List<String> prefixes = new ArrayList<>();
+    for (String prefix : value.split(",")) {
+      if (!prefix.trim().isEmpty()) {
+        prefixes.add(prefix.trim());
+      }
+    }
+    return prefixes.toArray(new String[0]);
+  }
+
+  /**
+   * 获取实际的配置实现，延迟创建的会在这时创建
+   *
+   * @param config 配置实现
+   */
+  static Config unwrap(Config config) {
+    return config instanceof LazyConfig ? ((LazyConfig) config).get() : config;
+  }
+
+  Class<? extends Config> getType() {
+    return type;
+  }
+
+  boolean isCreated() {
+    return delegate != null;
+  }
+
+  /**
+   * 是否提供该配置
+   *
+   * @param key 配置键
+   */
+  boolean matches(String key) {
+    if (prefixes.length == 0) {
+      return true;
+    }
+    for (String prefix : prefixes) {
+      if (key.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  Config get() {
+    Config delegate = this.delegate;
+    if (delegate == null) {
+      boolean create = false;
+      synchronized (this) {
+        delegate = this.delegate;
+        if (delegate == null) {
+          delegate = ConfigRegistry.newInstance(type);
+          ConfigHelper.log.debug("创建配置类: " + type.getName());
+          this.delegate = delegate;
+          create = true;
+        }
+      }
+      if (create && created != null) {
+        created.accept(delegate);
+      }
+    }
+    return delegate;
+  }
+
+  @Override
+  public String getStr(String key) {
+    return matches(key) ? get().getStr(key) : null;
+  }
+
+  @Override
+  public int getOrder() {
+    return order;
+  }
+
+  @Override
+  public void close() {
+    Config delegate = this.delegate;
+    if (delegate != null) {
+      ConfigGeneration.close(delegate);
+    }
+  }
+}
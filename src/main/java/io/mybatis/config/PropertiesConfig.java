@@ -0,0 +1,70 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * 基于属性文件的配置，配置内容可以枚举，并且记录了配置来源
+ *
+ * @author liuzh
+ */
+public interface PropertiesConfig extends Config {
+
+  /**
+   * 获取全部配置，未初始化时会先初始化
+   *
+   * @return 配置
+   */
+  Properties getProperties();
+
+  /**
+   * 获取配置来源文件，类路径中 jar 包内的配置返回对应的 jar 文件
+   *
+   * @return 配置来源
+   */
+  List<File> getSources();
+
+  /**
+   * 获取查找配置时检查过、但是当时不存在的文件，这些文件出现后配置结果可能不同，配置快照随之失效
+   *
+   * @return 不存在的候选文件
+   */
+  default List<File> getCandidates() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * 获取影响配置结果的输入条件，例如用户指定的文件名或者版本号，输入条件变化时配置快照失效
+   *
+   * @return 输入条件
+   */
+  String getSourceInput();
+
+  /**
+   * 获取选择的版本配置文件，没有版本时返回 null
+   *
+   * @return 版本配置文件
+   */
+  default String getVersion() {
+    return null;
+  }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+/**
+ * 需要定时刷新的配置实现，所有实现共用一个后台线程刷新，不需要自己创建线程
+ * <p>
+ * 每次刷新的间隔随机增减 10%，避免大量实例同时访问配置来源。刷新前先比较 {@link #getFingerprint()}，没有变化时跳过，
+ * {@link #refresh()} 返回 true 时产生新的配置代并通知配置变化的订阅者
+ *
+ * @author liuzh
+ */
+public interface RefreshableConfig extends Config {
+
+  /**
+   * 刷新间隔（毫秒），小于等于 0 时不刷新，创建配置实现后读取一次
+   */
+  long getRefreshInterval();
+
+  /**
+   * 第一次刷新的延迟（毫秒），默认和刷新间隔相同
+   */
+  default long getInitialDelay() {
+    return getRefreshInterval();
+  }
+
+  /**
+   * 配置来源的指纹，如文件的修改时间和大小，和上次成功刷新时相同时跳过刷新，返回 null 时每次都刷新
+   */
+  default Object getFingerprint() {
+    return null;
+  }
+
+  /**
+   * 重新读取配置，在后台线程中调用，读取完成后一次性替换，读取期间仍然使用旧的配置
+   * <p>
+   * 读取失败时需要抛出异常，此时不会记录本次的指纹，下次继续刷新；返回 false 表示配置没有变化
+   *
+   * @return 配置是否变化
+   */
+  boolean refresh();
+
+}
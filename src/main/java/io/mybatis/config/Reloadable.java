@@ -0,0 +1,33 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+/**
+ * 可以单独重新加载的配置实现，{@link ConfigHelper#reload(Class)} 时只重新创建该实现，不会重新创建所有配置实现
+ * <p>
+ * 重新加载时在新创建的实例上调用 {@link #reload()}，旧的实例仍然属于旧的配置代，不会被修改
+ *
+ * @author liuzh
+ */
+public interface Reloadable {
+
+  /**
+   * 直接从来源重新读取配置，不使用配置快照等缓存
+   */
+  void reload();
+
+}
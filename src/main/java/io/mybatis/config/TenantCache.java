@@ -0,0 +1,273 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.mybatis.config;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 租户覆盖配置的缓存，命中时只需要一次 {@link ConcurrentHashMap} 查找
+ * <p>
+ * 通过 Count-Min Sketch 记录所有租户最近的访问频率，缓存满了以后从已缓存的租户中随机抽取几个，
+ * 新租户的访问频率高于其中最低的一个时才替换，偶尔访问一次的租户不会挤掉经常访问的租户。
+ * 访问次数达到容量的 10 倍时所有频率减半，已经不再访问的租户会逐渐被淘汰
+ * <p>
+ * 没有被接纳的租户放在一个较小的窗口中，窗口按最近访问淘汰，刚开始频繁访问的租户在被接纳前不会每次都重新加载。
+ * 访问频率和窗口只在锁内修改，命中时锁被占用就不记录这次访问，不会阻塞读取
+ *
+ * @author liuzh
+ */
+final class TenantCache {
+  /**
+   * 没有覆盖配置的租户
+   */
+  static final         ConfigOverrides.Scope EMPTY  = new ConfigOverrides.Scope(Collections.emptyMap());
+  /**
+   * 淘汰时抽取的租户数量
+   */
+  private static final int                   SAMPLE = 8;
+
+  private final TenantConfig[]                               providers;
+  private final int                                          maximumSize;
+  private final ConcurrentMap<String, ConfigOverrides.Scope> entries;
+  /**
+   * 已缓存的租户，用于随机抽取淘汰对象
+   */
+  private final String[]                                     slots;
+  private final Map<String, Integer>                         positions;
+  /**
+   * 没有被接纳的租户，容量为缓存的 1/10，至少 1 个
+   */
+  private final Map<String, ConfigOverrides.Scope>           window;
+  private final FrequencySketch                              sketch;
+  /**
+   * 保护 {@link #slots}、{@link #positions}、{@link #window} 和 {@link #sketch}
+   */
+  private final ReentrantLock                                lock;
+
+  TenantCache(List<TenantConfig> providers, int maximumSize) {
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("租户缓存数量必须大于 0: " + maximumSize);
+    }
+    List<TenantConfig> sorted = new ArrayList<>(providers);
+    sorted.sort(Comparator.comparing(TenantConfig::getOrder));
+    this.providers = sorted.toArray(new TenantConfig[0]);
+    this.maximumSize = maximumSize;
+    this.entries = new ConcurrentHashMap<>();
+    this.slots = new String[maximumSize];
+    this.positions = new HashMap<>();
+    int windowSize = Math.max(1, maximumSize / 10);
+    this.window = new LinkedHashMap<String, ConfigOverrides.Scope>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, ConfigOverrides.Scope> eldest) {
+        return size() > windowSize;
+      }
+    };
+    this.sketch = new FrequencySketch(maximumSize);
+    this.lock = new ReentrantLock();
+  }
+
+  /**
+   * 获取租户的覆盖配置，没有缓存时加载
+   *
+   * @param tenant 租户
+   */
+  ConfigOverrides.Scope get(String tenant) {
+    if (providers.length == 0) {
+      return EMPTY;
+    }
+    ConfigOverrides.Scope scope = entries.get(tenant);
+    if (scope != null) {
+      if (lock.tryLock()) {
+        try {
+          sketch.increment(tenant);
+        } finally {
+          lock.unlock();
+        }
+      }
+      return scope;
+    }
+    lock.lock();
+    try {
+      sketch.increment(tenant);
+      scope = window.get(tenant);
+      if (scope != null) {
+        //窗口中的租户访问频率变高后进入缓存
+        if (admit(tenant, scope)) {
+          window.remove(tenant);
+        }
+        return scope;
+      }
+    } finally {
+      lock.unlock();
+    }
+    scope = load(tenant);
+    lock.lock();
+    try {
+      if (admit(tenant, scope)) {
+        window.remove(tenant);
+      } else {
+        window.put(tenant, scope);
+      }
+    } finally {
+      lock.unlock();
+    }
+    return scope;
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  boolean contains(String tenant) {
+    return entries.containsKey(tenant);
+  }
+
+  /**
+   * 合并所有实现中的覆盖配置，优先级高的覆盖优先级低的，同一个租户同时未命中时可能加载多次
+   */
+  private ConfigOverrides.Scope load(String tenant) {
+    Map<String, String> values = null;
+    for (TenantConfig provider : providers) {
+      Map<String, String> overrides;
+      try {
+        overrides = provider.getOverrides(tenant);
+      } catch (RuntimeException e) {
+        throw new IllegalStateException("通过 " + provider.getClass().getName() + " 加载租户 " + tenant + " 的配置失败", e);
+      }
+      if (overrides != null && !overrides.isEmpty()) {
+        if (values == null) {
+          values = new HashMap<>();
+        }
+        values.putAll(overrides);
+      }
+    }
+    return values != null ? new ConfigOverrides.Scope(values) : EMPTY;
+  }
+
+  /**
+   * 缓存满了以后，新租户的访问频率高于抽取到的最不常用的租户时才替换，需要持有锁
+   *
+   * @return 是否已经在缓存中
+   */
+  private boolean admit(String tenant, ConfigOverrides.Scope scope) {
+    if (entries.containsKey(tenant)) {
+      return true;
+    }
+    int size = positions.size();
+    int position;
+    if (size < maximumSize) {
+      position = size;
+    } else {
+      position = victim();
+      String victim = slots[position];
+      if (sketch.frequency(tenant) <= sketch.frequency(victim)) {
+        return false;
+      }
+      entries.remove(victim);
+      positions.remove(victim);
+    }
+    slots[position] = tenant;
+    positions.put(tenant, position);
+    entries.put(tenant, scope);
+    return true;
+  }
+
+  private int victim() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int victim = random.nextInt(maximumSize);
+    int frequency = sketch.frequency(slots[victim]);
+    for (int i = 1; i < SAMPLE && i < maximumSize; i++) {
+      int position = random.nextInt(maximumSize);
+      int candidate = sketch.frequency(slots[position]);
+      if (candidate < frequency) {
+        victim = position;
+        frequency = candidate;
+      }
+    }
+    return victim;
+  }
+
+  /**
+   * 4 行 4 位计数器的 Count-Min Sketch，不是线程安全的，由 {@link TenantCache} 的锁保护
+   */
+  static final class FrequencySketch {
+    private static final long[] SEEDS = {0x97cb3127L, 0xab7d1ec5L, 0xc3a5c85cL, 0x9ae16a3bL};
+    private static final int    MAX   = 15;
+
+    private final byte[] table;
+    private final int    mask;
+    private final int    sampleSize;
+    private       int    additions;
+
+    FrequencySketch(int maximumSize) {
+      int width = Integer.highestOneBit(Math.max(maximumSize, 8) * 2 - 1) * 16;
+      this.table = new byte[width];
+      this.mask = width - 1;
+      this.sampleSize = maximumSize * 10;
+    }
+
+    void increment(String key) {
+      int hash = spread(key.hashCode());
+      boolean added = false;
+      for (int i = 0; i < SEEDS.length; i++) {
+        int index = indexOf(hash, i);
+        if (table[index] < MAX) {
+          table[index]++;
+          added = true;
+        }
+      }
+      if (added && ++additions >= sampleSize) {
+        reset();
+      }
+    }
+
+    int frequency(String key) {
+      int hash = spread(key.hashCode());
+      int frequency = MAX;
+      for (int i = 0; i < SEEDS.length; i++) {
+        frequency = Math.min(frequency, table[indexOf(hash, i)]);
+      }
+      return frequency;
+    }
+
+    /**
+     * 所有计数器减半
+     */
+    private void reset() {
+      for (int i = 0; i < table.length; i++) {
+        table[i] = (byte) (table[i] >>> 1);
+      }
+      additions = additions >>> 1;
+    }
+
+    private int indexOf(int hash, int i) {
+      long h = (hash + SEEDS[i]) * SEEDS[i];
+      h += h >>> 32;
+      return (int) h & mask;
+    }
+
+    private static int spread(int hash) {
+      hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+      return (hash >>> 16) ^ hash;
+    }
+  }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.mybatis.config;
+
+import java.util.Map;
+
+/**
+ * 租户配置，提供每个租户在全局配置之上的覆盖配置，通过 SPI 注册，通过 {@link ConfigHelper#getTenantStr(String, String)} 读取
+ * <p>
+ * 租户的覆盖配置在第一次读取时加载，缓存在有容量限制的缓存中，按访问频率淘汰，租户中没有的配置使用全局配置。
+ * reload 后重新加载
+ *
+ * @author liuzh
+ */
+public interface TenantConfig {
+  /**
+   * 最多缓存的租户数量，默认 1024
+   */
+  String CACHE_SIZE_KEY = "io.mybatis.config.tenant.cache-size";
+
+  /**
+   * 加载租户的覆盖配置，值为 null 时表示该租户没有这个配置
+   *
+   * @param tenant 租户
+   * @return 覆盖配置，没有时返回 null 或空集合
+   */
+  Map<String, String> getOverrides(String tenant);
+
+  /**
+   * 执行顺序，多个实现包含同一个配置时使用优先级高的
+   */
+  default int getOrder() {
+    return 0;
+  }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.decoder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * 解码 {@code BASE64(...)} 形式的配置值
+ * <p>
+ * 默认不启用，需要在 {@code META-INF/services/io.mybatis.config.ConfigDecoder} 中注册
+ *
+ * @author liuzh
+ */
+public class Base64Decoder extends WrappedValueDecoder {
+
+  public Base64Decoder() {
+    super("BASE64");
+  }
+
+  @Override
+  protected String decodeContent(String content) {
+    return new String(Base64.getDecoder().decode(content), StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.decoder;
+
+import io.mybatis.config.ConfigDecoder;
+
+/**
+ * 解码 {@code NAME(...)} 形式的配置值
+ *
+ * @author liuzh
+ */
+public abstract class WrappedValueDecoder implements ConfigDecoder {
+  private final String prefix;
+
+  /**
+   * @param name 名称，如 BASE64
+   */
+  protected WrappedValueDecoder(String name) {
+    this.prefix = name + "(";
+  }
+
+  @Override
+  public boolean supports(String value) {
+    return value.startsWith(prefix) && value.endsWith(")");
+  }
+
+  @Override
+  public String decode(String value) {
+    return decodeContent(value.substring(prefix.length(), value.length() - 1).trim());
+  }
+
+  /**
+   * 解码括号中的内容
+   *
+   * @param content 括号中的内容
+   */
+  protected abstract String decodeContent(String content);
+
+}
@@ -17,12 +17,14 @@
 package io.mybatis.config.defaults;
 
 import io.mybatis.config.Config;
+import io.mybatis.config.ConfigProvider;
 
 /**
  * 读取环境变量值
  *
  * @author liuzh
  */
+@ConfigProvider(order = Config.ENV_ORDER)
 public class EnvConfig implements Config {
 
   @Override
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.defaults;
+
+import io.mybatis.config.Config;
+import io.mybatis.config.ConfigProvider;
+import io.mybatis.config.PropertiesConfig;
+import io.mybatis.config.util.SharedConfigRegion;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * 读取同一台机器上多个 JVM 共享的配置，通过系统变量 {@link #FILE_KEY} 指定共享文件，没有指定时不启用
+ * <p>
+ * 优先级高于用户配置和版本配置，共享文件中存在的配置不会再读取和解析配置文件，写入方更新后所有进程立即生效，
+ * 共享文件通过 {@link SharedConfigRegion#publish(File, Properties)} 或 {@link SharedConfigRegion#main(String[])} 写入。
+ * 通过 {@link #PREFIXES_KEY} 指定共享的配置前缀后，读取其他配置时不会映射共享文件
+ *
+ * @author liuzh
+ */
+@ConfigProvider(order = Config.USER_ORDER + 10, prefixesKey = SharedConfig.PREFIXES_KEY)
+public class SharedConfig implements PropertiesConfig {
+  /**
+   * 共享文件对应的系统变量
+   */
+  public static final String FILE_KEY     = "io.mybatis.config.shared.file";
+  /**
+   * 共享的配置前缀，逗号分隔，默认提供所有配置
+   */
+  public static final String PREFIXES_KEY = "io.mybatis.config.shared.prefixes";
+
+  private final SharedConfigRegion region;
+
+  public SharedConfig() {
+    String path = System.getProperty(FILE_KEY);
+    this.region = path != null && !path.isEmpty() ? new SharedConfigRegion(new File(path)) : null;
+  }
+
+  @Override
+  public int getOrder() {
+    return USER_ORDER + 10;
+  }
+
+  @Override
+  public Properties getProperties() {
+    return region != null ? region.get() : new Properties();
+  }
+
+  @Override
+  public List<File> getSources() {
+    //共享文件随时会更新，不能保存到快照中
+    return Collections.emptyList();
+  }
+
+  @Override
+  public String getSourceInput() {
+    return region != null ? region.getFile().getPath() : null;
+  }
+
+  @Override
+  public String getStr(String key) {
+    return region != null ? region.get().getProperty(key) : null;
+  }
+}
@@ -17,17 +17,81 @@
 package io.mybatis.config.defaults;
 
 import io.mybatis.config.Config;
+import io.mybatis.config.ConfigProvider;
+import io.mybatis.config.RefreshableConfig;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
 
 /**
- * 读取环境变量值
+ * 读取系统变量值
+ * <p>
+ * 默认每次都读取当前的系统变量，修改后立即生效。通过 {@link #CHECK_INTERVAL_KEY} 指定检查间隔后，读取的是系统变量的快照，
+ * 避免每次都访问同步的 {@link Properties}，后台线程每隔一段时间比较一次系统变量的数量和哈希值，发生变化时重新生成快照并产生新的配置代，
+ * 修改系统变量后需要立即生效时可以调用 {@code ConfigHelper.reload()}
  *
  * @author liuzh
  */
-public class SystemConfig implements Config {
+@ConfigProvider(order = Config.SYSTEM_ORDER)
+public class SystemConfig implements RefreshableConfig {
+  /**
+   * 检查系统变量是否变化的时间间隔（毫秒），大于 0 时使用快照，默认 0，每次读取当前的系统变量
+   */
+  public static final String CHECK_INTERVAL_KEY = "io.mybatis.config.system.check-interval";
+
+  private final    long     checkInterval = Long.getLong(CHECK_INTERVAL_KEY, 0L);
+  private volatile Snapshot snapshot;
 
   @Override
   public String getStr(String key) {
-    return System.getProperty(key);
+    if (checkInterval <= 0) {
+      return System.getProperty(key);
+    }
+    Snapshot snapshot = this.snapshot;
+    if (snapshot == null) {
+      snapshot = snapshot(System.getProperties());
+    }
+    return snapshot.values.get(key);
+  }
+
+  @Override
+  public long getRefreshInterval() {
+    return checkInterval;
+  }
+
+  /**
+   * 系统变量的标识、数量和哈希值
+   */
+  @Override
+  public Object getFingerprint() {
+    Properties properties = System.getProperties();
+    return Arrays.asList(System.identityHashCode(properties), properties.size(), properties.hashCode());
+  }
+
+  /**
+   * 重新生成快照，没有使用快照时不需要刷新
+   *
+   * @return 系统变量是否变化
+   */
+  @Override
+  public boolean refresh() {
+    if (checkInterval <= 0) {
+      return false;
+    }
+    Snapshot previous = this.snapshot;
+    Snapshot snapshot = snapshot(System.getProperties());
+    return previous == null || !previous.values.equals(snapshot.values);
+  }
+
+  private Snapshot snapshot(Properties properties) {
+    Snapshot snapshot;
+    synchronized (properties) {
+      snapshot = new Snapshot(properties);
+    }
+    this.snapshot = snapshot;
+    return snapshot;
   }
 
   @Override
@@ -35,4 +99,17 @@ public class SystemConfig implements Config {
     return SYSTEM_ORDER;
   }
 
+  /**
+   * 系统变量快照，创建后不再修改
+   */
+  protected static class Snapshot {
+    private final Map<String, String> values = new HashMap<>();
+
+    Snapshot(Properties source) {
+      for (String name : source.stringPropertyNames()) {
+        values.put(name, source.getProperty(name));
+      }
+    }
+  }
+
 }
@@ -17,22 +17,52 @@
 package io.mybatis.config.defaults;
 
 import io.mybatis.config.Config;
+import io.mybatis.config.ConfigProvider;
+import io.mybatis.config.PropertiesConfig;
+import io.mybatis.config.Reloadable;
+import io.mybatis.config.util.ConfigSnapshot;
+import io.mybatis.config.util.LayeredProperties;
+import io.mybatis.config.util.MappedProperties;
+import io.mybatis.config.util.OffHeapProperties;
 import io.mybatis.config.util.ResourceUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.*;
 
 /**
  * 用户配置
  *
  * @author liuzh
  */
-public abstract class UserConfig implements Config {
-  public static final Logger     log       = LoggerFactory.getLogger(UserConfig.class);
-  public static final String     FILE_TYPE = ".properties";
+@ConfigProvider(order = Config.USER_ORDER)
+public abstract class UserConfig implements PropertiesConfig, Reloadable {
+  public static final Logger     log                  = LoggerFactory.getLogger(UserConfig.class);
+  public static final String     FILE_TYPE            = ".properties";
+  /**
+   * 超过该大小（字节）的配置文件复制到堆外内存延迟解析，默认 -1 不启用
+   */
+  public static final String     MAPPED_THRESHOLD_KEY = "io.mybatis.config.user.mapped-threshold";
+  /**
+   * 环境名，如 prod，启用后合并 mybatis-config-prod.properties 等对应环境的配置文件
+   */
+  public static final String     PROFILE_KEY          = "io.mybatis.config.profile";
+  /**
+   * 并行读取多个配置文件时最多使用的线程数
+   */
+  public static final int        LOAD_THREADS         = 4;
   protected volatile  Properties properties;
+  protected volatile  List<File> sources              = Collections.emptyList();
+  /**
+   * 查找时不存在的用户目录下的配置文件，出现后优先级更高
+   */
+  protected volatile  List<File> candidates           = Collections.emptyList();
 
   @Override
   public int getOrder() {
@@ -62,23 +92,263 @@ public abstract class UserConfig implements Config {
    * 初始化
    */
   protected void init() {
+    ConfigSnapshot.Entry entry = ConfigSnapshot.lookup(getClass(), getSourceInput());
+    if (entry != null) {
+      this.sources = entry.getSources();
+      this.candidates = entry.getCandidates();
+      this.properties = store(entry.getProperties());
+      return;
+    }
     Properties props = getUserProperties();
     if (props != null) {
-      this.properties = props;
+      this.properties = store(props);
     } else {
       this.properties = new Properties();
     }
   }
 
   /**
-   * 获取用户配置文件
+   * 重新读取配置文件，不使用配置快照，读取完成后再替换
+   */
+  @Override
+  public synchronized void reload() {
+    Properties props = getUserProperties();
+    this.properties = store(props != null ? props : new Properties());
+  }
+
+  /**
+   * 是否使用堆外存储，适用于特性开关、路由表等非常大的配置，默认通过系统变量 {@link OffHeapProperties#STORAGE_KEY} 启用
+   */
+  protected boolean isOffHeap() {
+    return OffHeapProperties.isEnabled();
+  }
+
+  /**
+   * 按存储方式保存配置，堆外保存的大配置文件本身不占用堆内存，分层的配置已经按层保存，都不再转换
+   *
+   * @param props 配置
+   */
+  protected Properties store(Properties props) {
+    if (isOffHeap() && !(props instanceof MappedProperties) && !(props instanceof OffHeapProperties)
+        && !(props instanceof LayeredProperties)) {
+      return new OffHeapProperties(props);
+    }
+    return props;
+  }
+
+  /**
+   * 获取环境名对应的 key，默认为 {@link #PROFILE_KEY}
+   */
+  protected String getProfileKey() {
+    return PROFILE_KEY;
+  }
+
+  /**
+   * 当前启用的环境，多个环境用逗号分隔，后面的覆盖前面的
+   */
+  protected List<String> getProfiles() {
+    String value = System.getProperty(getProfileKey());
+    if (value == null || value.trim().isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<String> profiles = new ArrayList<>();
+    for (String profile : value.split(",")) {
+      profile = profile.trim();
+      if (!profile.isEmpty()) {
+        profiles.add(profile);
+      }
+    }
+    return profiles;
+  }
+
+  /**
+   * 获取用户配置文件，启用环境时合并对应的配置文件，如 mybatis-config-prod.properties
+   * <p>
+   * 用户指定的文件可以用逗号分隔多个文件或目录，目录中的配置文件按文件名排序，多个文件并行读取后按指定顺序合并，后面的覆盖前面的
    */
   protected Properties getUserProperties() {
     String requestedFile = System.getProperty(getConfigKey());
-    String propFileName = requestedFile != null ? requestedFile : getConfigName();
-    if (!propFileName.endsWith(FILE_TYPE)) {
-      propFileName += FILE_TYPE;
+    List<File> files = new ArrayList<>();
+    List<File> directories = new ArrayList<>();
+    List<File> candidates = new ArrayList<>();
+    if (requestedFile == null) {
+      addFiles(files, directories, candidates, getConfigName(), null);
+    } else {
+      for (String name : requestedFile.split(",")) {
+        name = name.trim();
+        if (!name.isEmpty()) {
+          addFiles(files, directories, candidates, name, name);
+        }
+      }
+    }
+    this.candidates = Collections.unmodifiableList(candidates);
+    List<Properties> loaded = loadAll(files);
+    List<Properties> layers = new ArrayList<>();
+    List<File> sources = new ArrayList<>();
+    for (int i = 0; i < files.size(); i++) {
+      Properties properties = loaded.get(i);
+      if (properties == null) {
+        continue;
+      }
+      layers.add(properties);
+      sources.add(files.get(i).getAbsoluteFile());
+    }
+    //目录中增加或删除文件时目录的修改时间会变化
+    for (File directory : directories) {
+      sources.add(directory.getAbsoluteFile());
+    }
+    this.sources = Collections.unmodifiableList(sources);
+    return merge(layers);
+  }
+
+  /**
+   * 合并多个配置文件，后面的覆盖前面的
+   * <p>
+   * 普通的配置文件只在加载时合并一次，读取时不需要逐层查找。包含堆外保存的大配置文件时每个文件保持自己的存储方式，
+   * 通过 {@link LayeredProperties} 逐层查找，避免把整个文件解码后复制到堆中
+   *
+   * @param layers 按顺序读取的配置
+   */
+  protected Properties merge(List<Properties> layers) {
+    if (layers.size() == 1) {
+      return layers.get(0);
+    }
+    boolean mapped = false;
+    for (Properties layer : layers) {
+      mapped |= layer instanceof MappedProperties;
+    }
+    if (mapped) {
+      List<Properties> stored = new ArrayList<>(layers.size());
+      for (Properties layer : layers) {
+        stored.add(store(layer));
+      }
+      return new LayeredProperties(stored);
+    }
+    Properties props = new Properties();
+    for (Properties layer : layers) {
+      for (String name : layer.stringPropertyNames()) {
+        props.setProperty(name, layer.getProperty(name));
+      }
+    }
+    return props;
+  }
+
+  /**
+   * 添加配置文件和对应环境的配置文件，目录中的配置文件按文件名顺序添加，不再查找对应环境的配置文件
+   *
+   * @param files         配置文件
+   * @param directories   配置目录
+   * @param candidates    用户目录下不存在的配置文件
+   * @param name          文件名或目录
+   * @param requestedFile 用户指定的文件，没有指定时为 null
+   */
+  private void addFiles(List<File> files, List<File> directories, List<File> candidates, String name, String requestedFile) {
+    String propFileName = name.endsWith(FILE_TYPE) ? name : name + FILE_TYPE;
+    addCandidate(candidates, propFileName);
+    File file = findFile(propFileName, requestedFile, true);
+    if (file.isDirectory()) {
+      File[] children = file.listFiles((dir, child) -> child.endsWith(FILE_TYPE));
+      if (children != null) {
+        Arrays.sort(children);
+        files.addAll(Arrays.asList(children));
+      }
+      directories.add(file);
+      return;
+    }
+    if (file.exists()) {
+      files.add(file);
+    }
+    String baseName = propFileName.substring(0, propFileName.length() - FILE_TYPE.length());
+    for (String profile : getProfiles()) {
+      String overlayName = baseName + "-" + profile + FILE_TYPE;
+      addCandidate(candidates, overlayName);
+      File overlay = findFile(overlayName, requestedFile != null ? overlayName : null, false);
+      if (overlay.exists()) {
+        files.add(overlay);
+      } else {
+        log.debug("环境 " + profile + " 对应的用户配置文件不存在");
+      }
     }
+  }
+
+  /**
+   * 读取多个配置文件，多于一个文件时并行读取，结果和文件顺序一致，读取失败的文件对应 null
+   * <p>
+   * 并行读取使用本次加载专用的后台线程，线程数不超过 {@link #LOAD_THREADS} 和 CPU 数量，读取完成后关闭，
+   * 不占用公共的 ForkJoinPool，阻塞的文件 IO 不会影响其他任务
+   *
+   * @param files 配置文件
+   */
+  protected List<Properties> loadAll(List<File> files) {
+    if (files.size() <= 1) {
+      List<Properties> loaded = new ArrayList<>(files.size());
+      for (File file : files) {
+        loaded.add(load(file));
+      }
+      return loaded;
+    }
+    int threads = Math.min(files.size(), Math.min(LOAD_THREADS, Runtime.getRuntime().availableProcessors()));
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(threads, 1), r -> {
+      Thread thread = new Thread(r, "mybatis-config-load");
+      thread.setDaemon(true);
+      return thread;
+    });
+    try {
+      List<Future<Properties>> futures = new ArrayList<>(files.size());
+      for (File file : files) {
+        futures.add(executor.submit(() -> load(file)));
+      }
+      List<Properties> loaded = new ArrayList<>(files.size());
+      for (Future<Properties> future : futures) {
+        loaded.add(future.get());
+      }
+      return loaded;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("读取用户配置文件时被中断", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("读取用户配置文件失败", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * 读取一个配置文件，读取失败时记录警告并返回 null
+   *
+   * @param file 配置文件
+   */
+  private Properties load(File file) {
+    try {
+      return loadProperties(file);
+    } catch (IOException e) {
+      log.warn("读取用户配置文件 " + file + " 失败: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * 记录用户目录下不存在的配置文件，{@link #findFile} 优先使用用户目录下的文件
+   *
+   * @param candidates   不存在的配置文件
+   * @param propFileName 文件名
+   */
+  private static void addCandidate(List<File> candidates, String propFileName) {
+    File file = new File(propFileName);
+    if (!file.exists()) {
+      candidates.add(file.getAbsoluteFile());
+    }
+  }
+
+  /**
+   * 查找配置文件，依次查找用户目录、类路径和当前类所在的包
+   *
+   * @param propFileName  文件名
+   * @param requestedFile 用户指定的文件，没有指定时为 null
+   * @param warn          不存在时是否记录警告
+   * @return 配置文件，不存在时返回的文件 {@link File#exists()} 为 false
+   */
+  protected File findFile(String propFileName, String requestedFile, boolean warn) {
     // 用户目录下面的配置（指定或默认）
     File file = new File(propFileName);
     if (!file.exists()) {
@@ -87,12 +357,16 @@ public abstract class UserConfig implements Config {
         try {
           file = ResourceUtil.getFile(requestedFile);
         } catch (FileNotFoundException e) {
-          log.warn("指定的用户配置文件: " + requestedFile + " 不存在");
+          if (warn) {
+            log.warn("指定的用户配置文件: " + requestedFile + " 不存在");
+          }
         }
         try {
           file = ResourceUtil.getClasspathFile(requestedFile);
         } catch (FileNotFoundException e) {
-          log.warn("指定的用户配置文件在类路径下: " + requestedFile + " 不存在");
+          if (warn) {
+            log.warn("指定的用户配置文件在类路径下: " + requestedFile + " 不存在");
+          }
         }
       } else {
         // 默认文件，非用户指定时
@@ -113,22 +387,58 @@ public abstract class UserConfig implements Config {
         }
       }
     }
-    Properties props = new Properties();
-    if (file.exists()) {
-      try (InputStream in = new FileInputStream(file)) {
-        props.load(in);
-      } catch (IOException ignored) {
+    return file;
+  }
 
-      }
+  /**
+   * 是否把配置文件复制到堆外内存延迟解析，适用于非常大的配置文件，默认通过系统变量 {@link #MAPPED_THRESHOLD_KEY} 指定文件大小阈值
+   *
+   * @param file 配置文件
+   */
+  protected boolean isMappedLoad(File file) {
+    long threshold = Long.getLong(MAPPED_THRESHOLD_KEY, -1L);
+    return threshold >= 0 && file.length() >= threshold;
+  }
+
+  /**
+   * 读取配置文件
+   *
+   * @param file 配置文件
+   * @throws IOException 读取失败
+   */
+  protected Properties loadProperties(File file) throws IOException {
+    if (isMappedLoad(file)) {
+      return new MappedProperties(file);
+    }
+    Properties props = new Properties();
+    try (InputStream in = new FileInputStream(file)) {
+      props.load(in);
     }
     return props;
   }
 
   @Override
-  public String getStr(String key) {
-    if (skipKey(key)) {
-      return null;
-    }
+  public String getSourceInput() {
+    String requestedFile = System.getProperty(getConfigKey());
+    String input = requestedFile != null ? requestedFile : getConfigName();
+    List<String> profiles = getProfiles();
+    return profiles.isEmpty() ? input : input + "@" + String.join(",", profiles);
+  }
+
+  @Override
+  public List<File> getSources() {
+    getProperties();
+    return sources;
+  }
+
+  @Override
+  public List<File> getCandidates() {
+    getProperties();
+    return candidates;
+  }
+
+  @Override
+  public Properties getProperties() {
     if (this.properties == null) {
       synchronized (this) {
         if (this.properties == null) {
@@ -136,7 +446,15 @@ public abstract class UserConfig implements Config {
         }
       }
     }
-    return properties.getProperty(key);
+    return properties;
+  }
+
+  @Override
+  public String getStr(String key) {
+    if (skipKey(key)) {
+      return null;
+    }
+    return getProperties().getProperty(key);
   }
 
 }
@@ -18,23 +18,27 @@ package io.mybatis.config.defaults;
 
 import io.mybatis.config.Config;
 import io.mybatis.config.ConfigHelper;
+import io.mybatis.config.ConfigProvider;
+import io.mybatis.config.PropertiesConfig;
+import io.mybatis.config.Reloadable;
+import io.mybatis.config.util.ConfigSnapshot;
+import io.mybatis.config.util.OffHeapProperties;
+import io.mybatis.config.util.ReadOnlyProperties;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
 
 import java.io.*;
 import java.net.JarURLConnection;
-import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 /**
  * 形如 mybais-provider-v1.0.properties 带版本号的属性配置文件
@@ -54,12 +58,21 @@ import java.util.stream.Collectors;
  * 当指定的版本介于两个版本之间时，使用低版本。版本不在范围时，使用就近的版本。
  * <p>
  * 例如 v2.1, v2.0 时使用 v2.0 配置，v1.3, v1.0 使用 v1.0 配置，v0.9 时超出范围，使用就近版本 v1.0
+ * <p>
+ * 版本号也可以是 v1.2.3 和 v2.0.0-beta.1 等形式，按语义化版本规则比较，预发布版本低于对应的正式版本
  *
  * @author liuzh
  */
-public abstract class VersionConfig implements Config {
-  public static final String     FILE_TYPE = ".properties";
-  protected volatile  Properties properties;
+@ConfigProvider(order = Config.VERSION_ORDER)
+public abstract class VersionConfig implements PropertiesConfig, Reloadable {
+  public static final String       FILE_TYPE = ".properties";
+  protected volatile  Properties   properties;
+  protected volatile  List<File>   sources   = Collections.emptyList();
+  protected volatile  String       version;
+  /**
+   * 版本表，每个实例只构建一次
+   */
+  private volatile    VersionTable table;
 
   @Override
   public int getOrder() {
@@ -96,247 +109,366 @@ public abstract class VersionConfig implements Config {
    * 初始化
    */
   protected void init() {
+    ConfigSnapshot.Entry entry = ConfigSnapshot.lookup(getClass(), getSourceInput());
+    if (entry != null) {
+      this.sources = entry.getSources();
+      this.version = entry.getVersion();
+      this.properties = store(entry.getProperties());
+      return;
+    }
     Properties props = buildVersionProperties();
     if (props != null) {
-      this.properties = props;
+      this.properties = store(props);
     } else {
       this.properties = new Properties();
     }
   }
 
   /**
-   * 转换文件名，按版本号排序（升序）
+   * 重新读取配置文件，不使用配置快照，读取完成后再替换
+   */
+  @Override
+  public synchronized void reload() {
+    this.table = null;
+    Properties props = buildVersionProperties();
+    this.properties = store(props != null ? props : new Properties());
+  }
+
+  /**
+   * 是否使用堆外存储，适用于特性开关、路由表等非常大的配置，默认通过系统变量 {@link OffHeapProperties#STORAGE_KEY} 启用
+   */
+  protected boolean isOffHeap() {
+    return OffHeapProperties.isEnabled();
+  }
+
+  /**
+   * 按存储方式保存配置，堆外存储时会将多个版本合并后的结果保存到一块直接内存中
    *
-   * @param fileNames 文件名集合
+   * @param props 配置
    */
-  private List<ConfigVersion> sortVersions(Collection<String> fileNames) {
-    if (fileNames == null || fileNames.isEmpty()) {
-      return null;
+  protected Properties store(Properties props) {
+    if (isOffHeap() && !(props instanceof OffHeapProperties)) {
+      return new OffHeapProperties(props);
     }
-    Pattern pattern = Pattern.compile(getConfigName() + "-(v\\d+\\.\\d+)\\" + FILE_TYPE);
-    return fileNames.stream().map(fileName -> {
-      Matcher matcher = pattern.matcher(fileName);
-      if (matcher.find()) {
-        return new ConfigVersion(matcher.group(1), fileName);
-      }
-      return null;
-    }).filter(Objects::nonNull).sorted().collect(Collectors.toList());
+    return props;
   }
 
   /**
-   * 选择版本
-   *
-   * @param versions 所有版本
-   * @param version  选择的版本
+   * 获取版本配置
    */
-  private ConfigVersion chooseVersion(List<ConfigVersion> versions, String version) {
-    if (versions == null || versions.isEmpty()) {
+  protected Properties buildVersionProperties() {
+    String version = ConfigHelper.getStr(getVersionKey());
+    VersionTable table = getVersionTable();
+    int index = table.choose(version);
+    if (index < 0) {
       return null;
     }
-    //没有指定版本时使用最新版本
-    if (version == null || version.isEmpty()) {
-      return versions.get(versions.size() - 1);
-    }
-    ConfigVersion configVersion = new ConfigVersion(version);
-    //从最高版本进行比较，选择的版本高于或等于配置版本时，就选择该版本
-    for (int i = versions.size() - 1; i >= 0; i--) {
-      if (configVersion.compareTo(versions.get(i)) >= 0) {
-        return versions.get(i);
+    this.sources = table.sources;
+    this.version = table.versions[index].getFileName();
+    return table.merge(index);
+  }
+
+  /**
+   * 获取指定版本的配置，不影响当前使用的版本，结果按选择的版本配置文件缓存，适用于同时使用多个版本的场景
+   *
+   * @param version 版本号，如 v1.5，为空或者无法识别时使用最新版本
+   * @return 只读的配置，没有版本配置文件时返回 null
+   */
+  public Properties getProperties(String version) {
+    VersionTable table = getVersionTable();
+    int index = table.choose(version);
+    return index < 0 ? null : table.merge(index);
+  }
+
+  /**
+   * 获取版本表，每个实例只读取一次版本配置文件
+   */
+  private VersionTable getVersionTable() {
+    VersionTable table = this.table;
+    if (table == null) {
+      synchronized (this) {
+        table = this.table;
+        if (table == null) {
+          table = loadVersionTable();
+          this.table = table;
+        }
       }
     }
-    //选择的版本不高于所有版本时，使用最小版本
-    return versions.get(0);
+    return table;
   }
 
   /**
-   * 构建 Properties
-   *
-   * @param versions      所有版本
-   * @param chooseVersion 选择的版本
-   * @param toInputStream 转换流
-   * @throws IOException 文件异常
+   * 读取所有版本配置文件
    */
-  private Properties build(List<ConfigVersion> versions, ConfigVersion chooseVersion, Function<ConfigVersion, InputStream> toInputStream) throws IOException {
-    if (chooseVersion == null) {
-      return null;
+  private VersionTable loadVersionTable() {
+    URL resource = getClass().getResource("");
+    if (resource == null) {
+      return VersionTable.EMPTY;
     }
-    InputStream is;
-    Properties prop = null;
-    for (ConfigVersion configVersion : versions) {
-      if (configVersion != chooseVersion) {
-        prop = new Properties(prop);
-        is = toInputStream.apply(configVersion);
-        if (is != null) {
-          prop.load(is);
-          is.close();
+    Pattern pattern = Pattern.compile(Pattern.quote(getConfigName()) + "-(" + ConfigVersion.PATTERN + ")" + Pattern.quote(FILE_TYPE));
+    try {
+      if (resource.getProtocol().equals("file")) {
+        if (resource.getPath().endsWith(".jar")) {
+          try (JarFile jarFile = new JarFile(resource.getPath())) {
+            return loadFromJarFile(jarFile, pattern);
+          }
         }
+        return loadFromFile(new File(resource.toURI()), pattern);
+      } else if (resource.getProtocol().equals("jar")) {
+        JarFile jarFile = ((JarURLConnection) resource.openConnection()).getJarFile();
+        return loadFromJarFile(jarFile, pattern);
+      } else if (resource.getProtocol().equals("resource")) {
+        return loadFromResource(pattern);
       }
+    } catch (IOException | URISyntaxException e) {
+      throw new IllegalStateException("读取版本配置文件 " + getConfigName() + " 失败", e);
     }
-    prop = new Properties(prop);
-    is = toInputStream.apply(chooseVersion);
-    if (is != null) {
-      prop.load(is);
-      is.close();
-    }
-    return prop;
+    return VersionTable.EMPTY;
   }
 
   /**
-   * 选择版本
+   * 从文件名中解析版本，不是版本配置文件时返回 null
    */
-  private Properties chooseFromJarFile(JarFile jarFile, String version) throws IOException {
-    String configName = getConfigName();
+  private static ConfigVersion parseVersion(Pattern pattern, String fileName) {
+    Matcher matcher = pattern.matcher(fileName);
+    return matcher.matches() ? new ConfigVersion(matcher.group(1), fileName) : null;
+  }
+
+  private static Properties load(InputStream is) throws IOException {
+    Properties props = new Properties();
+    try (InputStream in = is) {
+      props.load(in);
+    }
+    return props;
+  }
+
+  private VersionTable loadFromJarFile(JarFile jarFile, Pattern pattern) throws IOException {
     String configPath = getConfigPath();
+    Map<ConfigVersion, Properties> files = new HashMap<>();
     Enumeration<JarEntry> entries = jarFile.entries();
-    Map<String, JarEntry> entryMap = new HashMap<>();
     while (entries.hasMoreElements()) {
       JarEntry entry = entries.nextElement();
       String name = entry.getName();
       if (name.startsWith(configPath)) {
-        name = name.substring(configPath.length());
-        if (name.startsWith(configName)) {
-          entryMap.put(name, entry);
+        ConfigVersion version = parseVersion(pattern, name.substring(configPath.length()));
+        if (version != null) {
+          files.put(version, load(jarFile.getInputStream(entry)));
         }
       }
     }
-    List<ConfigVersion> versions = sortVersions(new ArrayList<>(entryMap.keySet()));
-    ConfigVersion chooseVersion = chooseVersion(versions, version);
-    return build(versions, chooseVersion, configVersion -> {
-      try {
-        return jarFile.getInputStream(entryMap.get(chooseVersion.getFileName()));
-      } catch (IOException e) {
-        return null;
-      }
-    });
+    return new VersionTable(files, version -> new File(jarFile.getName()), true);
   }
 
-  /**
-   * 选择版本
-   */
-  private Properties chooseFromFile(File file, String version) throws IOException {
-    String configName = getConfigName();
-    File[] files = file.listFiles();
-    if (files == null || files.length == 0) {
-      return null;
+  private VersionTable loadFromFile(File directory, Pattern pattern) throws IOException {
+    File[] children = directory.listFiles();
+    if (children == null) {
+      return VersionTable.EMPTY;
     }
-    Map<String, File> fileMap = new HashMap<>();
-    for (File f : files) {
-      if (f.getName().startsWith(configName)) {
-        fileMap.put(f.getName(), f);
+    Map<ConfigVersion, Properties> files = new HashMap<>();
+    Map<ConfigVersion, File> sources = new HashMap<>();
+    for (File file : children) {
+      ConfigVersion version = parseVersion(pattern, file.getName());
+      if (version != null) {
+        files.put(version, load(new FileInputStream(file)));
+        sources.put(version, file);
       }
     }
-    List<ConfigVersion> versions = sortVersions(new ArrayList<>(fileMap.keySet()));
-    ConfigVersion chooseVersion = chooseVersion(versions, version);
-    return build(versions, chooseVersion, configVersion -> {
-      try {
-        return new FileInputStream(fileMap.get(configVersion.getFileName()));
-      } catch (FileNotFoundException e) {
-        return null;
-      }
-    });
+    //目录中增加版本配置文件时快照失效
+    return new VersionTable(files, sources::get, false, directory);
   }
 
-  /**
-   * 选择版本
-   */
-  private Properties chooseFromResource(String version) throws IOException {
-
-    Map<String, URI> fileMap = new HashMap<>();
-
-    ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver();
-    Resource[] resources = resolver.getResources("classpath*:io/mybatis/provider/config/*.properties");
+  private VersionTable loadFromResource(Pattern pattern) throws IOException {
+    ResourcePatternResolver resolver = new PathMatchingResourcePatternResolver(getClass().getClassLoader());
+    Resource[] resources = resolver.getResources(ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX
+        + getConfigPath() + getConfigName() + "-*" + FILE_TYPE);
+    Map<ConfigVersion, Properties> files = new HashMap<>();
     for (Resource resource : resources) {
-      URI uri = resource.getURI();
-
-      String urlString = uri.toString();
-      if (urlString.endsWith(FILE_TYPE)) {
-        Path path = Paths.get(uri);
-        // 获取文件名
-        Path fileName = path.getFileName();
-        fileMap.put(fileName.toString(), uri);
+      String fileName = resource.getFilename();
+      ConfigVersion version = fileName != null ? parseVersion(pattern, fileName) : null;
+      if (version != null) {
+        files.put(version, load(resource.getInputStream()));
       }
     }
+    //资源无法通过文件判断是否变化
+    return new VersionTable(files, null, false);
+  }
 
-    List<ConfigVersion> versions = sortVersions(new ArrayList<>(fileMap.keySet()));
-    ConfigVersion chooseVersion = chooseVersion(versions, version);
+  @Override
+  public String getStr(String key) {
+    if (skipKey(key)) {
+      return null;
+    }
+    return getProperties().getProperty(key);
+  }
 
-    return build(versions, chooseVersion, configVersion -> {
-      URI url = fileMap.get(chooseVersion.getFileName());
-      InputStream inputStream = null;
-      try {
-        inputStream = url.toURL().openStream();
-      } catch (IOException e) {
-        return null;
+  @Override
+  public String getSourceInput() {
+    String version = ConfigHelper.getStr(getVersionKey());
+    return version != null ? version : "";
+  }
+
+  @Override
+  public List<File> getSources() {
+    getProperties();
+    return sources;
+  }
+
+  @Override
+  public String getVersion() {
+    getProperties();
+    return version;
+  }
+
+  @Override
+  public Properties getProperties() {
+    if (this.properties == null) {
+      synchronized (this) {
+        if (this.properties == null) {
+          this.init();
+        }
       }
-      return inputStream;
-    });
+    }
+    return properties;
   }
 
   /**
-   * 获取版本配置
+   * 按版本号排序（升序）后的所有版本配置文件，选择版本时二分查找，合并结果按选择的版本缓存
    */
-  protected Properties buildVersionProperties() {
-    String version = ConfigHelper.getStr(getVersionKey());
-    // 读取资源
-    URL resource = getClass().getResource("");
-    if (resource == null) {
-      return null;
+  private static final class VersionTable {
+    static final VersionTable EMPTY = new VersionTable(Collections.emptyMap(), null, false);
+
+    private final ConfigVersion[]                  versions;
+    private final Properties[]                     files;
+    private final List<File>                       sources;
+    private final AtomicReferenceArray<Properties> merged;
+
+    /**
+     * @param files  版本和对应的配置
+     * @param source 版本对应的来源文件
+     * @param shared 所有版本是否来自同一个文件
+     */
+    VersionTable(Map<ConfigVersion, Properties> files, Function<ConfigVersion, File> source, boolean shared) {
+      this(files, source, shared, null);
     }
-    if (resource.getProtocol().equals("file")) {
-      if (resource.getPath().endsWith(".jar")) {
-        try {
-          JarFile jarFile = new JarFile(resource.getPath());
-          return chooseFromJarFile(jarFile, version);
-        } catch (IOException e) {
-          throw new RuntimeException(e);
-        }
-      } else {
-        try {
-          File file = new File(resource.toURI());
-          return chooseFromFile(file, version);
-        } catch (Exception e) {
-          throw new RuntimeException(e);
+
+    /**
+     * @param files     版本和对应的配置
+     * @param source    版本对应的来源文件
+     * @param shared    所有版本是否来自同一个文件
+     * @param directory 版本配置文件所在的目录，不是目录时为 null
+     */
+    VersionTable(Map<ConfigVersion, Properties> files, Function<ConfigVersion, File> source, boolean shared, File directory) {
+      this.versions = distinct(files.keySet().toArray(new ConfigVersion[0]));
+      this.files = new Properties[versions.length];
+      List<File> sources = new ArrayList<>();
+      for (int i = 0; i < versions.length; i++) {
+        this.files[i] = files.get(versions[i]);
+        if (source != null && (!shared || sources.isEmpty())) {
+          sources.add(source.apply(versions[i]).getAbsoluteFile());
         }
       }
-    } else if (resource.getProtocol().equals("jar")) {
-      try {
-        JarFile jarFile = ((JarURLConnection) resource.openConnection()).getJarFile();
-        return chooseFromJarFile(jarFile, version);
-      } catch (IOException e) {
-        throw new RuntimeException(e);
+      if (directory != null) {
+        sources.add(directory.getAbsoluteFile());
       }
-    } else if (resource.getProtocol().equals("resource")) {
-      try {
-        return chooseFromResource(version);
-      } catch (Exception e) {
-        throw new RuntimeException(e);
+      this.sources = Collections.unmodifiableList(sources);
+      this.merged = new AtomicReferenceArray<>(versions.length);
+    }
+
+    /**
+     * 排序并去掉版本号相同的版本（例如 v1.0 和 v1.0.0），只在创建版本表时检查一次，
+     * 相同时记录警告并使用版本号写得更完整（文件名更长）的版本，结果和文件的读取顺序无关
+     *
+     * @param versions 所有版本
+     */
+    private static ConfigVersion[] distinct(ConfigVersion[] versions) {
+      Arrays.sort(versions);
+      List<ConfigVersion> list = new ArrayList<>(versions.length);
+      for (ConfigVersion version : versions) {
+        int last = list.size() - 1;
+        if (last >= 0 && list.get(last).compareTo(version) == 0) {
+          ConfigVersion previous = list.get(last);
+          ConfigVersion chosen = compareFileName(previous, version) >= 0 ? previous : version;
+          ConfigHelper.log.warn("版本配置文件 " + previous.getFileName() + " 和 " + version.getFileName()
+              + " 的版本号相同，使用 " + chosen.getFileName());
+          list.set(last, chosen);
+        } else {
+          list.add(version);
+        }
       }
+      return list.toArray(new ConfigVersion[0]);
     }
-    return null;
-  }
 
-  @Override
-  public String getStr(String key) {
-    if (skipKey(key)) {
-      return null;
+    private static int compareFileName(ConfigVersion a, ConfigVersion b) {
+      int result = Integer.compare(a.getFileName().length(), b.getFileName().length());
+      return result != 0 ? result : a.getFileName().compareTo(b.getFileName());
     }
-    if (this.properties == null) {
-      synchronized (this) {
-        if (this.properties == null) {
-          this.init();
+
+    /**
+     * 选择版本，没有指定版本时使用最新版本，介于两个版本之间时使用低版本，低于所有版本时使用最低版本，
+     * 版本号无法识别时记录警告并使用最新版本
+     *
+     * @param version 选择的版本
+     * @return 版本位置，没有版本时返回 -1
+     */
+    int choose(String version) {
+      if (versions.length == 0) {
+        return -1;
+      }
+      if (version == null || version.isEmpty()) {
+        return versions.length - 1;
+      }
+      ConfigVersion chosen = ConfigVersion.parse(version);
+      if (chosen == null) {
+        ConfigHelper.log.warn("无法识别的版本号: " + version + "，使用最新版本 " + versions[versions.length - 1].getFileName());
+        return versions.length - 1;
+      }
+      int index = Arrays.binarySearch(versions, chosen);
+      if (index >= 0) {
+        return index;
+      }
+      return Math.max(-index - 2, 0);
+    }
+
+    /**
+     * 合并配置，其他版本按版本号顺序合并，选择的版本最后合并，结果是只读的
+     *
+     * @param index 选择的版本位置
+     */
+    Properties merge(int index) {
+      Properties props = merged.get(index);
+      if (props == null) {
+        props = new Properties();
+        for (int i = 0; i < files.length; i++) {
+          if (i != index) {
+            props.putAll(files[i]);
+          }
+        }
+        props.putAll(files[index]);
+        props = ReadOnlyProperties.of(props);
+        if (!merged.compareAndSet(index, null, props)) {
+          props = merged.get(index);
         }
       }
+      return props;
     }
-    return properties.getProperty(key);
   }
 
   /**
-   * 版本比对
+   * 版本号，支持 v1.0、v1.2.3 和 v2.0.0-beta.1 等形式，和语义化版本的比较规则一致，预发布版本低于正式版本
    */
   public static class ConfigVersion implements Comparable<ConfigVersion> {
-    private final int    x;
-    private final int    y;
-    private final String fileName;
+    static final         String   PATTERN = "v?\\d+\\.\\d+(?:\\.\\d+)?(?:-[0-9A-Za-z-]+(?:\\.[0-9A-Za-z-]+)*)?";
+    private static final Pattern  VERSION = Pattern.compile("v?(\\d+)\\.(\\d+)(?:\\.(\\d+))?(?:-([0-9A-Za-z-]+(?:\\.[0-9A-Za-z-]+)*))?");
+    /**
+     * 以前可以使用的版本号，只比较前面的数字，如 1.5.x、v1.5.2.1
+     */
+    private static final Pattern  LEGACY  = Pattern.compile("v?(\\d+)\\.(\\d+)(?:\\.(\\d+))?\\b.*");
+    private static final String[] RELEASE = new String[0];
+    private final        int      x;
+    private final        int      y;
+    private final        int      z;
+    private final        String[] preRelease;
+    private final        String   fileName;
 
     public ConfigVersion(String version) {
       this(version, null);
@@ -344,12 +476,45 @@ public abstract class VersionConfig implements Config {
 
     public ConfigVersion(String version, String fileName) {
       this.fileName = fileName;
-      if (version.startsWith("v")) {
-        version = version.substring(1);
+      Matcher matcher = VERSION.matcher(version);
+      if (!matcher.matches()) {
+        throw new IllegalArgumentException("版本号格式错误: " + version);
+      }
+      this.x = Integer.parseInt(matcher.group(1));
+      this.y = Integer.parseInt(matcher.group(2));
+      this.z = matcher.group(3) != null ? Integer.parseInt(matcher.group(3)) : 0;
+      this.preRelease = matcher.group(4) != null ? matcher.group(4).split("\\.") : RELEASE;
+    }
+
+    private ConfigVersion(Matcher matcher) {
+      this.fileName = null;
+      this.x = Integer.parseInt(matcher.group(1));
+      this.y = Integer.parseInt(matcher.group(2));
+      this.z = matcher.group(3) != null ? Integer.parseInt(matcher.group(3)) : 0;
+      this.preRelease = RELEASE;
+    }
+
+    /**
+     * 解析用户指定的版本号，不是标准格式时只比较前面的数字并记录警告，无法识别时返回 null
+     *
+     * @param version 版本号
+     */
+    static ConfigVersion parse(String version) {
+      Matcher matcher = LEGACY.matcher(version);
+      ConfigVersion parsed;
+      try {
+        if (VERSION.matcher(version).matches()) {
+          return new ConfigVersion(version);
+        }
+        if (!matcher.matches()) {
+          return null;
+        }
+        parsed = new ConfigVersion(matcher);
+      } catch (NumberFormatException e) {
+        return null;
       }
-      String[] strings = version.split("\\.");
-      this.x = Integer.parseInt(strings[0]);
-      this.y = Integer.parseInt(strings[1]);
+      ConfigHelper.log.warn("版本号 " + version + " 不是标准格式，按 " + parsed.x + "." + parsed.y + "." + parsed.z + " 选择版本");
+      return parsed;
     }
 
     public String getFileName() {
@@ -358,10 +523,50 @@ public abstract class VersionConfig implements Config {
 
     @Override
     public int compareTo(ConfigVersion o) {
-      if (this.x == o.x) {
-        return this.y - o.y;
+      if (this.x != o.x) {
+        return Integer.compare(this.x, o.x);
+      }
+      if (this.y != o.y) {
+        return Integer.compare(this.y, o.y);
+      }
+      if (this.z != o.z) {
+        return Integer.compare(this.z, o.z);
+      }
+      //正式版本高于预发布版本
+      if (this.preRelease.length == 0 || o.preRelease.length == 0) {
+        return Integer.compare(o.preRelease.length, this.preRelease.length);
+      }
+      for (int i = 0; i < Math.min(this.preRelease.length, o.preRelease.length); i++) {
+        int result = compareIdentifier(this.preRelease[i], o.preRelease[i]);
+        if (result != 0) {
+          return result;
+        }
+      }
+      return Integer.compare(this.preRelease.length, o.preRelease.length);
+    }
+
+    /**
+     * 比较预发布标识，数字按数值比较并且低于非数字，非数字按字符顺序比较
+     */
+    private static int compareIdentifier(String a, String b) {
+      boolean numericA = isNumeric(a);
+      boolean numericB = isNumeric(b);
+      if (numericA && numericB) {
+        return a.length() != b.length() ? Integer.compare(a.length(), b.length()) : a.compareTo(b);
+      }
+      if (numericA != numericB) {
+        return numericA ? -1 : 1;
+      }
+      return a.compareTo(b);
+    }
+
+    private static boolean isNumeric(String identifier) {
+      for (int i = 0; i < identifier.length(); i++) {
+        if (!Character.isDigit(identifier.charAt(i))) {
+          return false;
+        }
       }
-      return this.x - o.x;
+      return true;
     }
   }
 }
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.Filer;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * 处理 {@link io.mybatis.config.ConfigKey} 注解，为每个声明了配置键的类生成名为 类名 + Catalog 的配置目录
+ * <p>
+ * 生成的类包含配置目录 CATALOG、每个配置键对应的下标常量和按下标读取配置的 getStr 方法。
+ * 配置键格式错误、同一个类中重复声明或者和字段常量值不一致时编译失败。
+ * 配置可能来自系统变量、环境变量或者运行时才加载的配置文件，编译时不检查配置键是否存在
+ *
+ * @author liuzh
+ */
+public class ConfigKeyProcessor extends AbstractProcessor {
+  public static final  String      ANNOTATION = "io.mybatis.config.ConfigKey";
+  public static final  String      SUFFIX     = "Catalog";
+  private static final Pattern     KEY        = Pattern.compile("[A-Za-z0-9_-]+(\\.[A-Za-z0-9_-]+)*");
+  /**
+   * 生成的类中已经使用的名称
+   */
+  private static final Set<String> RESERVED   = new HashSet<>(Arrays.asList("CATALOG", "getStr"));
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return Collections.singleton(ANNOTATION);
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    TypeElement annotation = processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+    if (annotation == null) {
+      return false;
+    }
+    Set<TypeElement> types = new LinkedHashSet<>();
+    for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+      types.add((TypeElement) element.getEnclosingElement());
+    }
+    for (TypeElement type : types) {
+      Set<String> live = new HashSet<>();
+      Map<String, String> keys = collect(type, annotation, live);
+      if (keys != null) {
+        generate(type, keys, live);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 按声明顺序获取类中的配置键，出错时返回 null
+   *
+   * @param type       类
+   * @param annotation 注解
+   * @param live       保存实时读取的字段名
+   * @return 字段名和配置键
+   */
+  private Map<String, String> collect(TypeElement type, TypeElement annotation, Set<String> live) {
+    Map<String, String> keys = new LinkedHashMap<>();
+    Map<String, VariableElement> declared = new HashMap<>();
+    boolean valid = true;
+    for (Element element : type.getEnclosedElements()) {
+      AnnotationMirror mirror = findAnnotation(element, annotation);
+      if (mirror == null) {
+        continue;
+      }
+      VariableElement field = (VariableElement) element;
+      Object value = getValue(mirror, "value");
+      String key = value instanceof String ? (String) value : null;
+      String name = field.getSimpleName().toString();
+      if (!field.getModifiers().containsAll(EnumSet.of(Modifier.STATIC, Modifier.FINAL))) {
+        valid = error(field, mirror, "@ConfigKey 只能用于 static final 字段");
+      } else if (key == null || !KEY.matcher(key).matches()) {
+        valid = error(field, mirror, "配置键格式错误: " + key);
+      } else if (declared.containsKey(key)) {
+        valid = error(field, mirror, "配置键 " + key + " 已经由字段 " + declared.get(key).getSimpleName() + " 声明");
+      } else if (RESERVED.contains(name)) {
+        valid = error(field, mirror, "字段名 " + name + " 和生成的代码冲突");
+      } else if (field.getConstantValue() instanceof String && !key.equals(field.getConstantValue())) {
+        valid = error(field, mirror, "配置键 " + key + " 和字段值 " + field.getConstantValue() + " 不一致");
+      } else {
+        declared.put(key, field);
+        keys.put(name, key);
+        if (Boolean.TRUE.equals(getValue(mirror, "live"))) {
+          live.add(name);
+        }
+      }
+    }
+    return valid ? keys : null;
+  }
+
+  private static AnnotationMirror findAnnotation(Element element, TypeElement annotation) {
+    for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      if (mirror.getAnnotationType().asElement().equals(annotation)) {
+        return mirror;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * 获取注解中显式指定的属性值，没有指定时返回 null
+   */
+  private static Object getValue(AnnotationMirror mirror, String name) {
+    for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : mirror.getElementValues().entrySet()) {
+      if (entry.getKey().getSimpleName().contentEquals(name)) {
+        return entry.getValue().getValue();
+      }
+    }
+    return null;
+  }
+
+  private boolean error(Element element, AnnotationMirror mirror, String message) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element, mirror);
+    return false;
+  }
+
+  /**
+   * 生成配置目录，嵌套类的类名用 '_' 连接
+   *
+   * @param type 类
+   * @param keys 字段名和配置键
+   * @param live 实时读取的字段名
+   */
+  private void generate(TypeElement type, Map<String, String> keys, Set<String> live) {
+    String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+    StringBuilder simpleName = new StringBuilder(type.getSimpleName());
+    for (Element e = type.getEnclosingElement(); e instanceof TypeElement; e = e.getEnclosingElement()) {
+      simpleName.insert(0, e.getSimpleName() + "_");
+    }
+    String className = simpleName + SUFFIX;
+    String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+    StringBuilder source = new StringBuilder();
+    if (!packageName.isEmpty()) {
+      source.append("package ").append(packageName).append(";\n\n");
+    }
+    source.append("import io.mybatis.config.ConfigCatalog;\n");
+    source.append("import io.mybatis.config.ConfigHelper;\n\n");
+    source.append("/**\n");
+    source.append(" * {@link ").append(type.getQualifiedName()).append("} 中声明的配置键，由 ")
+        .append(ConfigKeyProcessor.class.getSimpleName()).append(" 生成，不要修改\n");
+    source.append(" */\n");
+    source.append("public final class ").append(className).append(" {\n");
+    source.append("  public static final ConfigCatalog CATALOG = new ConfigCatalog(");
+    if (!live.isEmpty()) {
+      source.append("new String[]{");
+    }
+    int index = 0;
+    for (String key : keys.values()) {
+      source.append(index++ == 0 ? "\n      " : ",\n      ").append(literal(key));
+    }
+    if (!live.isEmpty()) {
+      source.append("}, new boolean[]{");
+      index = 0;
+      for (String name : keys.keySet()) {
+        source.append(index++ == 0 ? "" : ", ").append(live.contains(name));
+      }
+      source.append("}");
+    }
+    source.append(");\n");
+    index = 0;
+    for (Map.Entry<String, String> entry : keys.entrySet()) {
+      source.append("\n  /**\n   * ").append(entry.getValue()).append("\n   */\n");
+      source.append("  public static final int ").append(entry.getKey()).append(" = ").append(index++).append(";\n");
+    }
+    source.append("\n  private ").append(className).append("() {\n  }\n\n");
+    source.append("  /**\n   * 按下标获取配置\n   *\n   * @param index 下标\n   */\n");
+    source.append("  public static String getStr(int index) {\n");
+    source.append("    return ConfigHelper.getStr(CATALOG, index);\n");
+    source.append("  }\n");
+    source.append("}\n");
+    Filer filer = processingEnv.getFiler();
+    try {
+      JavaFileObject file = filer.createSourceFile(qualifiedName, type);
+      try (Writer writer = file.openWriter()) {
+        writer.write(source.toString());
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "生成 " + qualifiedName + " 失败: " + e.getMessage(), type);
+    }
+  }
+
+  private static String literal(String key) {
+    //配置键格式已经校验，不包含需要转义的字符
+    return "\"" + key + "\"";
+  }
+
+}
@@ -0,0 +1,362 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.remote;
+
+import io.mybatis.config.Config;
+import io.mybatis.config.ConfigHelper;
+import io.mybatis.config.ConfigProvider;
+import io.mybatis.config.PropertiesConfig;
+import io.mybatis.config.RefreshableConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * 远程配置，从 HTTP 配置中心拉取 properties 格式的配置
+ * <p>
+ * 读取配置时只访问内存中的快照，不会访问网络，通过 {@link RefreshableConfig} 共用的后台线程定时使用 ETag 条件请求刷新配置，
+ * 配置没有变化时服务端返回 304。
+ * 通过 {@link #CACHE_KEY} 指定本地缓存文件后，每次获取到新配置后保存到本地磁盘，启动时优先使用本地缓存，网络不可用时也能正常启动。
+ * 缓存中可能包含敏感配置，只允许当前用户读写，启动时缓存文件的所有者、权限、配置地址或内容摘要不符合时不使用缓存。
+ * <p>
+ * 通过 {@link #URL_KEY} 指定配置地址，没有指定时不启用。通过 {@link #PREFIXES_KEY} 指定远程提供的配置前缀后，
+ * 读取其他配置时不会创建远程配置，也不会访问网络
+ *
+ * @author liuzh
+ */
+@ConfigProvider(order = Config.REMOTE_ORDER, prefixesKey = RemoteConfig.PREFIXES_KEY)
+public class RemoteConfig implements PropertiesConfig, RefreshableConfig, AutoCloseable {
+  public static final Logger log          = LoggerFactory.getLogger(RemoteConfig.class);
+  /**
+   * 远程配置相关的配置前缀，这些配置不从远程读取
+   */
+  public static final String PREFIX       = "io.mybatis.config.remote.";
+  /**
+   * 配置地址
+   */
+  public static final String URL_KEY      = PREFIX + "url";
+  /**
+   * 远程提供的配置前缀，逗号分隔，默认提供所有配置
+   */
+  public static final String PREFIXES_KEY = PREFIX + "prefixes";
+  /**
+   * 刷新间隔（毫秒），默认 30000，小于等于 0 时不刷新
+   */
+  public static final String INTERVAL_KEY = PREFIX + "interval";
+  /**
+   * 请求超时时间（毫秒），默认 3000
+   */
+  public static final String TIMEOUT_KEY  = PREFIX + "timeout";
+  /**
+   * 本地缓存文件，没有指定时不使用本地缓存，启动时同步获取一次
+   */
+  public static final String CACHE_KEY    = PREFIX + "cache";
+  /**
+   * 缓存文件中保存 ETag 的 key
+   */
+  public static final String ETAG_KEY     = PREFIX + "etag";
+  /**
+   * 缓存文件中保存配置地址的 key
+   */
+  public static final String SOURCE_KEY   = PREFIX + "source";
+  /**
+   * 缓存文件中保存内容摘要的 key
+   */
+  public static final String DIGEST_KEY   = PREFIX + "digest";
+
+  protected volatile Properties properties;
+  protected volatile String     etag;
+  protected          String     url;
+  protected          File       cacheFile;
+  protected          int        timeout;
+  protected          long       interval;
+  /**
+   * 启动时使用了本地缓存，需要尽快刷新
+   */
+  protected          boolean    cached;
+  protected volatile boolean    closed;
+  private            boolean    loading;
+
+  @Override
+  public int getOrder() {
+    return REMOTE_ORDER;
+  }
+
+  /**
+   * 跳过读取指定的 key
+   *
+   * @param key 属性
+   */
+  protected boolean skipKey(String key) {
+    return key.startsWith(PREFIX);
+  }
+
+  /**
+   * 初始化，有本地缓存时先使用缓存并在后台刷新，没有缓存时同步获取一次
+   */
+  protected void init() {
+    this.url = ConfigHelper.getStr(URL_KEY);
+    if (url == null || url.isEmpty()) {
+      this.properties = new Properties();
+      return;
+    }
+    this.timeout = ConfigHelper.getInt(TIMEOUT_KEY, 3000);
+    String cache = ConfigHelper.getStr(CACHE_KEY);
+    this.cacheFile = cache != null && !cache.isEmpty() ? new File(cache) : null;
+    Properties cached = readCache();
+    if (cached != null) {
+      this.etag = cached.getProperty(ETAG_KEY);
+      cached.remove(ETAG_KEY);
+      this.properties = cached;
+    } else {
+      this.properties = new Properties();
+      try {
+        refresh();
+      } catch (RuntimeException e) {
+        log.warn(e.getMessage());
+      }
+    }
+    this.cached = cached != null;
+    this.interval = ConfigHelper.getInt(INTERVAL_KEY, 30000);
+  }
+
+  @Override
+  public long getRefreshInterval() {
+    getProperties();
+    return closed || url == null || url.isEmpty() ? 0 : interval;
+  }
+
+  @Override
+  public long getInitialDelay() {
+    return cached ? 0 : interval;
+  }
+
+  /**
+   * 从远程获取配置，配置有变化时替换内存中的快照并保存到本地缓存，获取失败时抛出异常，继续使用上次的配置
+   *
+   * @return 配置是否变化
+   */
+  @Override
+  public boolean refresh() {
+    if (closed || url == null || url.isEmpty()) {
+      return false;
+    }
+    HttpURLConnection connection = null;
+    try {
+      connection = (HttpURLConnection) new URL(url).openConnection();
+      connection.setConnectTimeout(timeout);
+      connection.setReadTimeout(timeout);
+      connection.setRequestProperty("Accept", "text/plain");
+      String etag = this.etag;
+      if (etag != null) {
+        connection.setRequestProperty("If-None-Match", etag);
+      }
+      int code = connection.getResponseCode();
+      if (code == HttpURLConnection.HTTP_NOT_MODIFIED) {
+        return false;
+      }
+      if (code != HttpURLConnection.HTTP_OK) {
+        throw new IllegalStateException("获取远程配置 " + url + " 失败，状态码: " + code);
+      }
+      Properties props = new Properties();
+      try (Reader reader = new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8)) {
+        props.load(reader);
+      }
+      String current = connection.getHeaderField("ETag");
+      this.properties = props;
+      this.etag = current;
+      writeCache(props, current);
+      return true;
+    } catch (IOException e) {
+      throw new UncheckedIOException("获取远程配置 " + url + " 失败，继续使用上次的配置: " + e.getMessage(), e);
+    } finally {
+      if (connection != null) {
+        connection.disconnect();
+      }
+    }
+  }
+
+  /**
+   * 读取本地缓存，缓存文件不是当前用户独有的、不是当前配置地址的或者内容摘要不一致时返回 null
+   */
+  protected Properties readCache() {
+    if (cacheFile == null || !cacheFile.isFile()) {
+      return null;
+    }
+    Properties props = new Properties();
+    try {
+      if (!isPrivate(cacheFile.toPath())) {
+        log.warn("远程配置缓存 " + cacheFile + " 不是当前用户独有的文件，忽略缓存");
+        return null;
+      }
+      try (Reader reader = new InputStreamReader(new FileInputStream(cacheFile), StandardCharsets.UTF_8)) {
+        props.load(reader);
+      }
+    } catch (IOException e) {
+      log.warn("读取远程配置缓存 " + cacheFile + " 失败: " + e.getMessage());
+      return null;
+    }
+    String digest = (String) props.remove(DIGEST_KEY);
+    String source = (String) props.remove(SOURCE_KEY);
+    if (!url.equals(source) || digest == null || !digest.equals(digest(props))) {
+      log.warn("远程配置缓存 " + cacheFile + " 校验失败，忽略缓存");
+      return null;
+    }
+    return props;
+  }
+
+  /**
+   * 保存本地缓存，先写入只有当前用户可以读写的临时文件再替换
+   */
+  protected void writeCache(Properties props, String etag) {
+    if (cacheFile == null) {
+      return;
+    }
+    Properties cache = new Properties();
+    cache.putAll(props);
+    if (etag != null) {
+      cache.setProperty(ETAG_KEY, etag);
+    }
+    cache.setProperty(DIGEST_KEY, digest(cache));
+    cache.setProperty(SOURCE_KEY, url);
+    Path target = cacheFile.getAbsoluteFile().toPath();
+    Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+    try {
+      Path parent = target.getParent();
+      boolean posix = parent != null && parent.getFileSystem().supportedFileAttributeViews().contains("posix");
+      if (parent != null && !Files.isDirectory(parent)) {
+        if (posix) {
+          Files.createDirectories(parent, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } else {
+          Files.createDirectories(parent);
+        }
+      }
+      Files.deleteIfExists(temp);
+      if (posix) {
+        Files.createFile(temp, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+      } else {
+        Files.createFile(temp);
+      }
+      try (Writer writer = new OutputStreamWriter(Files.newOutputStream(temp), StandardCharsets.UTF_8)) {
+        cache.store(writer, url);
+      }
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      log.warn("保存远程配置缓存 " + cacheFile + " 失败: " + e.getMessage());
+    }
+  }
+
+  /**
+   * 文件是否只有当前用户可以访问，不支持 POSIX 权限的文件系统只判断所有者
+   *
+   * @param file 文件
+   */
+  protected static boolean isPrivate(Path file) throws IOException {
+    if (!System.getProperty("user.name").equals(Files.getOwner(file).getName())) {
+      return false;
+    }
+    if (!file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+      return true;
+    }
+    Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file);
+    permissions.retainAll(EnumSet.of(PosixFilePermission.GROUP_READ, PosixFilePermission.GROUP_WRITE, PosixFilePermission.GROUP_EXECUTE,
+        PosixFilePermission.OTHERS_READ, PosixFilePermission.OTHERS_WRITE, PosixFilePermission.OTHERS_EXECUTE));
+    return permissions.isEmpty();
+  }
+
+  /**
+   * 按 key 排序后计算配置内容的 SHA-256，用于发现被截断或修改的缓存
+   *
+   * @param props 配置
+   */
+  static String digest(Properties props) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-256");
+      for (String name : new TreeSet<>(props.stringPropertyNames())) {
+        digest.update(name.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(props.getProperty(name).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+      }
+      StringBuilder sb = new StringBuilder();
+      for (byte b : digest.digest()) {
+        sb.append(String.format("%02x", b));
+      }
+      return sb.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @Override
+  public Properties getProperties() {
+    if (this.properties == null) {
+      synchronized (this) {
+        //初始化时读取远程配置地址等配置会再次调用当前方法
+        if (this.properties == null && !loading) {
+          loading = true;
+          try {
+            this.init();
+          } finally {
+            loading = false;
+          }
+        }
+      }
+    }
+    Properties props = this.properties;
+    return props != null ? props : new Properties();
+  }
+
+  @Override
+  public List<File> getSources() {
+    //远程配置无法通过文件判断是否变化
+    return Collections.emptyList();
+  }
+
+  @Override
+  public String getSourceInput() {
+    return url;
+  }
+
+  @Override
+  public String getStr(String key) {
+    if (skipKey(key)) {
+      return null;
+    }
+    return getProperties().getProperty(key);
+  }
+
+  /**
+   * 停止刷新，内存中的配置仍然可以读取
+   */
+  @Override
+  public void close() {
+    closed = true;
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.spring;
+
+import io.mybatis.config.Config;
+import io.mybatis.config.ConfigHelper;
+import io.mybatis.config.PropertiesConfig;
+import io.mybatis.config.defaults.UserConfig;
+import io.mybatis.config.defaults.VersionConfig;
+import org.springframework.core.env.EnumerablePropertySource;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 将 {@link PropertiesConfig}（用户配置、版本配置等）作为 Spring 的配置源，使 {@code @Value} 和 Spring Boot 的配置绑定可以读取这些配置
+ * <p>
+ * 这些配置的键和提供该配置的实现合并成不可变的索引，reload 后第一次读取时重新生成索引。配置值只从索引中对应的配置实现读取，
+ * 占位符也只在这些配置中解析，和直接使用 {@link ConfigHelper} 时一样解码，不会经过系统变量、Spring 环境等其他配置实现，不会产生循环。
+ * {@link SpringConfig} 读取 Spring 环境时会跳过当前配置源，不会改变配置的优先级。
+ * 生成索引时只创建用户配置和版本配置，远程配置等其他延迟创建的配置实现已经创建时才包含在内
+ *
+ * @author liuzh
+ */
+public class ConfigPropertySource extends EnumerablePropertySource<Object> {
+  public static final String NAME = "mybatisConfig";
+
+  private volatile Index   index;
+  /**
+   * 生成索引时会初始化配置实现，期间可能通过 Spring 环境再次读取当前配置源
+   */
+  private          boolean building;
+
+  public ConfigPropertySource() {
+    super(NAME, new Object());
+  }
+
+  /**
+   * 生成索引时是否创建该类型的延迟配置，默认只创建读取本地文件的用户配置和版本配置
+   *
+   * @param type 配置类型
+   */
+  protected boolean create(Class<? extends Config> type) {
+    return UserConfig.class.isAssignableFrom(type) || VersionConfig.class.isAssignableFrom(type);
+  }
+
+  /**
+   * 获取当前的索引，配置代变化时重新生成
+   */
+  protected Index index() {
+    Index index = this.index;
+    long generation = ConfigHelper.getGeneration();
+    if (index != null && index.generation == generation) {
+      return index;
+    }
+    synchronized (this) {
+      index = this.index;
+      if ((index == null || index.generation != generation) && !building) {
+        building = true;
+        try {
+          index = new Index(generation, ConfigHelper.getPropertiesConfigs(this::create));
+          this.index = index;
+        } finally {
+          building = false;
+        }
+      }
+    }
+    return index != null ? index : Index.EMPTY;
+  }
+
+  @Override
+  public String[] getPropertyNames() {
+    return index().providers.keySet().toArray(new String[0]);
+  }
+
+  @Override
+  public Object getProperty(String name) {
+    //通过 SpringConfig 读取时跳过，这些配置已经在 ConfigHelper 的配置链中，避免改变配置的优先级
+    if (SpringEnvUtil.isReading()) {
+      return null;
+    }
+    Index index = index();
+    return index.providers.containsKey(name) ? index.values.getStr(name) : null;
+  }
+
+  @Override
+  public boolean containsProperty(String name) {
+    return !SpringEnvUtil.isReading() && index().providers.containsKey(name);
+  }
+
+  /**
+   * 配置源中的配置键和提供该配置的实现
+   */
+  protected static class Index {
+    static final Index EMPTY = new Index(-1, Collections.emptyList());
+
+    private final long                          generation;
+    private final Map<String, PropertiesConfig> providers = new LinkedHashMap<>();
+    /**
+     * 按索引读取原始值，解析占位符并解码
+     */
+    private final Config                        values;
+
+    Index(long generation, List<PropertiesConfig> configs) {
+      this.generation = generation;
+      for (PropertiesConfig config : configs) {
+        for (String name : config.getProperties().stringPropertyNames()) {
+          providers.putIfAbsent(name, config);
+        }
+      }
+      this.values = configs.isEmpty() ? key -> null : ConfigHelper.layer(key -> {
+        PropertiesConfig provider = providers.get(key);
+        return provider != null ? provider.getStr(key) : null;
+      });
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.spring;
+
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.core.Ordered;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.MutablePropertySources;
+
+/**
+ * 通过 {@link #ENABLED_KEY} 启用时，将 {@link ConfigPropertySource} 注册为优先级最低的 Spring 配置源
+ *
+ * @author liuzh
+ */
+public class ConfigPropertySourceRegistrar implements BeanFactoryPostProcessor, EnvironmentAware, Ordered {
+  /**
+   * 是否注册配置源，默认不注册
+   */
+  public static final String ENABLED_KEY = "io.mybatis.config.spring.property-source";
+
+  private Environment environment;
+
+  @Override
+  public void setEnvironment(Environment environment) {
+    this.environment = environment;
+  }
+
+  @Override
+  public void postProcessBeanFactory(ConfigurableListableBeanFactory beanFactory) {
+    if (!(environment instanceof ConfigurableEnvironment)
+        || !environment.getProperty(ENABLED_KEY, Boolean.class, false)) {
+      return;
+    }
+    MutablePropertySources sources = ((ConfigurableEnvironment) environment).getPropertySources();
+    if (!sources.contains(ConfigPropertySource.NAME)) {
+      SpringEnvUtil.bridged(environment);
+      sources.addLast(new ConfigPropertySource());
+    }
+  }
+
+  @Override
+  public int getOrder() {
+    return Ordered.HIGHEST_PRECEDENCE;
+  }
+
+}
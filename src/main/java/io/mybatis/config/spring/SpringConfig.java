@@ -17,11 +17,16 @@
 package io.mybatis.config.spring;
 
 import io.mybatis.config.Config;
+import io.mybatis.config.ConfigProvider;
+import io.mybatis.config.ContextualConfig;
 
 /**
  * 支持 Spring 方式的属性配置，由于依赖 Spring EnvironmentAware 接口，当没有初始化时，过早执行时无法获取 Spring 配置
+ * <p>
+ * 不存在 Spring 时不会加载。同时注册了多个 Spring 上下文时，不同线程读取到的值可能不同，此时不缓存占位符的解析结果
  */
-public class SpringConfig implements Config {
+@ConfigProvider(order = Config.SPRING_ORDER, requires = "org.springframework.core.env.Environment")
+public class SpringConfig implements Config, ContextualConfig {
   /**
    * 跳过当前方法获取
    */
@@ -32,6 +37,11 @@ public class SpringConfig implements Config {
     return SPRING_ORDER;
   }
 
+  @Override
+  public boolean isContextual() {
+    return !skip && SpringContexts.isShared();
+  }
+
   @Override
   public String getStr(String key) {
     try {
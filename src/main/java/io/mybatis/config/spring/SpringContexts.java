@@ -0,0 +1,241 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.spring;
+
+import io.mybatis.config.ConfigHelper;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.Environment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 每个 Spring 上下文的环境，多个上下文（如并行的测试上下文、父子上下文）同时存在时互不影响
+ * <p>
+ * 读取时优先使用绑定到当前线程的上下文，上下文启动期间会绑定到执行启动的线程；
+ * 没有绑定时使用线程上下文类加载器相同的上下文，有多个时只有其他上下文都是最后注册的上下文的祖先（父子上下文）才使用最后注册的，
+ * 否则无法确定使用哪一个，记录警告并且不读取 Spring 环境，需要通过 {@link SpringEnvUtil#withContext} 指定上下文。
+ * 注册的上下文保存在一个数组中，修改时复制整个数组后替换
+ *
+ * @author liuzh
+ */
+final class SpringContexts {
+  private static final    Entry[]            EMPTY   = new Entry[0];
+  /**
+   * 绑定到线程的数量，为 0 时不访问 {@link ThreadLocal}
+   */
+  private static final    AtomicInteger      BOUND   = new AtomicInteger();
+  private static final    ThreadLocal<Entry> CURRENT = new ThreadLocal<>();
+  /**
+   * 按注册顺序保存的上下文
+   */
+  private static volatile Entry[]            entries = EMPTY;
+  /**
+   * 已经记录过无法确定上下文的警告时的注册状态，注册的上下文变化前只记录一次
+   */
+  private static volatile Entry[]            warned;
+
+  private SpringContexts() {
+  }
+
+  /**
+   * 当前线程对应的上下文，没有注册任何上下文或者无法确定使用哪一个时返回 null
+   */
+  static Entry current() {
+    if (BOUND.get() != 0) {
+      Entry entry = CURRENT.get();
+      if (entry != null) {
+        return entry;
+      }
+    }
+    Entry[] entries = SpringContexts.entries;
+    int last = entries.length - 1;
+    if (last <= 0) {
+      return last < 0 ? null : entries[0];
+    }
+    ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+    List<Entry> candidates = new ArrayList<>();
+    for (Entry entry : entries) {
+      if (entry.classLoader == classLoader) {
+        candidates.add(entry);
+      }
+    }
+    if (candidates.isEmpty()) {
+      candidates.addAll(Arrays.asList(entries));
+    }
+    Entry chosen = candidates.get(candidates.size() - 1);
+    for (int i = 0; i < candidates.size() - 1; i++) {
+      if (!isAncestor(candidates.get(i), chosen)) {
+        if (warned != entries) {
+          warned = entries;
+          ConfigHelper.log.warn("当前线程没有绑定 Spring 上下文，同时存在多个上下文，无法确定读取哪一个的环境，请通过 SpringEnvUtil.withContext 指定");
+        }
+        return null;
+      }
+    }
+    return chosen;
+  }
+
+  /**
+   * 是否是祖先上下文，子上下文可以读取到祖先上下文中的配置
+   *
+   * @param ancestor 祖先
+   * @param entry    上下文
+   */
+  private static boolean isAncestor(Entry ancestor, Entry entry) {
+    if (ancestor.context == null) {
+      return false;
+    }
+    for (ApplicationContext c = entry.context != null ? entry.context.getParent() : null; c != null; c = c.getParent()) {
+      if (c == ancestor.context) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * 是否同时注册了多个上下文，此时不同线程读取到的环境可能不同
+   */
+  static boolean isShared() {
+    return entries.length > 1;
+  }
+
+  /**
+   * 注册上下文，同一个所有者重复注册时替换之前的
+   *
+   * @param owner       所有者
+   * @param context     上下文，没有时为 null
+   * @param environment 环境，禁用时为 null
+   */
+  static synchronized Entry register(Object owner, ApplicationContext context, Environment environment) {
+    ClassLoader classLoader = context != null ? context.getClassLoader() : Thread.currentThread().getContextClassLoader();
+    Entry entry = new Entry(owner, context, environment, classLoader);
+    List<Entry> list = new ArrayList<>();
+    for (Entry e : entries) {
+      if (e.owner != owner) {
+        list.add(e);
+      }
+    }
+    list.add(entry);
+    entries = list.toArray(EMPTY);
+    return entry;
+  }
+
+  /**
+   * 移除上下文
+   *
+   * @param owner 所有者
+   */
+  static synchronized void unregister(Object owner) {
+    List<Entry> list = new ArrayList<>();
+    for (Entry e : entries) {
+      if (e.owner != owner) {
+        list.add(e);
+      }
+    }
+    entries = list.isEmpty() ? EMPTY : list.toArray(EMPTY);
+  }
+
+  /**
+   * 查找上下文对应的注册信息
+   *
+   * @param context 上下文
+   */
+  static Entry find(ApplicationContext context) {
+    for (Entry entry : entries) {
+      if (entry.context == context) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * 标记使用该环境的上下文已经注册了 {@link ConfigPropertySource}
+   *
+   * @param environment 环境
+   */
+  static void bridged(Environment environment) {
+    for (Entry entry : entries) {
+      if (entry.environment == environment) {
+        entry.bridged = true;
+      }
+    }
+  }
+
+  /**
+   * 绑定到当前线程，必须在 finally 中调用 {@link #unbind(Entry)}
+   *
+   * @param entry 上下文
+   * @return 之前绑定的上下文
+   */
+  static Entry bind(Entry entry) {
+    Entry previous = CURRENT.get();
+    BOUND.incrementAndGet();
+    CURRENT.set(entry);
+    return previous;
+  }
+
+  /**
+   * 解除绑定，恢复之前绑定的上下文
+   *
+   * @param previous 之前绑定的上下文
+   */
+  static void unbind(Entry previous) {
+    if (previous != null) {
+      CURRENT.set(previous);
+    } else {
+      CURRENT.remove();
+    }
+    BOUND.decrementAndGet();
+  }
+
+  /**
+   * 注册的上下文
+   */
+  static final class Entry {
+    private final    Object             owner;
+    private final    ApplicationContext context;
+    private final    Environment        environment;
+    private final    ClassLoader        classLoader;
+    /**
+     * 是否注册了 {@link ConfigPropertySource}，注册后读取时需要标记，避免再从该配置源读取
+     */
+    private volatile boolean            bridged;
+
+    Entry(Object owner, ApplicationContext context, Environment environment, ClassLoader classLoader) {
+      this.owner = owner;
+      this.context = context;
+      this.environment = environment;
+      this.classLoader = classLoader;
+      this.bridged = environment instanceof ConfigurableEnvironment
+          && ((ConfigurableEnvironment) environment).getPropertySources().contains(ConfigPropertySource.NAME);
+    }
+
+    Environment getEnvironment() {
+      return environment;
+    }
+
+    boolean isBridged() {
+      return bridged;
+    }
+  }
+}
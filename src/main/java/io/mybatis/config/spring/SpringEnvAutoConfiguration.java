@@ -27,4 +27,12 @@ public class SpringEnvAutoConfiguration {
     return new SpringEnvUtil();
   }
 
+  /**
+   * 启用 {@link ConfigPropertySourceRegistrar#ENABLED_KEY} 时，Spring 中也能读取用户配置和版本配置
+   */
+  @Bean
+  public static ConfigPropertySourceRegistrar configPropertySourceRegistrar() {
+    return new ConfigPropertySourceRegistrar();
+  }
+
 }
@@ -16,27 +16,125 @@
 
 package io.mybatis.config.spring;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.EnvironmentAware;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.core.env.Environment;
 
+import java.util.function.Supplier;
+
 /**
  * Spring 环境配置工具类，Spring boot 时自动注册，纯 Spring 时需要自己配置才能生效
+ * <p>
+ * 每个 Spring 上下文分别注册自己的环境，上下文关闭时移除，参考 {@link SpringContexts}
  *
  * @author liuzh
  */
-public class SpringEnvUtil implements EnvironmentAware {
-  private static Environment environment;
-  private static boolean     enabled;
+public class SpringEnvUtil implements EnvironmentAware, ApplicationContextAware, ApplicationListener<ContextRefreshedEvent>, DisposableBean {
+  /**
+   * 是否启用 Spring 支持，默认启用
+   */
+  public static final  String               ENABLED_KEY = "io.mybatis.config.spring.enabled";
+  private static final ThreadLocal<Boolean> READING     = new ThreadLocal<>();
+
+  private Environment           environment;
+  private ApplicationContext    context;
+  /**
+   * 上下文启动期间绑定到启动线程，启动完成或失败后解除
+   */
+  private Thread                startingThread;
+  private SpringContexts.Entry  previous;
 
   public static String getStr(String key) {
-    return (environment != null && enabled) ? SpringEnvUtil.environment.getProperty(key) : null;
+    SpringContexts.Entry entry = SpringContexts.current();
+    Environment environment = entry != null ? entry.getEnvironment() : null;
+    if (environment == null) {
+      return null;
+    }
+    if (!entry.isBridged()) {
+      return environment.getProperty(key);
+    }
+    READING.set(Boolean.TRUE);
+    try {
+      return environment.getProperty(key);
+    } finally {
+      READING.remove();
+    }
+  }
+
+  /**
+   * 在指定的 Spring 上下文中执行，期间当前线程读取的 Spring 配置都来自该上下文
+   *
+   * @param context  上下文，需要注册了 {@link SpringEnvUtil}
+   * @param supplier 执行的方法
+   */
+  public static <T> T withContext(ApplicationContext context, Supplier<T> supplier) {
+    SpringContexts.Entry entry = SpringContexts.find(context);
+    if (entry == null) {
+      throw new IllegalStateException("Spring 上下文 " + context.getId() + " 中没有注册 " + SpringEnvUtil.class.getSimpleName());
+    }
+    SpringContexts.Entry previous = SpringContexts.bind(entry);
+    try {
+      return supplier.get();
+    } finally {
+      SpringContexts.unbind(previous);
+    }
+  }
+
+  /**
+   * 当前线程是否正在通过 {@link SpringConfig} 读取 Spring 环境
+   */
+  static boolean isReading() {
+    return READING.get() != null;
+  }
+
+  /**
+   * 标记使用该环境的上下文已经注册了 {@link ConfigPropertySource}
+   */
+  static void bridged(Environment environment) {
+    SpringContexts.bridged(environment);
   }
 
   @Override
   public void setEnvironment(Environment environment) {
-    SpringEnvUtil.environment = environment;
     // 可以通过属性配置是否启用 Spring 支持，默认支持
-    SpringEnvUtil.enabled = environment.getProperty("io.mybatis.config.spring.enabled",
-        Boolean.class, true);
+    boolean enabled = environment.getProperty(ENABLED_KEY, Boolean.class, true);
+    this.environment = enabled ? environment : null;
+    SpringContexts.register(this, context, this.environment);
+  }
+
+  @Override
+  public void setApplicationContext(ApplicationContext context) {
+    this.context = context;
+    SpringContexts.Entry entry = SpringContexts.register(this, context, environment);
+    if (startingThread == null) {
+      startingThread = Thread.currentThread();
+      previous = SpringContexts.bind(entry);
+    }
+  }
+
+  @Override
+  public void onApplicationEvent(ContextRefreshedEvent event) {
+    //子上下文的事件也会发布到父上下文
+    if (event.getApplicationContext() == context) {
+      started();
+    }
+  }
+
+  private void started() {
+    if (startingThread == Thread.currentThread()) {
+      startingThread = null;
+      SpringContexts.unbind(previous);
+      previous = null;
+    }
+  }
+
+  @Override
+  public void destroy() {
+    started();
+    SpringContexts.unregister(this);
   }
 }
@@ -0,0 +1,435 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.util;
+
+import io.mybatis.config.Config;
+import io.mybatis.config.PropertiesConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * 配置快照，将属性文件配置解析后的结果保存为二进制文件，再次启动时如果来源文件没有变化（路径、修改时间、大小和内容摘要），
+ * 并且查找时不存在的候选文件仍然不存在，就直接从快照中读取，跳过配置文件的查找、jar 包遍历和 Properties 解析。
+ * <p>
+ * 普通文件的摘要为整个文件内容的 SHA-256，jar 包的摘要为中央目录的 SHA-256，中央目录包含每个条目的 CRC32，
+ * 任何条目的内容变化都会改变摘要，校验时不需要读取整个 jar 包。目录的摘要为其中所有文件的文件名、修改时间和大小，
+ * 目录中增加、删除或修改文件时都会改变摘要。
+ * <p>
+ * 通过系统变量 {@link #SNAPSHOT_KEY} 指定快照文件，快照文件通过 {@link io.mybatis.config.ConfigHelper#writeSnapshot(File)} 生成。
+ * <p>
+ * 文件格式：MAGIC, FORMAT, 条目数量, 条目..., CRC32，字符串使用 int 长度 + UTF-8 字节保存。
+ *
+ * @author liuzh
+ */
+public class ConfigSnapshot {
+  public static final  Logger log          = LoggerFactory.getLogger(ConfigSnapshot.class);
+  /**
+   * 快照文件对应的系统变量
+   */
+  public static final  String SNAPSHOT_KEY = "io.mybatis.config.snapshot";
+  private static final int    MAGIC        = 0x4D424353;
+  private static final int    FORMAT       = 3;
+  /**
+   * zip 文件中央目录结束标记
+   */
+  private static final int    EOCD         = 0x06054b50;
+
+  private static volatile ConfigSnapshot current;
+  private static volatile boolean        loaded;
+
+  /**
+   * 快照条目，key 为配置类名
+   */
+  private final Map<String, Entry> entries;
+
+  private ConfigSnapshot(Map<String, Entry> entries) {
+    this.entries = entries;
+  }
+
+  /**
+   * 获取通过系统变量指定的快照，不存在或者无效时返回 null
+   */
+  public static ConfigSnapshot current() {
+    if (!loaded) {
+      synchronized (ConfigSnapshot.class) {
+        if (!loaded) {
+          String path = System.getProperty(SNAPSHOT_KEY);
+          if (path != null && !path.isEmpty()) {
+            current = read(new File(path));
+          }
+          loaded = true;
+        }
+      }
+    }
+    return current;
+  }
+
+  /**
+   * 重置快照，下次使用时重新读取
+   */
+  public static void reset() {
+    synchronized (ConfigSnapshot.class) {
+      current = null;
+      loaded = false;
+    }
+  }
+
+  /**
+   * 获取配置类有效的快照配置，输入条件不同或者来源文件发生变化时返回 null
+   *
+   * @param type  配置类
+   * @param input 影响配置结果的输入，例如指定的文件名或版本
+   */
+  public static Entry lookup(Class<?> type, String input) {
+    ConfigSnapshot snapshot = current();
+    if (snapshot == null) {
+      return null;
+    }
+    Entry entry = snapshot.entries.get(type.getName());
+    if (entry == null || !Objects.equals(entry.input, input) || !entry.isValid()) {
+      return null;
+    }
+    return entry;
+  }
+
+  /**
+   * 读取快照文件，通过内存映射读取
+   *
+   * @param file 快照文件
+   */
+  public static ConfigSnapshot read(File file) {
+    if (!file.isFile()) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.limit() < 16 || buffer.getInt() != MAGIC || buffer.getInt() != FORMAT) {
+        log.warn("配置快照文件 " + file + " 格式错误，忽略快照");
+        return null;
+      }
+      CRC32 crc = new CRC32();
+      ByteBuffer body = buffer.duplicate();
+      body.position(0).limit(buffer.limit() - 8);
+      crc.update(body);
+      buffer.position(buffer.limit() - 8);
+      if (buffer.getLong() != crc.getValue()) {
+        log.warn("配置快照文件 " + file + " 校验失败，忽略快照");
+        return null;
+      }
+      buffer.position(8);
+      int count = buffer.getInt();
+      Map<String, Entry> entries = new HashMap<>(count * 2);
+      for (int i = 0; i < count; i++) {
+        Entry entry = new Entry();
+        entry.type = readString(buffer);
+        entry.input = readString(buffer);
+        entry.version = readString(buffer);
+        int sourceCount = buffer.getInt();
+        entry.sources = new ArrayList<>(sourceCount);
+        for (int j = 0; j < sourceCount; j++) {
+          entry.sources.add(new Fingerprint(readString(buffer), buffer.getLong(), buffer.getLong(), readBytes(buffer)));
+        }
+        int candidateCount = buffer.getInt();
+        entry.candidates = new ArrayList<>(candidateCount);
+        for (int j = 0; j < candidateCount; j++) {
+          entry.candidates.add(readString(buffer));
+        }
+        int size = buffer.getInt();
+        entry.properties = new Properties();
+        for (int j = 0; j < size; j++) {
+          entry.properties.setProperty(readString(buffer), readString(buffer));
+        }
+        entries.put(entry.type, entry);
+      }
+      return new ConfigSnapshot(entries);
+    } catch (IOException | RuntimeException e) {
+      log.warn("读取配置快照文件 " + file + " 失败: " + e.getMessage());
+      return null;
+    }
+  }
+
+  /**
+   * 写入快照文件，只记录属性文件配置，先写入临时文件然后替换
+   *
+   * @param file    快照文件
+   * @param configs 配置
+   */
+  public static void write(File file, Collection<? extends Config> configs) throws IOException {
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null && !parent.exists() && !parent.mkdirs()) {
+      throw new IOException("无法创建目录 " + parent);
+    }
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT);
+    List<PropertiesConfig> list = new ArrayList<>();
+    for (Config config : configs) {
+      if (config instanceof PropertiesConfig) {
+        PropertiesConfig propertiesConfig = (PropertiesConfig) config;
+        //没有来源文件时无法判断是否变化，不记录
+        if (!propertiesConfig.getSources().isEmpty()) {
+          list.add(propertiesConfig);
+        }
+      }
+    }
+    out.writeInt(list.size());
+    for (PropertiesConfig config : list) {
+      writeString(out, config.getClass().getName());
+      writeString(out, config.getSourceInput());
+      writeString(out, config.getVersion());
+      List<File> sources = config.getSources();
+      out.writeInt(sources.size());
+      for (File source : sources) {
+        writeString(out, source.getAbsolutePath());
+        out.writeLong(source.lastModified());
+        out.writeLong(source.length());
+        writeBytes(out, digest(source));
+      }
+      List<File> candidates = config.getCandidates();
+      out.writeInt(candidates.size());
+      for (File candidate : candidates) {
+        writeString(out, candidate.getAbsolutePath());
+      }
+      Properties properties = config.getProperties();
+      Set<String> names = properties.stringPropertyNames();
+      out.writeInt(names.size());
+      for (String name : names) {
+        writeString(out, name);
+        writeString(out, properties.getProperty(name));
+      }
+    }
+    out.flush();
+    CRC32 crc = new CRC32();
+    byte[] body = bytes.toByteArray();
+    crc.update(body, 0, body.length);
+    File temp = new File(file.getAbsolutePath() + ".tmp");
+    try (DataOutputStream fileOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+      fileOut.write(body);
+      fileOut.writeLong(crc.getValue());
+    }
+    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private static String readString(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static byte[] readBytes(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * 来源文件的内容摘要，zip 格式的文件（jar 包）只计算中央目录，目录计算其中所有文件的文件名、修改时间和大小，其他文件计算整个文件
+   *
+   * @param file 来源文件
+   */
+  static byte[] digest(File file) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    if (file.isDirectory()) {
+      File[] children = file.listFiles();
+      if (children == null) {
+        throw new IOException("无法读取目录 " + file);
+      }
+      Arrays.sort(children);
+      ByteBuffer buffer = ByteBuffer.allocate(16);
+      for (File child : children) {
+        digest.update(child.getName().getBytes(StandardCharsets.UTF_8));
+        buffer.clear();
+        buffer.putLong(child.lastModified()).putLong(child.length()).flip();
+        digest.update(buffer);
+      }
+      return digest.digest();
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long size = channel.size();
+      ByteBuffer directory = centralDirectory(channel, size);
+      if (directory != null) {
+        digest.update(directory);
+      } else {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        channel.position(0);
+        while (channel.read(buffer) > 0) {
+          buffer.flip();
+          digest.update(buffer);
+          buffer.clear();
+        }
+      }
+    }
+    return digest.digest();
+  }
+
+  /**
+   * 读取 zip 文件的中央目录，不是 zip 文件时返回 null
+   */
+  private static ByteBuffer centralDirectory(FileChannel channel, long size) throws IOException {
+    //中央目录结束记录为 22 字节，最后可能有最长 65535 字节的注释
+    int tail = (int) Math.min(size, 22 + 65535);
+    if (tail < 22) {
+      return null;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(tail).order(ByteOrder.LITTLE_ENDIAN);
+    channel.read(buffer, size - tail);
+    for (int i = tail - 22; i >= 0; i--) {
+      if (buffer.getInt(i) == EOCD) {
+        long length = buffer.getInt(i + 12) & 0xFFFFFFFFL;
+        long offset = buffer.getInt(i + 16) & 0xFFFFFFFFL;
+        if (offset + length > size - tail + i || length > Integer.MAX_VALUE) {
+          return null;
+        }
+        ByteBuffer directory = ByteBuffer.allocate((int) length);
+        channel.read(directory, offset);
+        directory.flip();
+        return directory;
+      }
+    }
+    return null;
+  }
+
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+    } else {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeInt(bytes.length);
+      out.write(bytes);
+    }
+  }
+
+  /**
+   * 快照中的配置类条目
+   */
+  public static class Entry {
+    private String            type;
+    private String            input;
+    private String            version;
+    private List<Fingerprint> sources;
+    /**
+     * 写入快照时不存在的候选文件
+     */
+    private List<String>      candidates;
+    private Properties        properties;
+
+    /**
+     * 来源文件是否都没有变化，候选文件是否仍然不存在
+     */
+    boolean isValid() {
+      for (Fingerprint source : sources) {
+        if (!source.matches()) {
+          return false;
+        }
+      }
+      for (String candidate : candidates) {
+        if (new File(candidate).exists()) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    public String getVersion() {
+      return version;
+    }
+
+    public List<File> getSources() {
+      List<File> files = new ArrayList<>(sources.size());
+      for (Fingerprint source : sources) {
+        files.add(new File(source.path));
+      }
+      return files;
+    }
+
+    public List<File> getCandidates() {
+      List<File> files = new ArrayList<>(candidates.size());
+      for (String candidate : candidates) {
+        files.add(new File(candidate));
+      }
+      return files;
+    }
+
+    /**
+     * 快照中的配置，返回副本
+     */
+    public Properties getProperties() {
+      Properties props = new Properties();
+      props.putAll(properties);
+      return props;
+    }
+  }
+
+  /**
+   * 来源文件指纹，修改时间和大小不同时直接判断为变化，相同时再比较内容摘要
+   */
+  private static class Fingerprint {
+    private final String path;
+    private final long   lastModified;
+    private final long   length;
+    private final byte[] digest;
+
+    Fingerprint(String path, long lastModified, long length, byte[] digest) {
+      this.path = path;
+      this.lastModified = lastModified;
+      this.length = length;
+      this.digest = digest;
+    }
+
+    boolean matches() {
+      File file = new File(path);
+      if (file.lastModified() != lastModified || file.length() != length || !file.exists()) {
+        return false;
+      }
+      try {
+        return MessageDigest.isEqual(digest, digest(file));
+      } catch (IOException e) {
+        log.warn("读取配置来源文件 " + path + " 失败: " + e.getMessage());
+        return false;
+      }
+    }
+  }
+}
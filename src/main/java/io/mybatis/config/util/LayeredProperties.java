@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.util;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * 按顺序叠加的多个属性配置，后面的覆盖前面的，适用于多个用户配置文件中包含 {@link MappedProperties} 等大配置的场景
+ * <p>
+ * 每一层保持原来的存储方式，读取时从最后一层开始逐层查找，不会把堆外的配置复制到堆中。
+ * 只支持读取，不支持修改，{@link Hashtable} 的 entrySet 等视图在第一次使用时根据所有层合并后生成。
+ *
+ * @author liuzh
+ */
+public class LayeredProperties extends ReadOnlyProperties {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * 所有层，优先级从高到低
+   */
+  private final transient Properties[] layers;
+  /**
+   * 不重复的配置数量，第一次使用时计算
+   */
+  private transient volatile int       size = -1;
+
+  /**
+   * @param layers 所有层，后面的覆盖前面的
+   */
+  public LayeredProperties(List<Properties> layers) {
+    this.layers = new Properties[layers.size()];
+    for (int i = 0; i < this.layers.length; i++) {
+      this.layers[i] = layers.get(layers.size() - 1 - i);
+    }
+  }
+
+  @Override
+  protected String lookup(String key) {
+    for (Properties layer : layers) {
+      String value = layer.getProperty(key);
+      if (value != null) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  protected void forEachEntry(BiConsumer<String, String> action) {
+    Set<String> visited = new HashSet<>();
+    for (Properties layer : layers) {
+      for (String key : layer.stringPropertyNames()) {
+        if (visited.add(key)) {
+          action.accept(key, layer.getProperty(key));
+        }
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    int size = this.size;
+    if (size < 0) {
+      Set<String> keys = new HashSet<>();
+      for (Properties layer : layers) {
+        keys.addAll(layer.stringPropertyNames());
+      }
+      size = keys.size();
+      this.size = size;
+    }
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    for (Properties layer : layers) {
+      if (!layer.stringPropertyNames().isEmpty()) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,405 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiConsumer;
+
+/**
+ * 保存在堆外内存中的属性文件，适用于非常大的配置文件
+ * <p>
+ * 加载时把文件内容一次性复制到堆外内存，之后不再访问文件，文件被截断或者原地改写时不会影响已经加载的配置
+ * （直接使用内存映射时会导致 SIGBUS 或 {@link InternalError}），复制前后文件的大小和修改时间不一致时重新读取。
+ * <p>
+ * 加载时只扫描一遍内容，记录每个配置键的哈希值和偏移位置，配置值在第一次访问时才解码，最多缓存 {@link #CACHE_LIMIT} 个解码后的值，
+ * 文件格式和 {@link Properties#load(java.io.InputStream)} 一致（ISO-8859-1 编码，支持 \\uXXXX 转义和续行）。
+ * <p>
+ * 只支持读取，不支持修改，{@link Hashtable} 的 entrySet 等视图在第一次使用时解码全部配置后生成。
+ *
+ * @author liuzh
+ */
+public class MappedProperties extends ReadOnlyProperties {
+  private static final long serialVersionUID = 1L;
+  private static final int  ESCAPED          = 0x10000;
+  private static final int  EOL              = -1;
+  /**
+   * 缓存的解码后配置值数量上限，超过时清空
+   */
+  public static final  int  CACHE_LIMIT      = 4096;
+  /**
+   * 读取过程中文件被修改时的最多读取次数
+   */
+  private static final int  READ_ATTEMPTS    = 3;
+
+  private final transient ByteBuffer                    buffer;
+  /**
+   * 配置键的开始位置
+   */
+  private final transient int[]                         keyOffsets;
+  /**
+   * 配置值的开始位置
+   */
+  private final transient int[]                         valueOffsets;
+  /**
+   * 配置键的哈希值
+   */
+  private final transient int[]                         hashes;
+  /**
+   * 开放寻址的哈希表，保存条目下标 + 1，0 表示空
+   */
+  private final transient int[]                         table;
+  /**
+   * 不重复的配置数量
+   */
+  private final transient int                           size;
+  /**
+   * 已经解码的配置值
+   */
+  private final transient ConcurrentMap<String, String> values = new ConcurrentHashMap<>();
+
+  public MappedProperties(File file) throws IOException {
+    this.buffer = read(file);
+    IntList keys = new IntList();
+    IntList values = new IntList();
+    IntList hashes = new IntList();
+    scan(keys, values, hashes);
+    this.keyOffsets = keys.toArray();
+    this.valueOffsets = values.toArray();
+    this.hashes = hashes.toArray();
+    int capacity = Integer.highestOneBit(Math.max(keyOffsets.length, 1) * 2 + 1) << 1;
+    this.table = new int[capacity];
+    for (int i = 0; i < keyOffsets.length; i++) {
+      index(i);
+    }
+    int size = 0;
+    for (int slot : table) {
+      if (slot != 0) {
+        size++;
+      }
+    }
+    this.size = size;
+  }
+
+  /**
+   * 把文件内容复制到堆外内存，复制前后文件的大小或修改时间不一致时重新读取
+   *
+   * @param file 配置文件
+   */
+  private static ByteBuffer read(File file) throws IOException {
+    for (int i = 0; i < READ_ATTEMPTS; i++) {
+      long length = file.length();
+      long lastModified = file.lastModified();
+      if (length > Integer.MAX_VALUE) {
+        throw new IOException("配置文件 " + file + " 超过 2GB，无法读取");
+      }
+      ByteBuffer buffer = ByteBuffer.allocateDirect((int) length);
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+        }
+      }
+      if (!buffer.hasRemaining() && file.length() == length && file.lastModified() == lastModified) {
+        buffer.flip();
+        return buffer;
+      }
+    }
+    throw new IOException("配置文件 " + file + " 在读取过程中一直被修改");
+  }
+
+  /**
+   * 扫描文件，记录每个配置的位置
+   */
+  private void scan(IntList keys, IntList values, IntList hashes) {
+    Cursor cursor = new Cursor(buffer);
+    int limit = buffer.limit();
+    while (cursor.pos < limit) {
+      int c = buffer.get(cursor.pos) & 0xFF;
+      if (c == ' ' || c == '\t' || c == '\f' || c == '\r' || c == '\n') {
+        cursor.pos++;
+        continue;
+      }
+      if (c == '#' || c == '!') {
+        cursor.skipLine();
+        continue;
+      }
+      int keyStart = cursor.pos;
+      int hash = 0;
+      int ch;
+      while ((ch = cursor.next()) != EOL && !isKeyEnd(ch)) {
+        hash = 31 * hash + (char) ch;
+      }
+      if (ch != EOL) {
+        cursor.skipSeparator(ch);
+      }
+      keys.add(keyStart);
+      values.add(cursor.pos);
+      hashes.add(hash);
+      //跳过值
+      while (cursor.next() != EOL) {
+      }
+    }
+  }
+
+  private static boolean isKeyEnd(int c) {
+    return c == '=' || c == ':' || c == ' ' || c == '\t' || c == '\f';
+  }
+
+  private static boolean isWhitespace(int c) {
+    return c == ' ' || c == '\t' || c == '\f';
+  }
+
+  /**
+   * 添加到哈希表，存在相同的配置键时，后面的覆盖前面的
+   */
+  private void index(int entry) {
+    int mask = table.length - 1;
+    int slot = hashes[entry] & mask;
+    String key = null;
+    while (table[slot] != 0) {
+      int existing = table[slot] - 1;
+      if (hashes[existing] == hashes[entry]) {
+        if (key == null) {
+          key = decodeKey(entry);
+        }
+        if (key.equals(decodeKey(existing))) {
+          table[slot] = entry + 1;
+          return;
+        }
+      }
+      slot = (slot + 1) & mask;
+    }
+    table[slot] = entry + 1;
+  }
+
+  /**
+   * 查找配置键对应的条目
+   */
+  private int find(String key) {
+    int hash = key.hashCode();
+    int mask = table.length - 1;
+    int slot = hash & mask;
+    while (table[slot] != 0) {
+      int entry = table[slot] - 1;
+      if (hashes[entry] == hash && matches(entry, key)) {
+        return entry;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  private boolean matches(int entry, String key) {
+    Cursor cursor = new Cursor(buffer);
+    cursor.pos = keyOffsets[entry];
+    int length = key.length();
+    for (int i = 0; i < length; i++) {
+      int c = cursor.next();
+      if (c == EOL || isKeyEnd(c) || (char) c != key.charAt(i)) {
+        return false;
+      }
+    }
+    int c = cursor.next();
+    return c == EOL || isKeyEnd(c);
+  }
+
+  private String decodeKey(int entry) {
+    Cursor cursor = new Cursor(buffer);
+    cursor.pos = keyOffsets[entry];
+    StringBuilder sb = new StringBuilder();
+    int c;
+    while ((c = cursor.next()) != EOL && !isKeyEnd(c)) {
+      sb.append((char) c);
+    }
+    return sb.toString();
+  }
+
+  private String decodeValue(int entry) {
+    Cursor cursor = new Cursor(buffer);
+    cursor.pos = valueOffsets[entry];
+    StringBuilder sb = new StringBuilder();
+    int c;
+    while ((c = cursor.next()) != EOL) {
+      sb.append((char) c);
+    }
+    return sb.toString();
+  }
+
+  @Override
+  protected String lookup(String key) {
+    String value = values.get(key);
+    if (value == null) {
+      int entry = find(key);
+      if (entry < 0) {
+        return null;
+      }
+      value = decodeValue(entry);
+      if (values.size() >= CACHE_LIMIT) {
+        values.clear();
+      }
+      values.putIfAbsent(key, value);
+    }
+    return value;
+  }
+
+  @Override
+  protected void forEachEntry(BiConsumer<String, String> action) {
+    for (int slot : table) {
+      if (slot != 0) {
+        String key = decodeKey(slot - 1);
+        action.accept(key, lookup(key));
+      }
+    }
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * 逻辑行读取，处理续行和转义，返回解码后的字符，转义字符带有 {@link #ESCAPED} 标记
+   */
+  private static class Cursor {
+    private final ByteBuffer buffer;
+    private final int        limit;
+    private       int        pos;
+
+    Cursor(ByteBuffer buffer) {
+      this.buffer = buffer;
+      this.limit = buffer.limit();
+    }
+
+    int next() {
+      while (pos < limit) {
+        int c = buffer.get(pos) & 0xFF;
+        if (c == '\n' || c == '\r') {
+          return EOL;
+        }
+        pos++;
+        if (c != '\\') {
+          return c;
+        }
+        if (pos >= limit) {
+          return EOL;
+        }
+        int d = buffer.get(pos) & 0xFF;
+        pos++;
+        if (d == '\r' || d == '\n') {
+          //续行
+          if (d == '\r' && pos < limit && buffer.get(pos) == '\n') {
+            pos++;
+          }
+          while (pos < limit && isWhitespace(buffer.get(pos) & 0xFF)) {
+            pos++;
+          }
+          continue;
+        }
+        switch (d) {
+          case 't':
+            return '\t' | ESCAPED;
+          case 'r':
+            return '\r' | ESCAPED;
+          case 'n':
+            return '\n' | ESCAPED;
+          case 'f':
+            return '\f' | ESCAPED;
+          case 'u':
+            if (pos + 4 > limit) {
+              throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+            }
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+              int digit = Character.digit(buffer.get(pos++) & 0xFF, 16);
+              if (digit < 0) {
+                throw new IllegalArgumentException("Malformed \\uxxxx encoding.");
+              }
+              value = (value << 4) + digit;
+            }
+            return value | ESCAPED;
+          default:
+            return d | ESCAPED;
+        }
+      }
+      return EOL;
+    }
+
+    /**
+     * 跳过配置键后面的空白和分隔符
+     *
+     * @param end 结束配置键的字符
+     */
+    void skipSeparator(int end) {
+      boolean separator = end == '=' || end == ':';
+      while (pos < limit) {
+        int mark = pos;
+        int c = next();
+        if (c == EOL) {
+          return;
+        }
+        if (isWhitespace(c)) {
+          continue;
+        }
+        if (!separator && (c == '=' || c == ':')) {
+          separator = true;
+          continue;
+        }
+        pos = mark;
+        return;
+      }
+    }
+
+    void skipLine() {
+      while (pos < limit) {
+        int c = buffer.get(pos) & 0xFF;
+        if (c == '\n' || c == '\r') {
+          return;
+        }
+        pos++;
+      }
+    }
+  }
+
+  /**
+   * int 动态数组
+   */
+  private static class IntList {
+    private int[] data = new int[64];
+    private int   size;
+
+    void add(int value) {
+      if (size == data.length) {
+        data = Arrays.copyOf(data, size << 1);
+      }
+      data[size++] = value;
+    }
+
+    int[] toArray() {
+      return Arrays.copyOf(data, size);
+    }
+  }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * 堆外紧凑存储的配置，适用于特性开关、路由表等非常大的配置
+ * <p>
+ * 配置键和值以 UTF-8 保存在一块 {@link ByteBuffer} 中，并预先计算好开放寻址的哈希索引，读取时才创建字符串，
+ * 不会在堆中保留 {@link Hashtable} 条目和 UTF-16 字符串。
+ * <p>
+ * 数据格式：条目数量(int), 槽数量(int), 槽[哈希(int), 条目偏移+1(int)]..., 条目[键长度(int), 键, 值长度(int), 值]...，
+ * 数据可以来自直接内存，也可以来自内存映射文件。
+ * <p>
+ * 只支持读取，不支持修改，{@link Hashtable} 的 entrySet 等视图在第一次使用时读取全部配置后生成。
+ *
+ * @author liuzh
+ */
+public class OffHeapProperties extends ReadOnlyProperties {
+  /**
+   * 配置存储方式对应的系统变量，值为 {@link #OFF_HEAP} 时使用堆外存储
+   */
+  public static final  String STORAGE_KEY      = "io.mybatis.config.storage";
+  public static final  String OFF_HEAP         = "off-heap";
+  private static final long   serialVersionUID = 1L;
+  private static final int    HEADER           = 8;
+  private static final int    SLOT             = 8;
+
+  private final transient ByteBuffer data;
+  private final transient int        count;
+  private final transient int        slots;
+  private final transient int        arena;
+
+  /**
+   * 使用已经编码的数据
+   *
+   * @param data 通过 {@link #encode(Properties, boolean)} 编码的数据
+   */
+  public OffHeapProperties(ByteBuffer data) {
+    this.data = data.duplicate();
+    this.count = this.data.getInt(0);
+    this.slots = this.data.getInt(4);
+    this.arena = HEADER + slots * SLOT;
+  }
+
+  /**
+   * 将配置复制到直接内存中
+   *
+   * @param properties 配置，包括默认配置
+   */
+  public OffHeapProperties(Properties properties) {
+    this(encode(properties, true));
+  }
+
+  /**
+   * 是否启用堆外存储
+   */
+  public static boolean isEnabled() {
+    return OFF_HEAP.equalsIgnoreCase(System.getProperty(STORAGE_KEY));
+  }
+
+  /**
+   * 编码配置
+   *
+   * @param properties 配置，包括默认配置
+   * @param direct     是否使用直接内存
+   * @return 编码后的数据
+   */
+  public static ByteBuffer encode(Properties properties, boolean direct) {
+    Set<String> names = properties.stringPropertyNames();
+    int slots = Integer.highestOneBit(Math.max(names.size(), 1) * 2 - 1) << 1;
+    long size = HEADER + (long) slots * SLOT;
+    for (String name : names) {
+      size += 8 + utf8Length(name) + utf8Length(properties.getProperty(name));
+    }
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("配置数据超过 2GB，无法使用堆外存储");
+    }
+    ByteBuffer buffer = direct ? ByteBuffer.allocateDirect((int) size) : ByteBuffer.allocate((int) size);
+    buffer.putInt(0, names.size());
+    buffer.putInt(4, slots);
+    int arena = HEADER + slots * SLOT;
+    buffer.position(arena);
+    int mask = slots - 1;
+    for (String name : names) {
+      int offset = buffer.position() - arena;
+      byte[] key = name.getBytes(StandardCharsets.UTF_8);
+      byte[] value = properties.getProperty(name).getBytes(StandardCharsets.UTF_8);
+      buffer.putInt(key.length).put(key).putInt(value.length).put(value);
+      int hash = name.hashCode();
+      int slot = hash & mask;
+      while (buffer.getInt(HEADER + slot * SLOT + 4) != 0) {
+        slot = (slot + 1) & mask;
+      }
+      buffer.putInt(HEADER + slot * SLOT, hash);
+      buffer.putInt(HEADER + slot * SLOT + 4, offset + 1);
+    }
+    buffer.rewind();
+    return buffer;
+  }
+
+  private static int utf8Length(String value) {
+    int length = 0;
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+        length += 4;
+        i++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * 编码后的数据大小
+   */
+  public int getDataSize() {
+    return data.limit();
+  }
+
+  /**
+   * 查找配置键对应条目的偏移位置，不存在时返回 -1
+   */
+  private int find(String key) {
+    int hash = key.hashCode();
+    int mask = slots - 1;
+    int slot = hash & mask;
+    while (true) {
+      int entry = data.getInt(HEADER + slot * SLOT + 4);
+      if (entry == 0) {
+        return -1;
+      }
+      if (data.getInt(HEADER + slot * SLOT) == hash && matches(arena + entry - 1, key)) {
+        return arena + entry - 1;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private boolean matches(int offset, String key) {
+    int length = data.getInt(offset);
+    if (length < key.length()) {
+      return false;
+    }
+    if (length == key.length()) {
+      int i = 0;
+      for (; i < length; i++) {
+        byte b = data.get(offset + 4 + i);
+        if (b < 0) {
+          break;
+        }
+        if (b != key.charAt(i)) {
+          return false;
+        }
+      }
+      if (i == length) {
+        return true;
+      }
+    }
+    //包含多字节字符
+    return key.equals(readString(offset));
+  }
+
+  private String readString(int offset) {
+    int length = data.getInt(offset);
+    byte[] bytes = new byte[length];
+    ByteBuffer slice = data.duplicate();
+    slice.position(offset + 4);
+    slice.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  protected String lookup(String key) {
+    int offset = find(key);
+    return offset < 0 ? null : readString(offset + 4 + data.getInt(offset));
+  }
+
+  @Override
+  protected void forEachEntry(BiConsumer<String, String> action) {
+    int offset = arena;
+    for (int i = 0; i < count; i++) {
+      String key = readString(offset);
+      offset += 4 + data.getInt(offset);
+      action.accept(key, readString(offset));
+      offset += 4 + data.getInt(offset);
+    }
+  }
+
+  @Override
+  public int size() {
+    return count;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return count == 0;
+  }
+}
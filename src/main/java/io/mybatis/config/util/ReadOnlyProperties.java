@@ -0,0 +1,333 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamException;
+import java.io.Reader;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * 只读的属性配置，配置保存在 {@link Hashtable} 之外，子类只需要提供查找和遍历方法
+ * <p>
+ * {@link #keySet()}、{@link #entrySet()}、{@link #values()} 等视图在第一次使用时根据全部配置生成，之后不再变化。
+ * 所有修改方法都会抛出 {@link UnsupportedOperationException}，序列化时替换为包含相同配置的 {@link Properties}
+ * <p>
+ * 通过 {@link #of(Properties)} 获取普通 {@link Properties} 的只读视图
+ *
+ * @author liuzh
+ */
+public abstract class ReadOnlyProperties extends Properties {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * 全部配置，不包含默认配置，使用视图时才生成
+   */
+  private transient volatile Map<Object, Object> entries;
+
+  ReadOnlyProperties() {
+  }
+
+  ReadOnlyProperties(Properties defaults) {
+    super(defaults);
+  }
+
+  /**
+   * 获取只读视图，读取时直接访问原来的配置，原来的配置不应该再修改
+   *
+   * @param properties 配置
+   * @return 只读视图，已经是只读配置时直接返回
+   */
+  public static Properties of(Properties properties) {
+    return properties instanceof ReadOnlyProperties ? properties : new View(properties);
+  }
+
+  /**
+   * 查找配置值，不包含默认配置
+   *
+   * @param key 配置键
+   * @return 配置值，不存在时返回 null
+   */
+  protected abstract String lookup(String key);
+
+  /**
+   * 遍历全部配置，不包含默认配置，每个配置键只出现一次
+   *
+   * @param action 处理方法
+   */
+  protected abstract void forEachEntry(BiConsumer<String, String> action);
+
+  /**
+   * 全部配置组成的不可修改的 Map
+   */
+  private Map<Object, Object> entries() {
+    Map<Object, Object> entries = this.entries;
+    if (entries == null) {
+      Map<Object, Object> map = new LinkedHashMap<>(size() * 2);
+      forEachEntry(map::put);
+      entries = Collections.unmodifiableMap(map);
+      this.entries = entries;
+    }
+    return entries;
+  }
+
+  private UnsupportedOperationException readOnly() {
+    return new UnsupportedOperationException(getClass().getSimpleName() + " 不支持修改");
+  }
+
+  @Override
+  public String getProperty(String key) {
+    String value = lookup(key);
+    if (value == null && defaults != null) {
+      return defaults.getProperty(key);
+    }
+    return value;
+  }
+
+  @Override
+  public String getProperty(String key, String defaultValue) {
+    String value = getProperty(key);
+    return value != null ? value : defaultValue;
+  }
+
+  @Override
+  public Set<String> stringPropertyNames() {
+    Set<String> names = defaults != null ? new HashSet<>(defaults.stringPropertyNames()) : new HashSet<>(size() * 2);
+    forEachEntry((key, value) -> names.add(key));
+    return Collections.unmodifiableSet(names);
+  }
+
+  @Override
+  public Enumeration<?> propertyNames() {
+    return Collections.enumeration(stringPropertyNames());
+  }
+
+  @Override
+  public Object get(Object key) {
+    return key instanceof String ? lookup((String) key) : null;
+  }
+
+  @Override
+  public Object getOrDefault(Object key, Object defaultValue) {
+    Object value = get(key);
+    return value != null ? value : defaultValue;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    return entries().containsValue(value);
+  }
+
+  @Override
+  public boolean contains(Object value) {
+    return containsValue(value);
+  }
+
+  @Override
+  public Set<Object> keySet() {
+    return entries().keySet();
+  }
+
+  @Override
+  public Set<Map.Entry<Object, Object>> entrySet() {
+    return entries().entrySet();
+  }
+
+  @Override
+  public Collection<Object> values() {
+    return entries().values();
+  }
+
+  @Override
+  public Enumeration<Object> keys() {
+    return Collections.enumeration(keySet());
+  }
+
+  @Override
+  public Enumeration<Object> elements() {
+    return Collections.enumeration(values());
+  }
+
+  @Override
+  public void forEach(BiConsumer<? super Object, ? super Object> action) {
+    entries().forEach(action);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    return o == this || (o instanceof Map && entries().equals(o));
+  }
+
+  @Override
+  public int hashCode() {
+    return entries().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return entries().toString();
+  }
+
+  /**
+   * 复制为普通的 {@link Properties}，默认配置保持共享
+   */
+  @Override
+  public Object clone() {
+    Properties copy = new Properties(defaults);
+    forEachEntry(copy::setProperty);
+    return copy;
+  }
+
+  /**
+   * 序列化时替换为普通的 {@link Properties}
+   */
+  protected final Object writeReplace() throws ObjectStreamException {
+    return clone();
+  }
+
+  @Override
+  public Object setProperty(String key, String value) {
+    throw readOnly();
+  }
+
+  @Override
+  public Object put(Object key, Object value) {
+    throw readOnly();
+  }
+
+  @Override
+  public void putAll(Map<?, ?> t) {
+    throw readOnly();
+  }
+
+  @Override
+  public Object putIfAbsent(Object key, Object value) {
+    throw readOnly();
+  }
+
+  @Override
+  public Object remove(Object key) {
+    throw readOnly();
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    throw readOnly();
+  }
+
+  @Override
+  public Object replace(Object key, Object value) {
+    throw readOnly();
+  }
+
+  @Override
+  public boolean replace(Object key, Object oldValue, Object newValue) {
+    throw readOnly();
+  }
+
+  @Override
+  public void replaceAll(BiFunction<? super Object, ? super Object, ?> function) {
+    throw readOnly();
+  }
+
+  @Override
+  public Object computeIfAbsent(Object key, Function<? super Object, ?> mappingFunction) {
+    throw readOnly();
+  }
+
+  @Override
+  public Object computeIfPresent(Object key, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+    throw readOnly();
+  }
+
+  @Override
+  public Object compute(Object key, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+    throw readOnly();
+  }
+
+  @Override
+  public Object merge(Object key, Object value, BiFunction<? super Object, ? super Object, ?> remappingFunction) {
+    throw readOnly();
+  }
+
+  @Override
+  public void clear() {
+    throw readOnly();
+  }
+
+  @Override
+  public void load(Reader reader) throws IOException {
+    throw readOnly();
+  }
+
+  @Override
+  public void load(InputStream inStream) throws IOException {
+    throw readOnly();
+  }
+
+  @Override
+  public void loadFromXML(InputStream in) throws IOException {
+    throw readOnly();
+  }
+
+  /**
+   * 普通配置的只读视图
+   */
+  private static class View extends ReadOnlyProperties {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Properties source;
+
+    View(Properties source) {
+      this.source = source;
+    }
+
+    @Override
+    protected String lookup(String key) {
+      Object value = source.get(key);
+      return value instanceof String ? (String) value : null;
+    }
+
+    @Override
+    protected void forEachEntry(BiConsumer<String, String> action) {
+      source.forEach((key, value) -> {
+        if (key instanceof String && value instanceof String) {
+          action.accept((String) key, (String) value);
+        }
+      });
+    }
+
+    @Override
+    public int size() {
+      return source.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+      return source.isEmpty();
+    }
+  }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * 同一台机器上多个 JVM 共享的配置区域，一个进程通过 {@link #publish(File, Properties)} 写入，其他进程通过内存映射读取
+ * <p>
+ * 文件格式：头部 64 字节 [MAGIC(int), FORMAT(int), 序号(long), 数据长度(int), 数据 CRC32(int)]，之后是
+ * {@link OffHeapProperties} 格式的数据。写入时先将序号加 1 变为奇数，写完数据后再加 1 变为偶数，
+ * 读取时序号为奇数或者复制数据前后序号不同时重试，并校验 CRC32，不需要加锁就能读取到完整一致的配置。
+ * <p>
+ * 每次读取只比较一次序号，序号没有变化时直接使用上次复制的配置，不需要重新解析。
+ * 写入方在写入过程中退出时序号会一直是奇数，重试失败后记录该序号并使用上次读取的配置，间隔一段时间后才会再次尝试，
+ * 直到写入方重新写入。
+ *
+ * @author liuzh
+ */
+public class SharedConfigRegion {
+  public static final  Logger log           = LoggerFactory.getLogger(SharedConfigRegion.class);
+  private static final int    MAGIC         = 0x4D424352;
+  private static final int    FORMAT        = 1;
+  private static final int    SEQ           = 8;
+  private static final int    LENGTH        = 16;
+  private static final int    CRC           = 20;
+  private static final int    HEADER        = 64;
+  private static final int    RETRIES       = 100;
+  /**
+   * 共享文件不存在或者无法读取到一致的数据时，间隔多久再次检查（纳秒）
+   */
+  private static final long   OPEN_INTERVAL = 1_000_000_000L;
+
+  private final    File             file;
+  private volatile MappedByteBuffer buffer;
+  private volatile Snapshot         snapshot  = Snapshot.EMPTY;
+  private volatile long             nextOpen  = System.nanoTime();
+  /**
+   * 重试后仍然无法读取的序号，如写入方中断后一直为奇数的序号，没有时为 -1
+   */
+  private volatile long             stuck     = -1;
+  private volatile long             nextRetry = System.nanoTime();
+
+  public SharedConfigRegion(File file) {
+    this.file = file;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * 写入配置，多个进程同时写入时通过文件锁排队
+   *
+   * @param file       共享文件
+   * @param properties 配置，包括默认配置
+   * @return 写入后的序号
+   */
+  public static long publish(File file, Properties properties) throws IOException {
+    ByteBuffer data = OffHeapProperties.encode(properties, false);
+    byte[] bytes = new byte[data.remaining()];
+    data.get(bytes);
+    CRC32 crc = new CRC32();
+    crc.update(bytes, 0, bytes.length);
+    File parent = file.getAbsoluteFile().getParentFile();
+    if (parent != null && !parent.exists() && !parent.mkdirs()) {
+      throw new IOException("无法创建目录 " + parent);
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      FileLock lock = channel.lock();
+      try {
+        long size = Math.max(channel.size(), HEADER + bytes.length);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        if (buffer.getInt(0) != MAGIC) {
+          buffer.putInt(0, MAGIC);
+          buffer.putInt(4, FORMAT);
+          buffer.putLong(SEQ, 0);
+        }
+        long seq = buffer.getLong(SEQ);
+        if ((seq & 1) == 1) {
+          //上次写入时进程中断
+          seq++;
+        }
+        buffer.putLong(SEQ, seq + 1);
+        buffer.position(HEADER);
+        buffer.put(bytes);
+        buffer.putInt(LENGTH, bytes.length);
+        buffer.putInt(CRC, (int) crc.getValue());
+        buffer.putLong(SEQ, seq + 2);
+        return seq + 2;
+      } finally {
+        lock.release();
+      }
+    }
+  }
+
+  /**
+   * 获取当前配置，写入方正在写入时使用上次读取的配置
+   */
+  public Properties get() {
+    return current().properties;
+  }
+
+  /**
+   * 当前配置对应的序号，还没有读取到配置时为 0
+   */
+  public long getSequence() {
+    return current().sequence;
+  }
+
+  private Snapshot current() {
+    Snapshot snapshot = this.snapshot;
+    MappedByteBuffer buffer = this.buffer;
+    if (buffer != null) {
+      long seq = buffer.getLong(SEQ);
+      if (seq == snapshot.sequence || (seq == stuck && System.nanoTime() - nextRetry < 0)) {
+        return snapshot;
+      }
+    } else if (System.nanoTime() - nextOpen < 0) {
+      return snapshot;
+    }
+    synchronized (this) {
+      return refresh();
+    }
+  }
+
+  private Snapshot refresh() {
+    Snapshot snapshot = this.snapshot;
+    try {
+      long seq = -1;
+      for (int i = 0; i < RETRIES; i++) {
+        MappedByteBuffer buffer = map();
+        if (buffer == null) {
+          return snapshot;
+        }
+        seq = buffer.getLong(SEQ);
+        if (seq == snapshot.sequence || (seq == stuck && System.nanoTime() - nextRetry < 0)) {
+          return snapshot;
+        }
+        if ((seq & 1) == 0) {
+          int length = buffer.getInt(LENGTH);
+          int crc = buffer.getInt(CRC);
+          if (length >= 0 && HEADER + (long) length <= buffer.capacity()) {
+            byte[] bytes = new byte[length];
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(HEADER);
+            slice.get(bytes);
+            CRC32 crc32 = new CRC32();
+            crc32.update(bytes, 0, bytes.length);
+            if (buffer.getLong(SEQ) == seq && (int) crc32.getValue() == crc) {
+              snapshot = new Snapshot(seq, new OffHeapProperties(ByteBuffer.wrap(bytes)));
+              this.snapshot = snapshot;
+              this.stuck = -1;
+              return snapshot;
+            }
+          } else {
+            //文件变大了，重新映射
+            this.buffer = null;
+          }
+        }
+        Thread.yield();
+      }
+      //写入方可能已经中断，这个序号暂时不再重试
+      if (seq != stuck) {
+        log.warn("共享配置 " + file + " 的序号 " + seq + " 一直无法读取，使用上次读取的配置");
+      }
+      this.stuck = seq;
+      this.nextRetry = System.nanoTime() + OPEN_INTERVAL;
+    } catch (IOException e) {
+      log.warn("读取共享配置 " + file + " 失败: " + e.getMessage());
+      this.buffer = null;
+      this.nextOpen = System.nanoTime() + OPEN_INTERVAL;
+    }
+    return snapshot;
+  }
+
+  /**
+   * 映射共享文件，文件不存在或者还没有写入时返回 null
+   */
+  private MappedByteBuffer map() throws IOException {
+    if (buffer != null) {
+      return buffer;
+    }
+    if (!file.isFile() || file.length() < HEADER) {
+      nextOpen = System.nanoTime() + OPEN_INTERVAL;
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT) {
+        throw new IOException("不是共享配置文件");
+      }
+      this.buffer = buffer;
+      return buffer;
+    }
+  }
+
+  /**
+   * 合并多个 properties 文件后写入共享文件，后面的文件覆盖前面的文件
+   * <pre>
+   * java -cp mybatis-config.jar io.mybatis.config.util.SharedConfigRegion 共享文件 a.properties b.properties
+   * </pre>
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("用法: SharedConfigRegion <共享文件> <properties 文件>...");
+      System.exit(1);
+    }
+    Properties properties = new Properties();
+    for (int i = 1; i < args.length; i++) {
+      try (Reader reader = new InputStreamReader(new FileInputStream(args[i]), StandardCharsets.UTF_8)) {
+        properties.load(reader);
+      }
+    }
+    long seq = publish(new File(args[0]), properties);
+    System.out.println("已写入 " + properties.size() + " 个配置到 " + args[0] + "，序号: " + seq);
+  }
+
+  /**
+   * 读取到的配置
+   */
+  private static class Snapshot {
+    static final Snapshot EMPTY = new Snapshot(0, new Properties());
+
+    private final long       sequence;
+    private final Properties properties;
+
+    Snapshot(long sequence, Properties properties) {
+      this.sequence = sequence;
+      this.properties = properties;
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class ConfigBinderTest {
+
+  @Test
+  public void testBind() {
+    System.setProperty("bind-test.max-active", "8");
+    System.setProperty("bind-test.enabled", "true");
+    System.setProperty("bind-test.time_unit", "milliseconds");
+    System.setProperty("bind-test.tags", "a, b,c");
+    try {
+      Settings settings = ConfigHelper.bind("bind-test", Settings.class);
+      Assert.assertEquals(8, settings.getMaxActive());
+      Assert.assertTrue(settings.isEnabled());
+      Assert.assertEquals(TimeUnit.MILLISECONDS, settings.getTimeUnit());
+      Assert.assertEquals(Arrays.asList("a", "b", "c"), settings.getTags());
+      Assert.assertNull(settings.getName());
+
+      System.setProperty("bind-test.max-active", "16");
+      System.setProperty("bind-test.name", "reload");
+      ConfigHelper.reload();
+      Assert.assertEquals(16, settings.getMaxActive());
+      Assert.assertEquals("reload", settings.getName());
+    } finally {
+      System.clearProperty("bind-test.max-active");
+      System.clearProperty("bind-test.enabled");
+      System.clearProperty("bind-test.time_unit");
+      System.clearProperty("bind-test.tags");
+      System.clearProperty("bind-test.name");
+    }
+  }
+
+  @Test
+  public void testRebindRemoved() {
+    System.setProperty("bind-removed.max-active", "8");
+    System.setProperty("bind-removed.name", "bound");
+    ConfigHelper.reload();
+    try {
+      Settings settings = new Settings();
+      settings.setName("original");
+      ConfigHelper.bind("bind-removed", settings);
+      //重复绑定同一个对象时不会记录两次
+      ConfigHelper.bind("bind-removed", settings);
+      Assert.assertEquals(8, settings.getMaxActive());
+      Assert.assertEquals("bound", settings.getName());
+
+      System.clearProperty("bind-removed.max-active");
+      System.clearProperty("bind-removed.name");
+      ConfigHelper.reload();
+      Assert.assertEquals(0, settings.getMaxActive());
+      Assert.assertEquals("original", settings.getName());
+    } finally {
+      System.clearProperty("bind-removed.max-active");
+      System.clearProperty("bind-removed.name");
+    }
+  }
+
+  @Test
+  public void testBindFile() {
+    Name name = ConfigHelper.bind("config-test", new Name());
+    Assert.assertEquals("v2.0", name.getName());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testConvertError() {
+    System.setProperty("bind-error.max-active", "x");
+    try {
+      ConfigHelper.bind("bind-error", Settings.class);
+    } finally {
+      System.clearProperty("bind-error.max-active");
+    }
+  }
+
+  @Test
+  public void testRebindConvertError() {
+    System.setProperty("bind-broken.max-active", "8");
+    System.setProperty("bind-broken.name", "first");
+    System.setProperty("bind-other.max-active", "1");
+    ConfigHelper.reload();
+    try {
+      Settings broken = ConfigHelper.bind("bind-broken", new Settings());
+      Settings other = ConfigHelper.bind("bind-other", new Settings());
+
+      //一个对象的配置无法转换时不影响 reload 和其他对象
+      System.setProperty("bind-broken.max-active", "x");
+      System.setProperty("bind-broken.name", "second");
+      System.setProperty("bind-other.max-active", "2");
+      ConfigHelper.reload();
+      Assert.assertEquals(8, broken.getMaxActive());
+      Assert.assertEquals("first", broken.getName());
+      Assert.assertEquals(2, other.getMaxActive());
+
+      System.setProperty("bind-broken.max-active", "16");
+      ConfigHelper.reload();
+      Assert.assertEquals(16, broken.getMaxActive());
+      Assert.assertEquals("second", broken.getName());
+    } finally {
+      System.clearProperty("bind-broken.max-active");
+      System.clearProperty("bind-broken.name");
+      System.clearProperty("bind-other.max-active");
+      ConfigHelper.reload();
+    }
+  }
+
+  @Test
+  public void testCandidateKeys() {
+    Assert.assertArrayEquals(new String[]{"p.maxActive", "p.max-active", "p.max_active", "p.maxactive"},
+        ConfigBinder.candidateKeys("p", "maxActive"));
+    Assert.assertArrayEquals(new String[]{"p.name"}, ConfigBinder.candidateKeys("p.", "name"));
+  }
+
+  public static class Name {
+    private String name;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+
+  public static class Settings extends Name {
+    private int          maxActive;
+    private boolean      enabled;
+    private TimeUnit     timeUnit;
+    private List<String> tags;
+
+    public int getMaxActive() {
+      return maxActive;
+    }
+
+    public void setMaxActive(int maxActive) {
+      this.maxActive = maxActive;
+    }
+
+    public boolean isEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public TimeUnit getTimeUnit() {
+      return timeUnit;
+    }
+
+    public void setTimeUnit(TimeUnit timeUnit) {
+      this.timeUnit = timeUnit;
+    }
+
+    public List<String> getTags() {
+      return tags;
+    }
+
+    public void setTags(List<String> tags) {
+      this.tags = tags;
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class ConfigChangesTest {
+
+  @Test
+  public void testChanges() throws InterruptedException {
+    ConfigHelper.reload();
+    Recorder key = new Recorder(Long.MAX_VALUE);
+    Recorder prefix = new Recorder(1);
+    ConfigHelper.subscribe("change-test.a", key);
+    ConfigHelper.subscribePrefix("config-test.", prefix);
+    try {
+      System.setProperty("change-test.a", "1");
+      ConfigHelper.reload();
+      System.setProperty("change-test.a", "2");
+      System.setProperty("config-test.version", "v1.0");
+      ConfigHelper.reload();
+
+      ConfigChanges.Change change = key.changes.poll(5, TimeUnit.SECONDS);
+      Assert.assertNotNull(change);
+      Assert.assertEquals("change-test.a", change.getKey());
+      Assert.assertNull(change.getOldValue());
+      Assert.assertEquals("2", change.getNewValue());
+      //通知时使用注册表的类加载器
+      Assert.assertSame(Thread.currentThread().getContextClassLoader(), key.classLoader);
+
+      change = prefix.changes.poll(5, TimeUnit.SECONDS);
+      Assert.assertNotNull(change);
+      Assert.assertEquals("config-test.name", change.getKey());
+      Assert.assertEquals("v2.0", change.getOldValue());
+      Assert.assertEquals("v1.0", change.getNewValue());
+
+      System.clearProperty("config-test.version");
+      ConfigHelper.reload();
+      //没有请求更多数据时不会收到通知
+      Assert.assertNull(prefix.changes.poll(300, TimeUnit.MILLISECONDS));
+      prefix.subscription.request(1);
+      change = prefix.changes.poll(5, TimeUnit.SECONDS);
+      Assert.assertNotNull(change);
+      Assert.assertEquals("v2.0", change.getNewValue());
+      Assert.assertNull(key.changes.poll(300, TimeUnit.MILLISECONDS));
+    } finally {
+      key.subscription.cancel();
+      prefix.subscription.cancel();
+      System.clearProperty("change-test.a");
+      System.clearProperty("config-test.version");
+      ConfigHelper.reload();
+    }
+  }
+
+  @Test
+  public void testResubscribe() throws InterruptedException {
+    ConfigChanges changes = new ConfigChanges(Thread.currentThread()::getContextClassLoader);
+    ConfigHelper.reload();
+    try {
+      Recorder first = new Recorder(Long.MAX_VALUE);
+      changes.subscribe("change-test.b", first, ConfigHelper.registry().generation());
+      awaitSubscription(first);
+      first.subscription.cancel();
+
+      //没有订阅者时发生的变化不会通知给之后的订阅者
+      System.setProperty("change-test.b", "1");
+      ConfigHelper.reload();
+      changes.publish(ConfigHelper.registry().generation());
+      Recorder second = new Recorder(Long.MAX_VALUE);
+      changes.subscribe("change-test.b", second, ConfigHelper.registry().generation());
+      awaitSubscription(second);
+      changes.publish(ConfigHelper.registry().generation());
+      Assert.assertNull(second.changes.poll(300, TimeUnit.MILLISECONDS));
+
+      System.setProperty("change-test.b", "2");
+      ConfigHelper.reload();
+      changes.publish(ConfigHelper.registry().generation());
+      ConfigChanges.Change change = second.changes.poll(5, TimeUnit.SECONDS);
+      Assert.assertNotNull(change);
+      Assert.assertEquals("1", change.getOldValue());
+      Assert.assertEquals("2", change.getNewValue());
+      Assert.assertTrue(first.changes.isEmpty());
+    } finally {
+      changes.complete();
+      System.clearProperty("change-test.b");
+      ConfigHelper.reload();
+    }
+  }
+
+  private static void awaitSubscription(Recorder recorder) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (recorder.subscription == null && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertNotNull(recorder.subscription);
+  }
+
+  static class Recorder implements ConfigChanges.Subscriber {
+    final    BlockingQueue<ConfigChanges.Change> changes = new LinkedBlockingQueue<>();
+    final    long                                initial;
+    volatile ConfigChanges.Subscription          subscription;
+    volatile ClassLoader                         classLoader;
+
+    Recorder(long initial) {
+      this.initial = initial;
+    }
+
+    @Override
+    public void onSubscribe(ConfigChanges.Subscription subscription) {
+      this.subscription = subscription;
+      subscription.request(initial);
+    }
+
+    @Override
+    public void onNext(ConfigChanges.Change change) {
+      classLoader = Thread.currentThread().getContextClassLoader();
+      changes.add(change);
+    }
+  }
+}
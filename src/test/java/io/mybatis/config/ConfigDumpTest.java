@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import io.mybatis.config.custom.TestVersionConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ConfigDumpTest {
+
+  @Test
+  public void testDump() throws Exception {
+    ConfigHelper.reload();
+    StringWriter writer = new StringWriter();
+    String hash = ConfigHelper.dump(writer);
+    List<String> lines = new ArrayList<>(Arrays.asList(writer.toString().split("\n")));
+    Assert.assertEquals("# sha256=" + hash, lines.remove(lines.size() - 1));
+    Assert.assertTrue(lines.contains("config-test.name=v2.0 # " + TestVersionConfig.class.getName()
+        + " order=100 version=mybatis-config-test-v2.0.properties"));
+    List<String> sorted = new ArrayList<>(lines);
+    sorted.sort(null);
+    Assert.assertEquals(sorted, lines);
+    Assert.assertEquals(hash, ConfigHelper.hash());
+
+    //系统变量覆盖时显示实际的来源
+    System.setProperty("config-test.name", "system");
+    ConfigHelper.reload();
+    try {
+      writer = new StringWriter();
+      Assert.assertNotEquals(hash, ConfigHelper.dump(writer));
+      Assert.assertTrue(writer.toString().contains("config-test.name=system # io.mybatis.config.defaults.SystemConfig order=400\n"));
+    } finally {
+      System.clearProperty("config-test.name");
+      ConfigHelper.reload();
+    }
+    Assert.assertEquals(hash, ConfigHelper.hash());
+  }
+
+  @Test
+  public void testMBean() throws Exception {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = ConfigManager.register();
+    Assert.assertEquals(name, ConfigManager.register());
+    Assert.assertNotNull(name.getKeyProperty("loader"));
+    Object hash = server.getAttribute(name, "Hash");
+    Assert.assertEquals(ConfigHelper.hash(), hash);
+    Object dump = server.invoke(name, "dump", null, null);
+    Assert.assertTrue(((String) dump).endsWith("# sha256=" + hash + "\n"));
+
+    //其他类加载器注册时不会覆盖，释放后注销
+    Thread thread = Thread.currentThread();
+    ClassLoader original = thread.getContextClassLoader();
+    URLClassLoader other = new URLClassLoader(new URL[0], original);
+    ObjectName otherName;
+    thread.setContextClassLoader(other);
+    try {
+      otherName = ConfigManager.register();
+    } finally {
+      thread.setContextClassLoader(original);
+    }
+    Assert.assertNotEquals(name, otherName);
+    Assert.assertTrue(server.isRegistered(name));
+    Assert.assertTrue(server.isRegistered(otherName));
+    ConfigHelper.release(other);
+    Assert.assertFalse(server.isRegistered(otherName));
+    Assert.assertTrue(server.isRegistered(name));
+  }
+}
@@ -16,11 +16,28 @@
 
 package io.mybatis.config;
 
+import io.mybatis.config.custom.TestTenantConfig;
 import org.junit.Assert;
+import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public class ConfigHelperTest {
 
+  /**
+   * testGetProperty 会切换用户配置文件，其他测试从默认配置开始
+   */
+  @Before
+  public void reset() {
+    ConfigHelper.reload();
+  }
+
   @Test
   public void testGetProperty() {
     String name = "config-test.name";
@@ -42,4 +59,113 @@ public class ConfigHelperTest {
     System.clearProperty("config-test.properties");
     System.clearProperty("config-test.version");
   }
+
+  @Test
+  public void testView() {
+    ConfigView view = ConfigHelper.view();
+    Assert.assertEquals("v2.0", view.getStr("config-test.name"));
+    System.setProperty("config-test.properties", "config-test-user.properties");
+    try {
+      ConfigHelper.reload();
+      Assert.assertEquals("custom", ConfigHelper.getStr("config-test.name"));
+      Assert.assertEquals("v2.0", view.getStr("config-test.name"));
+      Assert.assertNotEquals(view.getGeneration(), ConfigHelper.getGeneration());
+      Assert.assertEquals("custom", ConfigHelper.view().getStr("config-test.name"));
+    } finally {
+      System.clearProperty("config-test.properties");
+      ConfigHelper.reload();
+    }
+  }
+
+  @Test
+  public void testTenant() {
+    Assert.assertEquals("tenant-a", ConfigHelper.getTenantStr("tenant-a", "config-test.name"));
+    Assert.assertEquals("jdbc:mysql://localhost/tenant-a", ConfigHelper.getTenantStr("tenant-a", "tenant-test.url"));
+    Assert.assertNull(ConfigHelper.getTenantStr("tenant-a", "desc"));
+    Assert.assertEquals("v2.0", ConfigHelper.getTenantStr("other", "config-test.name"));
+    Assert.assertEquals("测试代码", ConfigHelper.getTenantStr("other", "desc"));
+    Assert.assertEquals("v2.0", ConfigHelper.getTenantStr(null, "config-test.name"));
+    Assert.assertEquals("v2.0", ConfigHelper.getStr("config-test.name"));
+    Assert.assertEquals("tenant-b", ConfigHelper.view("tenant-b").getStr("config-test.name"));
+    Assert.assertEquals("override", ConfigHelper.withOverrides(Collections.singletonMap("config-test.name", "override"),
+        () -> ConfigHelper.getTenantStr("tenant-a", "tenant-test.url").substring("jdbc:mysql://localhost/".length())));
+    Assert.assertEquals(1, TestTenantConfig.LOADS.get("tenant-a").get());
+  }
+
+  @Test
+  public void testPlaceholder() {
+    System.setProperty("placeholder-test.host", "localhost");
+    System.setProperty("placeholder-test.url", "jdbc:mysql://${placeholder-test.host}:${placeholder-test.port:3306}/${config-test.name}");
+    System.setProperty("placeholder-test.missing", "${placeholder-test.none}");
+    try {
+      Assert.assertEquals("jdbc:mysql://localhost:3306/v2.0", ConfigHelper.getStr("placeholder-test.url"));
+      Assert.assertEquals("${placeholder-test.none}", ConfigHelper.getStr("placeholder-test.missing"));
+
+      System.setProperty("placeholder-test.url", "${placeholder-test.host}/${placeholder-test.db:${placeholder-test.host}}");
+      Assert.assertEquals("localhost/localhost", ConfigHelper.getStr("placeholder-test.url"));
+    } finally {
+      System.clearProperty("placeholder-test.host");
+      System.clearProperty("placeholder-test.url");
+      System.clearProperty("placeholder-test.missing");
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testPlaceholderCycle() {
+    System.setProperty("placeholder-cycle.a", "${placeholder-cycle.b}");
+    System.setProperty("placeholder-cycle.b", "x${placeholder-cycle.a}");
+    try {
+      ConfigHelper.getStr("placeholder-cycle.a");
+    } finally {
+      System.clearProperty("placeholder-cycle.a");
+      System.clearProperty("placeholder-cycle.b");
+    }
+  }
+
+  @Test
+  public void testOverrides() throws Exception {
+    Map<String, String> overrides = new HashMap<>();
+    overrides.put("config-test.name", "override");
+    overrides.put("desc", null);
+    overrides.put("override-test.url", "${config-test.name}/${override-test.db:db}");
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    //先创建线程
+    executor.submit(() -> ConfigHelper.getStr("desc")).get();
+    String[] values = new String[1];
+    try {
+      ConfigHelper.withOverrides(overrides, () -> {
+        Assert.assertEquals("override", ConfigHelper.getStr("config-test.name"));
+        Assert.assertNull(ConfigHelper.getStr("desc"));
+        Assert.assertEquals("override/db", ConfigHelper.getStr("override-test.url"));
+        //嵌套
+        String nested = ConfigHelper.withOverrides(Collections.singletonMap("override-test.db", "nested"),
+            () -> ConfigHelper.getStr("override-test.url"));
+        Assert.assertEquals("override/nested", nested);
+        //传递到线程池
+        try {
+          Future<String> future = executor.submit(ConfigHelper.wrap(() -> ConfigHelper.getStr("config-test.name")));
+          Assert.assertEquals("override", future.get());
+          future = executor.submit(() -> ConfigHelper.getStr("config-test.name"));
+          Assert.assertEquals("v2.0", future.get());
+          //子线程不会继承作用域，需要通过 wrap 传递
+          Thread child = new Thread(() -> values[0] = ConfigHelper.getStr("config-test.name"));
+          child.start();
+          child.join();
+          Assert.assertEquals("v2.0", values[0]);
+          child = new Thread(ConfigHelper.wrap(() -> {
+            values[0] = ConfigHelper.getStr("config-test.name");
+          }));
+          child.start();
+          child.join();
+          Assert.assertEquals("override", values[0]);
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      });
+    } finally {
+      executor.shutdown();
+    }
+    Assert.assertEquals("v2.0", ConfigHelper.getStr("config-test.name"));
+    Assert.assertEquals("测试代码", ConfigHelper.getStr("desc"));
+  }
 }
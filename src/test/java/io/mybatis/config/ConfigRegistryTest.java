@@ -0,0 +1,239 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config;
+
+import io.mybatis.config.custom.LazyTestConfig;
+import io.mybatis.config.custom.RefreshTestConfig;
+import io.mybatis.config.custom.TestUserConfig;
+import io.mybatis.config.custom.TestVersionConfig;
+import io.mybatis.config.remote.RemoteConfig;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class ConfigRegistryTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testClassLoaderIsolation() throws IOException {
+    File services = new File(folder.getRoot(), "META-INF/services/" + Config.class.getName());
+    Assert.assertTrue(services.getParentFile().mkdirs());
+    try (OutputStream out = new FileOutputStream(services)) {
+      out.write(FixedConfig.class.getName().getBytes(StandardCharsets.UTF_8));
+    }
+    Thread thread = Thread.currentThread();
+    ClassLoader original = thread.getContextClassLoader();
+    URLClassLoader tenant = new URLClassLoader(new URL[]{folder.getRoot().toURI().toURL()}, original);
+    try {
+      Assert.assertNull(ConfigHelper.getStr("registry-test.key"));
+      ConfigRegistry registry = ConfigHelper.registry();
+
+      thread.setContextClassLoader(tenant);
+      Assert.assertEquals("tenant", ConfigHelper.getStr("registry-test.key"));
+      Assert.assertEquals("v2.0", ConfigHelper.getStr("config-test.name"));
+      ConfigRegistry tenantRegistry = ConfigHelper.registry();
+      Assert.assertNotSame(registry, tenantRegistry);
+      Assert.assertSame(tenantRegistry, ConfigHelper.registry());
+
+      thread.setContextClassLoader(original);
+      Assert.assertSame(registry, ConfigHelper.registry());
+      Assert.assertNull(ConfigHelper.getStr("registry-test.key"));
+
+      ConfigHelper.release(tenant);
+      Assert.assertTrue(tenantRegistry.isClosed());
+      thread.setContextClassLoader(tenant);
+      Assert.assertNotSame(tenantRegistry, ConfigHelper.registry());
+      Assert.assertFalse(ConfigHelper.registry().isClosed());
+    } finally {
+      thread.setContextClassLoader(original);
+      ConfigHelper.release(tenant);
+      tenant.close();
+    }
+  }
+
+  @Test
+  public void testLazyProvider() {
+    ConfigHelper.reload();
+    int created = LazyTestConfig.CREATED.get();
+    Assert.assertNull(ConfigHelper.getStr("registry-test.none"));
+    Assert.assertEquals(created, LazyTestConfig.CREATED.get());
+
+    Assert.assertEquals("lazy", ConfigHelper.getStr("lazy-test.name"));
+    Assert.assertNull(ConfigHelper.getStr("lazy-test.none"));
+    Assert.assertEquals(created + 1, LazyTestConfig.CREATED.get());
+  }
+
+  @Test
+  public void testInheritedProvider() throws IOException {
+    //使用单独的注册表，避免其他测试的变化订阅在后台创建配置实现
+    Thread thread = Thread.currentThread();
+    ClassLoader original = thread.getContextClassLoader();
+    URLClassLoader loader = new URLClassLoader(new URL[0], original);
+    System.setProperty(RemoteConfig.PREFIXES_KEY, "remote-test.");
+    thread.setContextClassLoader(loader);
+    try {
+      //系统变量中存在的配置不会到达版本配置，没有匹配前缀的配置不会创建远程配置
+      Assert.assertNotNull(ConfigHelper.getStr("user.dir"));
+      Assert.assertFalse(lazy(TestVersionConfig.class).isCreated());
+      Assert.assertNull(ConfigHelper.getStr("registry-test.none"));
+      Assert.assertTrue(lazy(TestVersionConfig.class).isCreated());
+      Assert.assertFalse(lazy(RemoteConfig.class).isCreated());
+      //只创建属性文件配置
+      ConfigHelper.reload();
+      ConfigHelper.getPropertiesConfigs();
+      Assert.assertTrue(lazy(TestVersionConfig.class).isCreated());
+      Assert.assertFalse(lazy(LazyTestConfig.class).isCreated());
+    } finally {
+      thread.setContextClassLoader(original);
+      System.clearProperty(RemoteConfig.PREFIXES_KEY);
+      ConfigHelper.release(loader);
+      loader.close();
+    }
+  }
+
+  private static LazyConfig lazy(Class<? extends Config> type) {
+    for (Config config : ConfigHelper.registry().generation().getChain()) {
+      if (config instanceof LazyConfig && ((LazyConfig) config).getType() == type) {
+        return (LazyConfig) config;
+      }
+    }
+    throw new AssertionError(type.getName());
+  }
+
+  @Test
+  public void testReloadType() throws Exception {
+    File file = folder.newFile("reload-test.properties");
+    write(file, "reload-test.name=first");
+    System.setProperty("config-test.properties", file.getAbsolutePath());
+    try {
+      ConfigHelper.reload();
+      Assert.assertEquals("first", ConfigHelper.getStr("reload-test.name"));
+      List<Config> configs = ConfigHelper.getConfigs();
+      long generation = ConfigHelper.getGeneration();
+
+      ConfigView view = ConfigHelper.view();
+
+      write(file, "reload-test.name=second");
+      Assert.assertTrue(ConfigHelper.reload(TestUserConfig.class).get());
+      Assert.assertEquals("second", ConfigHelper.getStr("reload-test.name"));
+      //视图固定在旧的配置代上
+      Assert.assertEquals("first", view.getStr("reload-test.name"));
+      Assert.assertEquals(generation, view.getGeneration());
+      Assert.assertNotEquals(generation, ConfigHelper.getGeneration());
+      List<Config> reloaded = ConfigHelper.getConfigs();
+      Assert.assertEquals(configs.size(), reloaded.size());
+      for (int i = 0; i < configs.size(); i++) {
+        if (configs.get(i) instanceof TestUserConfig) {
+          //旧的实例属于旧的配置代，不会被修改
+          Assert.assertNotSame(configs.get(i), reloaded.get(i));
+          Assert.assertEquals("first", configs.get(i).getStr("reload-test.name"));
+        } else {
+          Assert.assertSame(configs.get(i), reloaded.get(i));
+        }
+      }
+
+      Assert.assertFalse(ConfigHelper.reload(FixedConfig.class).get());
+    } finally {
+      System.clearProperty("config-test.properties");
+      ConfigHelper.reload();
+    }
+  }
+
+  @Test
+  public void testRefreshable() throws Exception {
+    ConfigHelper.reload();
+    Assert.assertEquals("first", ConfigHelper.getStr("refresh-test.name"));
+    long generation = ConfigHelper.getGeneration();
+    //来源没有变化时跳过刷新
+    Thread.sleep(200);
+    Assert.assertEquals(0, RefreshTestConfig.REFRESHED.get());
+    Assert.assertEquals(generation, ConfigHelper.getGeneration());
+
+    RefreshTestConfig.source = "second";
+    try {
+      long deadline = System.currentTimeMillis() + 5000;
+      while (!"second".equals(ConfigHelper.getStr("refresh-test.name")) && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      Assert.assertEquals("second", ConfigHelper.getStr("refresh-test.name"));
+      Assert.assertEquals(1, RefreshTestConfig.REFRESHED.get());
+      //刷新在工作线程中执行，不占用计时线程
+      Assert.assertEquals("mybatis-config-refresh-worker", RefreshTestConfig.thread);
+      while (ConfigHelper.getGeneration() == generation && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      Assert.assertNotEquals(generation, ConfigHelper.getGeneration());
+
+      //刷新失败时不记录指纹，下次继续刷新
+      RefreshTestConfig.FAILURES.set(1);
+      RefreshTestConfig.source = "third";
+      while (!"third".equals(ConfigHelper.getStr("refresh-test.name")) && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      Assert.assertEquals("third", ConfigHelper.getStr("refresh-test.name"));
+      Assert.assertEquals(3, RefreshTestConfig.REFRESHED.get());
+    } finally {
+      RefreshTestConfig.FAILURES.set(0);
+      RefreshTestConfig.source = "first";
+      ConfigHelper.reload();
+    }
+  }
+
+  @Test
+  public void testRefreshRelease() throws IOException {
+    Thread thread = Thread.currentThread();
+    ClassLoader original = thread.getContextClassLoader();
+    URLClassLoader tenant = new URLClassLoader(new URL[]{folder.getRoot().toURI().toURL()}, original);
+    try {
+      thread.setContextClassLoader(tenant);
+      Assert.assertEquals("first", ConfigHelper.getStr("refresh-test.name"));
+      ConfigRegistry registry = ConfigHelper.registry();
+      Assert.assertTrue(ConfigRefresher.isRegistered(registry));
+      //释放注册表时停止刷新，不再持有注册表和配置实现
+      ConfigHelper.release(tenant);
+      Assert.assertFalse(ConfigRefresher.isRegistered(registry));
+    } finally {
+      thread.setContextClassLoader(original);
+      ConfigHelper.release(tenant);
+      tenant.close();
+    }
+  }
+
+  private static void write(File file, String content) throws IOException {
+    try (OutputStream out = new FileOutputStream(file)) {
+      out.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
+  public static class FixedConfig implements Config {
+    @Override
+    public String getStr(String key) {
+      return "registry-test.key".equals(key) ? "tenant" : null;
+    }
+  }
+}
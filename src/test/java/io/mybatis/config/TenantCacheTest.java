@@ -0,0 +1,125 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.mybatis.config;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TenantCacheTest {
+
+  @Test
+  public void testFrequency() {
+    AtomicInteger loads = new AtomicInteger();
+    TenantConfig provider = tenant -> {
+      loads.incrementAndGet();
+      return Collections.singletonMap("tenant", tenant);
+    };
+    TenantCache cache = new TenantCache(Collections.singletonList(provider), 16);
+    for (int i = 0; i < 16; i++) {
+      for (int j = 0; j < 5; j++) {
+        Assert.assertEquals("hot-" + i, cache.get("hot-" + i).get("tenant"));
+      }
+    }
+    Assert.assertEquals(16, loads.get());
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals("cold-" + i, cache.get("cold-" + i).get("tenant"));
+    }
+    Assert.assertEquals(16, cache.size());
+    for (int i = 0; i < 16; i++) {
+      Assert.assertTrue(cache.contains("hot-" + i));
+    }
+  }
+
+  @Test
+  public void testRejected() {
+    AtomicInteger loads = new AtomicInteger();
+    TenantConfig provider = tenant -> {
+      loads.incrementAndGet();
+      return Collections.singletonMap("tenant", tenant);
+    };
+    TenantCache cache = new TenantCache(Collections.singletonList(provider), 16);
+    for (int i = 0; i < 16; i++) {
+      for (int j = 0; j < 5; j++) {
+        cache.get("hot-" + i);
+      }
+    }
+    //没有被接纳的租户不会每次都重新加载，访问频率变高后进入缓存
+    for (int i = 0; i < 20; i++) {
+      Assert.assertEquals("cold", cache.get("cold").get("tenant"));
+    }
+    Assert.assertEquals(17, loads.get());
+    Assert.assertTrue(cache.contains("cold"));
+    Assert.assertEquals(16, cache.size());
+  }
+
+  @Test
+  public void testConcurrent() throws Exception {
+    TenantConfig provider = tenant -> Collections.singletonMap("tenant", tenant);
+    TenantCache cache = new TenantCache(Collections.singletonList(provider), 16);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 8; t++) {
+        futures.add(executor.submit(() -> {
+          ThreadLocalRandom random = ThreadLocalRandom.current();
+          for (int i = 0; i < 20000; i++) {
+            //一半访问集中在少数租户，另一半分散在大量租户
+            String tenant = random.nextBoolean() ? "hot-" + random.nextInt(8) : "cold-" + random.nextInt(1000);
+            Assert.assertEquals(tenant, cache.get(tenant).get("tenant"));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    Assert.assertEquals(16, cache.size());
+    for (int i = 0; i < 8; i++) {
+      Assert.assertTrue(cache.contains("hot-" + i));
+    }
+  }
+
+  @Test
+  public void testEmpty() {
+    TenantCache cache = new TenantCache(Collections.emptyList(), 16);
+    Assert.assertSame(TenantCache.EMPTY, cache.get("a"));
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testScopeOverTenant() {
+    TenantConfig provider = tenant -> Collections.singletonMap("name", tenant);
+    TenantCache cache = new TenantCache(Collections.singletonList(provider), 16);
+    ConfigOverrides.Scope scope = new ConfigOverrides.Scope(Collections.singletonMap("url", "override"));
+    ConfigOverrides.Scope a = scope.over(cache.get("a"));
+    //同一个作用域和租户重复读取时不再复制配置
+    Assert.assertSame(a, scope.over(cache.get("a")));
+    Assert.assertEquals("a", a.get("name"));
+    Assert.assertEquals("override", a.get("url"));
+    Assert.assertEquals("b", scope.over(cache.get("b")).get("name"));
+  }
+
+}
@@ -17,10 +17,26 @@
 package io.mybatis.config.custom;
 
 import io.mybatis.config.Config;
+import io.mybatis.config.defaults.UserConfig;
+import io.mybatis.config.defaults.VersionConfig;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class CustomTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
 
   @Test
   public void testUser() {
@@ -35,6 +51,80 @@ public class CustomTest {
     System.clearProperty("config-test.properties");
   }
 
+  @Test
+  public void testProfile() {
+    System.setProperty("config-test.properties", "config-test-user.properties");
+    System.setProperty(UserConfig.PROFILE_KEY, "prod, none");
+    try {
+      UserConfig config = new TestUserConfig();
+      Assert.assertEquals("prod", config.getStr("config-test.name"));
+      Assert.assertEquals("prod", config.getStr("profile-test.only"));
+      Assert.assertEquals("ENC(sitabym)", config.getStr("decoder-test.user"));
+      Assert.assertEquals(2, config.getSources().size());
+    } finally {
+      System.clearProperty("config-test.properties");
+      System.clearProperty(UserConfig.PROFILE_KEY);
+    }
+  }
+
+  @Test
+  public void testMultipleFiles() throws IOException {
+    File directory = folder.newFolder("conf.d");
+    write(new File(directory, "20-b.properties"), "layer-test.shared=b\n");
+    write(new File(directory, "10-a.properties"), "layer-test.shared=a\nlayer-test.a=a\n");
+    write(new File(directory, "ignored.txt"), "layer-test.ignored=true\n");
+    File file = folder.newFile("layer-test.properties");
+    write(file, "layer-test.shared=c\nlayer-test.c=c\n");
+    System.setProperty("config-test.properties", directory.getAbsolutePath() + ", " + file.getAbsolutePath());
+    try {
+      UserConfig config = new TestUserConfig();
+      Assert.assertEquals("c", config.getStr("layer-test.shared"));
+      Assert.assertEquals("a", config.getStr("layer-test.a"));
+      Assert.assertEquals("c", config.getStr("layer-test.c"));
+      Assert.assertNull(config.getStr("layer-test.ignored"));
+      Assert.assertEquals(4, config.getSources().size());
+      Assert.assertEquals(directory.getAbsoluteFile(), config.getSources().get(3));
+    } finally {
+      System.clearProperty("config-test.properties");
+    }
+  }
+
+  @Test
+  public void testParallelLoad() throws IOException {
+    Set<String> threads = ConcurrentHashMap.newKeySet();
+    StringBuilder names = new StringBuilder();
+    for (int i = 0; i < 8; i++) {
+      File file = folder.newFile("parallel-" + i + ".properties");
+      write(file, "layer-test.shared=" + i + "\nlayer-test.only-" + i + "=" + i + "\n");
+      names.append(i > 0 ? "," : "").append(file.getAbsolutePath());
+    }
+    System.setProperty("config-test.properties", names.toString());
+    try {
+      UserConfig config = new TestUserConfig() {
+        @Override
+        protected Properties loadProperties(File file) throws IOException {
+          threads.add(Thread.currentThread().getName());
+          return super.loadProperties(file);
+        }
+      };
+      //并行读取，仍然按指定顺序合并，后面的覆盖前面的
+      Assert.assertEquals("7", config.getStr("layer-test.shared"));
+      for (int i = 0; i < 8; i++) {
+        Assert.assertEquals(String.valueOf(i), config.getStr("layer-test.only-" + i));
+      }
+      Assert.assertEquals(8, config.getSources().size());
+      Assert.assertEquals(Collections.singleton("mybatis-config-load"), threads);
+    } finally {
+      System.clearProperty("config-test.properties");
+    }
+  }
+
+  private static void write(File file, String content) throws IOException {
+    try (OutputStream out = new FileOutputStream(file)) {
+      out.write(content.getBytes(StandardCharsets.UTF_8));
+    }
+  }
+
   @Test
   public void testVersion() {
     Config config = new TestVersionConfig();
@@ -53,4 +143,53 @@ public class CustomTest {
     System.clearProperty("config-test.version");
   }
 
+  @Test
+  public void testSemanticVersion() {
+    TestVersionConfig config = new TestVersionConfig();
+    Assert.assertEquals("v2.0", config.getProperties(null).getProperty("config-test.name"));
+    Assert.assertEquals("v1.0", config.getProperties("v0.9").getProperty("config-test.name"));
+    Assert.assertEquals("v1.0", config.getProperties("v1.5.0").getProperty("config-test.name"));
+    Assert.assertEquals("v1.5.1", config.getProperties("v1.5.1").getProperty("config-test.name"));
+    Assert.assertEquals("v1.5.1", config.getProperties("v2.0.0-beta").getProperty("config-test.name"));
+    Assert.assertEquals("v2.0.0-rc.1", config.getProperties("v2.0.0-rc.2").getProperty("config-test.name"));
+    Assert.assertEquals("v2.0", config.getProperties("v2.0.0").getProperty("config-test.name"));
+    Assert.assertEquals("测试代码", config.getProperties("v1.5.1").getProperty("desc"));
+    Assert.assertSame(config.getProperties("v1.6"), config.getProperties("v1.7"));
+
+    //以前可以使用的版本号按前面的数字选择，无法识别时使用最新版本
+    Assert.assertEquals("v1.0", config.getProperties("1.5.x").getProperty("config-test.name"));
+    Assert.assertEquals("v1.5.1", config.getProperties("v1.5.1.2").getProperty("config-test.name"));
+    Assert.assertEquals("v2.0", config.getProperties("latest").getProperty("config-test.name"));
+
+    String[] ordered = {"v1.0.0-alpha", "v1.0.0-alpha.1", "v1.0.0-alpha.beta", "v1.0.0-beta.2", "v1.0.0-beta.11", "v1.0.0-rc.1", "v1.0", "v1.0.1", "v1.10"};
+    for (int i = 1; i < ordered.length; i++) {
+      Assert.assertTrue(ordered[i], new VersionConfig.ConfigVersion(ordered[i - 1]).compareTo(new VersionConfig.ConfigVersion(ordered[i])) < 0);
+    }
+  }
+
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testReadOnlyVersion() {
+    new TestVersionConfig().getProperties("v1.0").setProperty("config-test.name", "changed");
+  }
+
+  @Test
+  public void testDuplicateVersion() {
+    //v1.0 和 v1.0.0 是同一个版本，创建版本表时警告一次，使用版本号更完整的 v1.0.0，之后的读取不再报错
+    DuplicateVersionConfig config = new DuplicateVersionConfig();
+    Assert.assertEquals("v1.0.0", config.getProperties(null).getProperty("config-test.name"));
+    Assert.assertEquals("v1.0.0", config.getProperties("v1.0").getProperty("config-test.name"));
+  }
+
+  static class DuplicateVersionConfig extends VersionConfig {
+    @Override
+    protected String getConfigName() {
+      return "mybatis-config-duplicate";
+    }
+
+    @Override
+    protected String getVersionKey() {
+      return "duplicate-test.version";
+    }
+  }
 }
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.custom;
+
+import io.mybatis.config.Config;
+import io.mybatis.config.ConfigProvider;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@ConfigProvider(order = Config.LOW_ORDER, prefixes = "lazy-test.")
+public class LazyTestConfig implements Config {
+  public static final AtomicInteger CREATED = new AtomicInteger();
+
+  public LazyTestConfig() {
+    CREATED.incrementAndGet();
+  }
+
+  @Override
+  public String getStr(String key) {
+    return key.equals("lazy-test.name") ? "lazy" : null;
+  }
+}
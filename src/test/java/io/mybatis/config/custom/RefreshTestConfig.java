@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.custom;
+
+import io.mybatis.config.ConfigProvider;
+import io.mybatis.config.RefreshableConfig;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+@ConfigProvider(order = 0, prefixes = "refresh-test.")
+public class RefreshTestConfig implements RefreshableConfig {
+  public static final AtomicInteger REFRESHED = new AtomicInteger();
+  /**
+   * 接下来失败的刷新次数
+   */
+  public static final AtomicInteger FAILURES  = new AtomicInteger();
+  public static volatile String     source    = "first";
+  public static volatile String     thread;
+
+  private volatile String value = source;
+
+  @Override
+  public long getRefreshInterval() {
+    return 20;
+  }
+
+  @Override
+  public Object getFingerprint() {
+    return source;
+  }
+
+  @Override
+  public boolean refresh() {
+    REFRESHED.incrementAndGet();
+    thread = Thread.currentThread().getName();
+    if (FAILURES.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+      throw new IllegalStateException("刷新失败");
+    }
+    String value = source;
+    boolean changed = !value.equals(this.value);
+    this.value = value;
+    return changed;
+  }
+
+  @Override
+  public String getStr(String key) {
+    return "refresh-test.name".equals(key) ? value : null;
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.mybatis.config.custom;
+
+import io.mybatis.config.TenantConfig;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestTenantConfig implements TenantConfig {
+  public static final ConcurrentMap<String, AtomicInteger> LOADS = new ConcurrentHashMap<>();
+
+  @Override
+  public Map<String, String> getOverrides(String tenant) {
+    LOADS.computeIfAbsent(tenant, t -> new AtomicInteger()).incrementAndGet();
+    if (!tenant.startsWith("tenant-")) {
+      return Collections.emptyMap();
+    }
+    Map<String, String> overrides = new HashMap<>();
+    overrides.put("config-test.name", tenant);
+    overrides.put("tenant-test.url", "jdbc:mysql://localhost/${config-test.name}");
+    overrides.put("desc", null);
+    return overrides;
+  }
+
+}
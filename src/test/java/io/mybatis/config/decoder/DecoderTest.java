@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.decoder;
+
+import io.mybatis.config.ConfigDecoder;
+import io.mybatis.config.ConfigHelper;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.GZIPOutputStream;
+
+public class DecoderTest {
+
+  @Test
+  public void testDecode() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+      out.write("压缩内容".getBytes(StandardCharsets.UTF_8));
+    }
+    System.setProperty("decoder-test.base64", "BASE64(" + Base64.getEncoder().encodeToString("mybatis".getBytes(StandardCharsets.UTF_8)) + ")");
+    System.setProperty("decoder-test.gzip", "GZIP(" + Base64.getEncoder().encodeToString(bytes.toByteArray()) + ")");
+    System.setProperty("decoder-test.password", "ENC(terces)");
+    System.setProperty("decoder-test.url", "jdbc:${decoder-test.base64}:${decoder-test.password}");
+    ConfigHelper.reload();
+    try {
+      Assert.assertEquals("mybatis", ConfigHelper.getStr("decoder-test.base64"));
+      Assert.assertEquals("压缩内容", ConfigHelper.getStr("decoder-test.gzip"));
+      Assert.assertEquals("jdbc:mybatis:secret", ConfigHelper.getStr("decoder-test.url"));
+
+      int count = TestDecoder.COUNT.get();
+      for (int i = 0; i < 10; i++) {
+        Assert.assertEquals("secret", ConfigHelper.getStr("decoder-test.password"));
+      }
+      Assert.assertEquals(count, TestDecoder.COUNT.get());
+    } finally {
+      System.clearProperty("decoder-test.base64");
+      System.clearProperty("decoder-test.gzip");
+      System.clearProperty("decoder-test.password");
+      System.clearProperty("decoder-test.url");
+      ConfigHelper.reload();
+    }
+  }
+
+  @Test
+  public void testEagerDecode() {
+    System.setProperty("config-test.properties", "config-test-user.properties");
+    System.setProperty(ConfigDecoder.EAGER_KEY, "true");
+    ConfigHelper.reload();
+    try {
+      //加载时已经解码
+      int count = TestDecoder.COUNT.get();
+      Assert.assertEquals("mybatis", ConfigHelper.getStr("decoder-test.user"));
+      Assert.assertEquals(count, TestDecoder.COUNT.get());
+    } finally {
+      System.clearProperty("config-test.properties");
+      System.clearProperty(ConfigDecoder.EAGER_KEY);
+      ConfigHelper.reload();
+    }
+  }
+}
@@ -17,6 +17,7 @@
 package io.mybatis.config.defaults;
 
 import io.mybatis.config.Config;
+import io.mybatis.config.ConfigHelper;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -28,4 +29,48 @@ public class SystemConfigTest {
     Assert.assertNotNull(config.getStr("user.dir"));
   }
 
+  @Test
+  public void testLive() {
+    SystemConfig config = new SystemConfig();
+    System.setProperty("system-test.key", "a");
+    try {
+      Assert.assertEquals("a", config.getStr("system-test.key"));
+      System.setProperty("system-test.key", "b");
+      Assert.assertEquals("b", config.getStr("system-test.key"));
+    } finally {
+      System.clearProperty("system-test.key");
+    }
+  }
+
+  @Test
+  public void testSnapshot() throws InterruptedException {
+    System.setProperty(SystemConfig.CHECK_INTERVAL_KEY, "20");
+    System.setProperty("system-test.key", "a");
+    try {
+      SystemConfig config = new SystemConfig();
+      Assert.assertEquals("a", config.getStr("system-test.key"));
+      System.setProperty("system-test.key", "b");
+      Assert.assertEquals("a", config.getStr("system-test.key"));
+      Assert.assertTrue(config.refresh());
+      Assert.assertEquals("b", config.getStr("system-test.key"));
+      Assert.assertFalse(config.refresh());
+
+      //通过 ConfigHelper 读取时，后台发现变化后产生新的配置代
+      ConfigHelper.reload();
+      Assert.assertEquals("b", ConfigHelper.getStr("system-test.key"));
+      long generation = ConfigHelper.getGeneration();
+      System.setProperty("system-test.key", "c");
+      long deadline = System.currentTimeMillis() + 5000;
+      while (ConfigHelper.getGeneration() == generation && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      Assert.assertNotEquals(generation, ConfigHelper.getGeneration());
+      Assert.assertEquals("c", ConfigHelper.getStr("system-test.key"));
+    } finally {
+      System.clearProperty(SystemConfig.CHECK_INTERVAL_KEY);
+      System.clearProperty("system-test.key");
+      ConfigHelper.reload();
+    }
+  }
+
 }
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.processor;
+
+import io.mybatis.config.ConfigHelper;
+import io.mybatis.config.ConfigKey;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class ConfigKeyProcessorTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testCatalog() {
+    Assert.assertEquals(0, TestKeysCatalog.NAME);
+    Assert.assertEquals(4, TestKeysCatalog.CATALOG.size());
+    Assert.assertFalse(TestKeysCatalog.CATALOG.isLive(TestKeysCatalog.NAME));
+    Assert.assertTrue(TestKeysCatalog.CATALOG.isLive(TestKeysCatalog.LIVE));
+    Assert.assertEquals("catalog-test.none", TestKeysCatalog.CATALOG.getKey(TestKeysCatalog.NONE));
+    Assert.assertEquals("v2.0", TestKeysCatalog.getStr(TestKeysCatalog.NAME));
+    Assert.assertEquals("测试代码", TestKeysCatalog.getStr(TestKeysCatalog.DESC));
+    Assert.assertNull(TestKeysCatalog.getStr(TestKeysCatalog.NONE));
+
+    String name = ConfigHelper.withOverrides(Collections.singletonMap(TestKeys.NAME, "override"),
+        () -> TestKeysCatalog.getStr(TestKeysCatalog.NAME));
+    Assert.assertEquals("override", name);
+
+    System.setProperty(TestKeys_NestedCatalog.CATALOG.getKey(TestKeys_NestedCatalog.NESTED), "nested");
+    try {
+      ConfigHelper.reload();
+      Assert.assertEquals("nested", TestKeys_NestedCatalog.getStr(TestKeys_NestedCatalog.NESTED));
+    } finally {
+      System.clearProperty(TestKeys.Nested.NESTED);
+      ConfigHelper.reload();
+    }
+    Assert.assertNull(TestKeys_NestedCatalog.getStr(TestKeys_NestedCatalog.NESTED));
+  }
+
+  @Test
+  public void testCatalogChanged() {
+    ConfigHelper.reload();
+    Assert.assertEquals("v2.0", TestKeysCatalog.getStr(TestKeysCatalog.NAME));
+    Assert.assertNull(TestKeysCatalog.getStr(TestKeysCatalog.LIVE));
+    System.setProperty(TestKeys.NAME, "system");
+    System.setProperty(TestKeys.LIVE, "live");
+    try {
+      //实时读取的配置键没有产生新配置代的变化也会立即生效，其他配置键在新配置代中才生效
+      Assert.assertEquals("live", TestKeysCatalog.getStr(TestKeysCatalog.LIVE));
+      Assert.assertEquals("v2.0", TestKeysCatalog.getStr(TestKeysCatalog.NAME));
+      ConfigHelper.reload();
+      Assert.assertEquals("system", TestKeysCatalog.getStr(TestKeysCatalog.NAME));
+    } finally {
+      System.clearProperty(TestKeys.NAME);
+      System.clearProperty(TestKeys.LIVE);
+      ConfigHelper.reload();
+    }
+    Assert.assertEquals("v2.0", TestKeysCatalog.getStr(TestKeysCatalog.NAME));
+    Assert.assertNull(TestKeysCatalog.getStr(TestKeysCatalog.LIVE));
+  }
+
+  @Test
+  public void testInvalidKeys() throws IOException {
+    List<String> errors = compile("package test;\n"
+        + "import io.mybatis.config.ConfigKey;\n"
+        + "public class BadKeys {\n"
+        + "  @ConfigKey(\"mybatis.provider.style\") static final String STYLE = \"mybatis.provider.stlye\";\n"
+        + "  @ConfigKey(\"mybatis..provider\") static final String EMPTY = \"mybatis..provider\";\n"
+        + "  @ConfigKey(\"mybatis.provider.name\") static final String NAME = \"mybatis.provider.name\";\n"
+        + "  @ConfigKey(\"mybatis.provider.name\") static final String NAME2 = \"mybatis.provider.name\";\n"
+        + "  @ConfigKey(\"mybatis.provider.other\") final String OTHER = \"mybatis.provider.other\";\n"
+        + "}\n");
+    Assert.assertEquals(errors.toString(), 4, errors.size());
+    Assert.assertFalse(new File(folder.getRoot(), "test/BadKeysCatalog.java").exists());
+  }
+
+  private List<String> compile(String source) throws IOException {
+    File file = new File(folder.newFolder("test"), "BadKeys.java");
+    Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+    try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)) {
+      String classpath = new File(ConfigKey.class.getProtectionDomain().getCodeSource().getLocation().getPath()).getPath();
+      JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics,
+          Arrays.asList("-proc:only", "-classpath", classpath, "-s", folder.getRoot().getPath()),
+          null, fileManager.getJavaFileObjects(file));
+      task.setProcessors(Collections.singletonList(new ConfigKeyProcessor()));
+      task.call();
+    }
+    return diagnostics.getDiagnostics().stream()
+        .filter(d -> d.getKind() == Diagnostic.Kind.ERROR)
+        .map(d -> d.getMessage(null))
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.processor;
+
+import io.mybatis.config.ConfigKey;
+
+public class TestKeys {
+  @ConfigKey("config-test.name")
+  public static final String NAME = "config-test.name";
+
+  @ConfigKey("desc")
+  public static final String DESC = "desc";
+
+  @ConfigKey("catalog-test.none")
+  static final int NONE = 0;
+
+  @ConfigKey(value = "catalog-test.live", live = true)
+  public static final String LIVE = "catalog-test.live";
+
+  public static class Nested {
+    @ConfigKey("catalog-test.nested")
+    public static final String NESTED = "catalog-test.nested";
+  }
+}
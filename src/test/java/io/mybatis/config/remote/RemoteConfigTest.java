@@ -0,0 +1,156 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.remote;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RemoteConfigTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final    AtomicInteger version     = new AtomicInteger(1);
+  private final    AtomicInteger notModified = new AtomicInteger();
+  private volatile String        body        = "remote-test.name=first";
+  private          HttpServer    server;
+  private          File          cache;
+
+  @Before
+  public void start() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/config", exchange -> {
+      String etag = "\"" + version.get() + "\"";
+      if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+        notModified.incrementAndGet();
+        exchange.sendResponseHeaders(304, -1);
+      } else {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("ETag", etag);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          out.write(bytes);
+        }
+      }
+      exchange.close();
+    });
+    server.start();
+    cache = new File(folder.getRoot(), "remote.properties");
+    System.setProperty(RemoteConfig.URL_KEY, "http://127.0.0.1:" + server.getAddress().getPort() + "/config");
+    System.setProperty(RemoteConfig.CACHE_KEY, cache.getAbsolutePath());
+    System.setProperty(RemoteConfig.INTERVAL_KEY, "0");
+  }
+
+  @After
+  public void stop() {
+    System.clearProperty(RemoteConfig.URL_KEY);
+    System.clearProperty(RemoteConfig.CACHE_KEY);
+    System.clearProperty(RemoteConfig.INTERVAL_KEY);
+    if (server != null) {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void testRefreshWithETag() {
+    RemoteConfig config = new RemoteConfig();
+    Assert.assertEquals("first", config.getStr("remote-test.name"));
+    Assert.assertNull(config.getStr(RemoteConfig.URL_KEY));
+    Assert.assertTrue(cache.isFile());
+
+    Assert.assertFalse(config.refresh());
+    Assert.assertEquals(1, notModified.get());
+
+    body = "remote-test.name=second";
+    version.incrementAndGet();
+    Assert.assertTrue(config.refresh());
+    Assert.assertEquals("second", config.getStr("remote-test.name"));
+    config.close();
+  }
+
+  @Test
+  public void testOfflineStartFromCache() {
+    RemoteConfig config = new RemoteConfig();
+    Assert.assertEquals("first", config.getStr("remote-test.name"));
+    config.close();
+
+    server.stop(0);
+    server = null;
+    RemoteConfig offline = new RemoteConfig();
+    Assert.assertEquals("first", offline.getStr("remote-test.name"));
+    try {
+      offline.refresh();
+      Assert.fail();
+    } catch (UncheckedIOException e) {
+      //获取失败时抛出异常，刷新任务不会把失败当作没有变化
+    }
+    Assert.assertEquals("first", offline.getStr("remote-test.name"));
+    offline.close();
+  }
+
+  @Test
+  public void testUntrustedCache() throws IOException {
+    RemoteConfig config = new RemoteConfig();
+    Assert.assertEquals("first", config.getStr("remote-test.name"));
+    config.close();
+    if (cache.toPath().getFileSystem().supportedFileAttributeViews().contains("posix")) {
+      Assert.assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(cache.toPath()));
+    }
+    server.stop(0);
+    server = null;
+
+    //内容被修改后不使用缓存
+    String content = new String(Files.readAllBytes(cache.toPath()), StandardCharsets.UTF_8);
+    Files.write(cache.toPath(), content.replace("remote-test.name=first", "remote-test.name=poisoned").getBytes(StandardCharsets.UTF_8));
+    RemoteConfig tampered = new RemoteConfig();
+    Assert.assertNull(tampered.getStr("remote-test.name"));
+    tampered.close();
+
+    //其他用户可以写入时不使用缓存
+    if (cache.toPath().getFileSystem().supportedFileAttributeViews().contains("posix")) {
+      Files.write(cache.toPath(), content.getBytes(StandardCharsets.UTF_8));
+      Files.setPosixFilePermissions(cache.toPath(), PosixFilePermissions.fromString("rw-rw-rw-"));
+      RemoteConfig shared = new RemoteConfig();
+      Assert.assertNull(shared.getStr("remote-test.name"));
+      shared.close();
+    }
+  }
+
+  @Test
+  public void testNoDefaultCache() {
+    System.clearProperty(RemoteConfig.CACHE_KEY);
+    RemoteConfig config = new RemoteConfig();
+    Assert.assertEquals("first", config.getStr("remote-test.name"));
+    Assert.assertNull(config.cacheFile);
+    Assert.assertFalse(cache.exists());
+    config.close();
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.spring;
+
+import io.mybatis.config.ConfigHelper;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.*;
+
+public class ConfigPropertySourceTest {
+
+  @Test
+  public void testPropertySource() {
+    AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+    ConfigurableEnvironment environment = context.getEnvironment();
+    environment.getPropertySources().addFirst(new MapPropertySource("test",
+        Collections.singletonMap(ConfigPropertySourceRegistrar.ENABLED_KEY, "true")));
+    context.register(SpringEnvAutoConfiguration.class, Bean.class);
+    try {
+      context.refresh();
+      Bean bean = context.getBean(Bean.class);
+      Assert.assertEquals("v2.0", bean.name);
+      Assert.assertEquals("测试代码", bean.desc);
+
+      ConfigPropertySource source = (ConfigPropertySource) environment.getPropertySources().get(ConfigPropertySource.NAME);
+      Assert.assertNotNull(source);
+      Assert.assertTrue(Arrays.asList(source.getPropertyNames()).contains("config-test.name"));
+      //通过 SpringConfig 读取时跳过当前配置源，仍然由版本配置提供
+      Assert.assertEquals("v2.0", ConfigHelper.getStr("config-test.name"));
+      Assert.assertNull(SpringEnvUtil.getStr("config-test.name"));
+    } finally {
+      context.close();
+    }
+    Assert.assertNull(SpringEnvUtil.getStr(ConfigPropertySourceRegistrar.ENABLED_KEY));
+  }
+
+  @Test
+  public void testResolvedValue() {
+    System.setProperty("config-test.properties", "config-test-user.properties");
+    ConfigHelper.reload();
+    try {
+      ConfigPropertySource source = new ConfigPropertySource();
+      //和 ConfigHelper 一样解码并解析占位符
+      Assert.assertEquals("mybatis", source.getProperty("decoder-test.user"));
+      Assert.assertEquals("custom:mybatis", source.getProperty("placeholder-test.user"));
+      Assert.assertEquals("custom", source.getProperty("config-test.name"));
+      Assert.assertNull(source.getProperty("placeholder-test.none"));
+      //占位符只在配置源包含的配置中解析，不读取系统变量
+      System.setProperty("probe.b", "system");
+      Assert.assertEquals("system", ConfigHelper.getStr("placeholder-test.context"));
+      Assert.assertEquals("${probe.b}", source.getProperty("placeholder-test.context"));
+    } finally {
+      System.clearProperty("probe.b");
+      System.clearProperty("config-test.properties");
+      ConfigHelper.reload();
+    }
+  }
+
+  @Test
+  public void testContexts() throws Exception {
+    AnnotationConfigApplicationContext first = context("first");
+    AnnotationConfigApplicationContext second = context("second");
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      //并行启动时各自读取自己的环境
+      Future<?> a = executor.submit(first::refresh);
+      Future<?> b = executor.submit(second::refresh);
+      a.get();
+      b.get();
+      Assert.assertEquals("first", first.getBean(Reader.class).value);
+      Assert.assertEquals("second", second.getBean(Reader.class).value);
+
+      //没有绑定上下文的线程无法确定读取哪一个上下文，不读取 Spring 环境
+      Assert.assertNull(ConfigHelper.getStr("spring-test.name"));
+      Assert.assertNull(executor.submit(() -> ConfigHelper.getStr("spring-test.name")).get());
+      Assert.assertEquals("first", SpringEnvUtil.withContext(first, () -> ConfigHelper.getStr("spring-test.name")));
+      Assert.assertEquals("second", SpringEnvUtil.withContext(second, () -> ConfigHelper.getStr("spring-test.name")));
+
+      second.close();
+      Assert.assertEquals("first", ConfigHelper.getStr("spring-test.name"));
+      first.close();
+      Assert.assertNull(ConfigHelper.getStr("spring-test.name"));
+    } finally {
+      executor.shutdown();
+      first.close();
+      second.close();
+    }
+  }
+
+  @Test
+  public void testContextPlaceholder() {
+    //占位符所在的配置只在用户配置文件中，Spring 环境看不到，只能由 ConfigHelper 解析
+    System.setProperty("config-test.properties", "config-test-user.properties");
+    ConfigHelper.reload();
+    AnnotationConfigApplicationContext first = new AnnotationConfigApplicationContext();
+    AnnotationConfigApplicationContext second = new AnnotationConfigApplicationContext();
+    try {
+      for (AnnotationConfigApplicationContext context : Arrays.asList(first, second)) {
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("probe",
+            Collections.singletonMap("probe.b", context == first ? "first" : "second")));
+        context.register(SpringEnvUtil.class);
+        context.refresh();
+      }
+      //占位符引用的配置来自各自的上下文，解析结果不能共享
+      Assert.assertEquals("first", SpringEnvUtil.withContext(first, () -> ConfigHelper.getStr("placeholder-test.context")));
+      Assert.assertEquals("second", SpringEnvUtil.withContext(second, () -> ConfigHelper.getStr("placeholder-test.context")));
+      Assert.assertEquals("first", SpringEnvUtil.withContext(first, () -> ConfigHelper.getStr("placeholder-test.context")));
+    } finally {
+      first.close();
+      second.close();
+      System.clearProperty("config-test.properties");
+      ConfigHelper.reload();
+    }
+  }
+
+  @Test
+  public void testParentContext() {
+    AnnotationConfigApplicationContext parent = new AnnotationConfigApplicationContext();
+    AnnotationConfigApplicationContext child = new AnnotationConfigApplicationContext();
+    try {
+      parent.getEnvironment().getPropertySources().addFirst(new MapPropertySource("parent",
+          Collections.singletonMap("spring-test.name", "parent")));
+      parent.register(SpringEnvUtil.class);
+      parent.refresh();
+      child.setParent(parent);
+      child.getEnvironment().getPropertySources().addFirst(new MapPropertySource("child",
+          Collections.singletonMap("spring-test.name", "child")));
+      child.register(SpringEnvUtil.class);
+      child.refresh();
+      //父子上下文不存在歧义，使用子上下文
+      Assert.assertEquals("child", ConfigHelper.getStr("spring-test.name"));
+    } finally {
+      child.close();
+      parent.close();
+    }
+  }
+
+  private static AnnotationConfigApplicationContext context(String name) {
+    AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+    context.getEnvironment().getPropertySources().addFirst(new MapPropertySource(name,
+        Collections.singletonMap("spring-test.name", name)));
+    context.register(SpringEnvUtil.class, Reader.class);
+    return context;
+  }
+
+  public static class Reader implements InitializingBean {
+    private static final CyclicBarrier BARRIER = new CyclicBarrier(2);
+
+    String value;
+
+    @Override
+    public void afterPropertiesSet() throws Exception {
+      //两个上下文都注册后再读取
+      BARRIER.await(10, TimeUnit.SECONDS);
+      value = ConfigHelper.getStr("spring-test.name");
+    }
+  }
+
+  public static class Bean {
+    @Value("${config-test.name}")
+    String name;
+    @Value("${desc}")
+    String desc;
+  }
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.util;
+
+import io.mybatis.config.ConfigHelper;
+import io.mybatis.config.custom.TestUserConfig;
+import io.mybatis.config.custom.TestVersionConfig;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class ConfigSnapshotTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private static void write(File file, String content) throws IOException {
+    try (OutputStream out = new FileOutputStream(file)) {
+      out.write(content.getBytes(StandardCharsets.ISO_8859_1));
+    }
+  }
+
+  @Test
+  public void testSnapshot() throws IOException {
+    File user = folder.newFile("snapshot-user.properties");
+    write(user, "config-test.name=snapshot\n");
+    File snapshot = new File(folder.getRoot(), "config.snapshot");
+    System.setProperty("config-test.properties", user.getAbsolutePath());
+    try {
+      ConfigHelper.reload();
+      ConfigHelper.writeSnapshot(snapshot);
+      Assert.assertTrue(snapshot.isFile());
+
+      System.setProperty(ConfigSnapshot.SNAPSHOT_KEY, snapshot.getAbsolutePath());
+      ConfigSnapshot.reset();
+      ConfigSnapshot.Entry entry = ConfigSnapshot.lookup(TestUserConfig.class, user.getAbsolutePath());
+      Assert.assertNotNull(entry);
+      Assert.assertEquals("snapshot", entry.getProperties().getProperty("config-test.name"));
+      Assert.assertEquals("snapshot", new TestUserConfig().getStr("config-test.name"));
+      //输入条件不同时失效
+      Assert.assertNull(ConfigSnapshot.lookup(TestUserConfig.class, "other.properties"));
+
+      ConfigSnapshot.Entry version = ConfigSnapshot.lookup(TestVersionConfig.class, "");
+      Assert.assertNotNull(version);
+      Assert.assertEquals("mybatis-config-test-v2.0.properties", version.getVersion());
+      Assert.assertEquals("测试代码", new TestVersionConfig().getStr("desc"));
+
+      //来源文件变化时失效
+      write(user, "config-test.name=changed-content\n");
+      Assert.assertTrue(user.setLastModified(user.lastModified() + 2000));
+      Assert.assertNull(ConfigSnapshot.lookup(TestUserConfig.class, user.getAbsolutePath()));
+      Assert.assertEquals("changed-content", new TestUserConfig().getStr("config-test.name"));
+    } finally {
+      System.clearProperty("config-test.properties");
+      System.clearProperty(ConfigSnapshot.SNAPSHOT_KEY);
+      ConfigSnapshot.reset();
+      ConfigHelper.reload();
+    }
+  }
+
+  @Test
+  public void testContentChanged() throws IOException {
+    File user = folder.newFile("snapshot-content.properties");
+    write(user, "config-test.name=aaaa\n");
+    File snapshot = new File(folder.getRoot(), "content.snapshot");
+    System.setProperty("config-test.properties", user.getAbsolutePath());
+    try {
+      ConfigHelper.reload();
+      ConfigHelper.writeSnapshot(snapshot);
+      System.setProperty(ConfigSnapshot.SNAPSHOT_KEY, snapshot.getAbsolutePath());
+      ConfigSnapshot.reset();
+      Assert.assertNotNull(ConfigSnapshot.lookup(TestUserConfig.class, user.getAbsolutePath()));
+
+      //修改时间和大小都不变，只有内容变化
+      long lastModified = user.lastModified();
+      write(user, "config-test.name=bbbb\n");
+      Assert.assertTrue(user.setLastModified(lastModified));
+      Assert.assertNull(ConfigSnapshot.lookup(TestUserConfig.class, user.getAbsolutePath()));
+    } finally {
+      System.clearProperty("config-test.properties");
+      System.clearProperty(ConfigSnapshot.SNAPSHOT_KEY);
+      ConfigSnapshot.reset();
+      ConfigHelper.reload();
+    }
+  }
+
+  @Test
+  public void testDirectoryChanged() throws IOException {
+    File directory = folder.newFolder("snapshot-dir");
+    write(new File(directory, "a.properties"), "config-test.name=a\n");
+    File snapshot = new File(folder.getRoot(), "dir.snapshot");
+    System.setProperty("config-test.properties", directory.getAbsolutePath());
+    try {
+      ConfigHelper.reload();
+      ConfigHelper.writeSnapshot(snapshot);
+      System.setProperty(ConfigSnapshot.SNAPSHOT_KEY, snapshot.getAbsolutePath());
+      ConfigSnapshot.reset();
+      Assert.assertNotNull(ConfigSnapshot.lookup(TestUserConfig.class, directory.getAbsolutePath()));
+
+      //目录中增加配置文件时失效
+      write(new File(directory, "b.properties"), "config-test.name=b\n");
+      Assert.assertNull(ConfigSnapshot.lookup(TestUserConfig.class, directory.getAbsolutePath()));
+      Assert.assertEquals("b", new TestUserConfig().getStr("config-test.name"));
+    } finally {
+      System.clearProperty("config-test.properties");
+      System.clearProperty(ConfigSnapshot.SNAPSHOT_KEY);
+      ConfigSnapshot.reset();
+      ConfigHelper.reload();
+    }
+  }
+
+  @Test
+  public void testCandidateAdded() throws IOException {
+    //类路径中的配置文件，用户目录下没有同名文件
+    String name = "config-test-user.properties";
+    File candidate = new File(name).getAbsoluteFile();
+    Assert.assertFalse(candidate.exists());
+    File snapshot = new File(folder.getRoot(), "candidate.snapshot");
+    System.setProperty("config-test.properties", name);
+    try {
+      ConfigHelper.reload();
+      Assert.assertTrue(new TestUserConfig().getCandidates().contains(candidate));
+      ConfigHelper.writeSnapshot(snapshot);
+      System.setProperty(ConfigSnapshot.SNAPSHOT_KEY, snapshot.getAbsolutePath());
+      ConfigSnapshot.reset();
+      Assert.assertNotNull(ConfigSnapshot.lookup(TestUserConfig.class, name));
+
+      //用户目录下出现优先级更高的文件时失效
+      write(candidate, "config-test.name=user-dir\n");
+      Assert.assertNull(ConfigSnapshot.lookup(TestUserConfig.class, name));
+      Assert.assertEquals("user-dir", new TestUserConfig().getStr("config-test.name"));
+    } finally {
+      Assert.assertTrue(!candidate.exists() || candidate.delete());
+      System.clearProperty("config-test.properties");
+      System.clearProperty(ConfigSnapshot.SNAPSHOT_KEY);
+      ConfigSnapshot.reset();
+      ConfigHelper.reload();
+    }
+  }
+
+  @Test
+  public void testJarDigest() throws IOException {
+    File jar = folder.newFile("config.jar");
+    writeJar(jar, "name=aaaa");
+    byte[] digest = ConfigSnapshot.digest(jar);
+    Assert.assertArrayEquals(digest, ConfigSnapshot.digest(jar));
+    writeJar(jar, "name=bbbb");
+    Assert.assertFalse(Arrays.equals(digest, ConfigSnapshot.digest(jar)));
+  }
+
+  private static void writeJar(File file, String content) throws IOException {
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+      ZipEntry entry = new ZipEntry("config.properties");
+      entry.setTime(0);
+      out.putNextEntry(entry);
+      out.write(content.getBytes(StandardCharsets.ISO_8859_1));
+      out.closeEntry();
+    }
+  }
+
+  @Test
+  public void testCorrupted() throws IOException {
+    File snapshot = folder.newFile("corrupted.snapshot");
+    write(snapshot, "not a snapshot file");
+    Assert.assertNull(ConfigSnapshot.read(snapshot));
+  }
+}
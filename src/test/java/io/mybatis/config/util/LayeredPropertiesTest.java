@@ -0,0 +1,88 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.util;
+
+import io.mybatis.config.custom.TestUserConfig;
+import io.mybatis.config.defaults.UserConfig;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Properties;
+
+public class LayeredPropertiesTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File write(String content) throws IOException {
+    File file = folder.newFile();
+    try (OutputStream out = new FileOutputStream(file)) {
+      out.write(content.getBytes(StandardCharsets.ISO_8859_1));
+    }
+    return file;
+  }
+
+  @Test
+  public void testLayers() throws IOException {
+    Properties base = new Properties();
+    base.setProperty("a", "base");
+    base.setProperty("b", "base");
+    LayeredProperties props = new LayeredProperties(Arrays.asList(base, new MappedProperties(write("b=mapped\nc=mapped\n"))));
+    Assert.assertEquals("base", props.getProperty("a"));
+    Assert.assertEquals("mapped", props.getProperty("b"));
+    Assert.assertEquals("mapped", props.getProperty("c"));
+    Assert.assertNull(props.getProperty("d"));
+    Assert.assertEquals(3, props.size());
+
+    Properties merged = new Properties();
+    merged.setProperty("a", "base");
+    merged.setProperty("b", "mapped");
+    merged.setProperty("c", "mapped");
+    Assert.assertEquals(merged, props);
+    Assert.assertEquals(merged.stringPropertyNames(), props.stringPropertyNames());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testReadOnly() {
+    new LayeredProperties(Arrays.asList(new Properties(), new Properties())).setProperty("a", "b");
+  }
+
+  @Test
+  public void testUserConfig() throws IOException {
+    File first = write("config-test.name=first\nlayered-test.first=first\n");
+    File second = write("config-test.name=second\n");
+    System.setProperty("config-test.properties", first.getAbsolutePath() + "," + second.getAbsolutePath());
+    System.setProperty(UserConfig.MAPPED_THRESHOLD_KEY, "0");
+    try {
+      //每个文件保持内存映射，不会合并到堆中
+      TestUserConfig config = new TestUserConfig();
+      Assert.assertTrue(config.getProperties() instanceof LayeredProperties);
+      Assert.assertEquals("second", config.getStr("config-test.name"));
+      Assert.assertEquals("first", config.getStr("layered-test.first"));
+    } finally {
+      System.clearProperty("config-test.properties");
+      System.clearProperty(UserConfig.MAPPED_THRESHOLD_KEY);
+    }
+  }
+}
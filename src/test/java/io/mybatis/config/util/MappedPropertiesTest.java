@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.util;
+
+import io.mybatis.config.custom.TestUserConfig;
+import io.mybatis.config.defaults.UserConfig;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+public class MappedPropertiesTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private File write(String content) throws IOException {
+    File file = folder.newFile();
+    try (OutputStream out = new FileOutputStream(file)) {
+      out.write(content.getBytes(StandardCharsets.ISO_8859_1));
+    }
+    return file;
+  }
+
+  @Test
+  public void testSameAsProperties() throws IOException {
+    String content = "# comment\n"
+        + "! another comment \\\n"
+        + "a=1\n"
+        + "  b : 2\r\n"
+        + "c 3\r"
+        + "d\t=\t  spaced value  \n"
+        + "e\n"
+        + "f=multi \\\n"
+        + "    line \\\n"
+        + "  value\n"
+        + "key\\ with\\=escapes=v\\tx\\u4E2D\\\\\n"
+        + "a=override\n"
+        + "=empty key\n"
+        + "g==double\n"
+        + "h  =  : colon\n"
+        + "\\#not-comment=yes\n"
+        + "last=no newline";
+    File file = write(content);
+    Properties expected = new Properties();
+    try (InputStream in = new FileInputStream(file)) {
+      expected.load(in);
+    }
+    MappedProperties actual = new MappedProperties(file);
+    Assert.assertEquals(expected.stringPropertyNames(), actual.stringPropertyNames());
+    for (String name : expected.stringPropertyNames()) {
+      Assert.assertEquals(name, expected.getProperty(name), actual.getProperty(name));
+    }
+    Assert.assertEquals(expected.size(), actual.size());
+    Assert.assertNull(actual.getProperty("missing"));
+    Assert.assertEquals("default", actual.getProperty("missing", "default"));
+  }
+
+  @Test
+  public void testHashtableViews() throws IOException, ClassNotFoundException {
+    MappedProperties actual = new MappedProperties(write("a=1\nb=2\na=3\n"));
+    Properties expected = new Properties();
+    expected.setProperty("a", "3");
+    expected.setProperty("b", "2");
+    Assert.assertEquals(2, actual.size());
+    Assert.assertEquals(expected.keySet(), actual.keySet());
+    Assert.assertEquals(expected.entrySet(), actual.entrySet());
+    Assert.assertTrue(actual.containsValue("2"));
+    Assert.assertEquals(expected, actual);
+    Assert.assertEquals(expected, actual.clone());
+
+    StringWriter writer = new StringWriter();
+    actual.store(writer, null);
+    Properties stored = new Properties();
+    stored.load(new StringReader(writer.toString()));
+    Assert.assertEquals(expected, stored);
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(actual);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      Assert.assertEquals(expected, in.readObject());
+    }
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testReadOnly() throws IOException {
+    new MappedProperties(write("a=1\n")).remove("a");
+  }
+
+  @Test
+  public void testLargeFile() throws IOException {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      sb.append("key.").append(i).append('=').append("value-").append(i).append('\n');
+    }
+    MappedProperties properties = new MappedProperties(write(sb.toString()));
+    Assert.assertEquals(20000, properties.size());
+    Assert.assertEquals("value-0", properties.getProperty("key.0"));
+    Assert.assertEquals("value-19999", properties.getProperty("key.19999"));
+    Assert.assertNull(properties.getProperty("key.20000"));
+  }
+
+  @Test
+  public void testFileChanged() throws IOException {
+    File file = write("a=1\nb=2\n");
+    MappedProperties properties = new MappedProperties(file);
+    //加载后文件被截断或原地改写，不影响已经加载的配置
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.setLength(0);
+    }
+    Assert.assertEquals("1", properties.getProperty("a"));
+    Assert.assertEquals("2", properties.getProperty("b"));
+  }
+
+  @Test
+  public void testUserConfig() throws IOException {
+    File file = write("config-test.name=mapped\n");
+    System.setProperty("config-test.properties", file.getAbsolutePath());
+    System.setProperty(UserConfig.MAPPED_THRESHOLD_KEY, "0");
+    try {
+      TestUserConfig config = new TestUserConfig();
+      Assert.assertTrue(config.getProperties() instanceof MappedProperties);
+      Assert.assertEquals("mapped", config.getStr("config-test.name"));
+    } finally {
+      System.clearProperty("config-test.properties");
+      System.clearProperty(UserConfig.MAPPED_THRESHOLD_KEY);
+    }
+  }
+}
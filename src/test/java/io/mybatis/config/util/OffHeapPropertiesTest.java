@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.util;
+
+import io.mybatis.config.custom.TestVersionConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Collections;
+import java.util.Properties;
+
+public class OffHeapPropertiesTest {
+
+  @Test
+  public void testOffHeap() {
+    Properties defaults = new Properties();
+    defaults.setProperty("a", "default");
+    defaults.setProperty("b", "1");
+    Properties properties = new Properties(defaults);
+    properties.setProperty("a", "override");
+    properties.setProperty("中文键", "中文值");
+    properties.setProperty("emoji", "😀");
+    properties.setProperty("", "empty");
+    for (int i = 0; i < 1000; i++) {
+      properties.setProperty("flag." + i, String.valueOf(i % 2 == 0));
+    }
+
+    OffHeapProperties offHeap = new OffHeapProperties(properties);
+    Assert.assertEquals(properties.stringPropertyNames(), offHeap.stringPropertyNames());
+    Assert.assertEquals(1005, offHeap.size());
+    Assert.assertEquals("override", offHeap.getProperty("a"));
+    Assert.assertEquals("1", offHeap.getProperty("b"));
+    Assert.assertEquals("中文值", offHeap.getProperty("中文键"));
+    Assert.assertEquals("😀", offHeap.getProperty("emoji"));
+    Assert.assertEquals("empty", offHeap.getProperty(""));
+    Assert.assertEquals("false", offHeap.getProperty("flag.999"));
+    Assert.assertNull(offHeap.getProperty("flag.1000"));
+    Assert.assertEquals("x", offHeap.getProperty("missing", "x"));
+  }
+
+  @Test
+  public void testHashtableViews() throws IOException, ClassNotFoundException {
+    Properties expected = new Properties();
+    expected.setProperty("a", "1");
+    expected.setProperty("中文键", "中文值");
+    OffHeapProperties offHeap = new OffHeapProperties(expected);
+    Assert.assertEquals(expected.keySet(), offHeap.keySet());
+    Assert.assertEquals(expected.entrySet(), offHeap.entrySet());
+    Assert.assertEquals(expected, offHeap);
+    Assert.assertEquals(2, Collections.list(offHeap.keys()).size());
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(offHeap);
+    }
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      Assert.assertEquals(expected, in.readObject());
+    }
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testReadOnly() {
+    new OffHeapProperties(new Properties()).clear();
+  }
+
+  @Test
+  public void testVersionConfig() {
+    System.setProperty(OffHeapProperties.STORAGE_KEY, OffHeapProperties.OFF_HEAP);
+    try {
+      TestVersionConfig config = new TestVersionConfig();
+      Assert.assertTrue(config.getProperties() instanceof OffHeapProperties);
+      Assert.assertEquals("v2.0", config.getStr("config-test.name"));
+      Assert.assertEquals("测试代码", config.getStr("desc"));
+    } finally {
+      System.clearProperty(OffHeapProperties.STORAGE_KEY);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.mybatis.config.util;
+
+import io.mybatis.config.defaults.SharedConfig;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class SharedConfigRegionTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void testPublish() throws IOException {
+    File file = new File(folder.getRoot(), "shared.region");
+    Assert.assertTrue(new SharedConfigRegion(file).get().isEmpty());
+
+    Properties props = new Properties();
+    props.setProperty("shared.name", "first");
+    long seq = SharedConfigRegion.publish(file, props);
+    SharedConfigRegion region = new SharedConfigRegion(file);
+    Assert.assertEquals("first", region.get().getProperty("shared.name"));
+    Assert.assertEquals(seq, region.getSequence());
+
+    //数据变大后重新映射
+    for (int i = 0; i < 1000; i++) {
+      props.setProperty("shared.key" + i, "值" + i);
+    }
+    props.setProperty("shared.name", "second");
+    SharedConfigRegion.publish(file, props);
+    Assert.assertEquals("second", region.get().getProperty("shared.name"));
+    Assert.assertEquals("值999", region.get().getProperty("shared.key999"));
+  }
+
+  @Test
+  public void testInterruptedWriter() throws IOException {
+    File file = new File(folder.getRoot(), "shared.region");
+    Properties props = new Properties();
+    props.setProperty("shared.name", "first");
+    long seq = SharedConfigRegion.publish(file, props);
+    SharedConfigRegion region = new SharedConfigRegion(file);
+    Assert.assertEquals("first", region.get().getProperty("shared.name"));
+
+    //写入方在写入过程中退出，序号一直是奇数
+    try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+      raf.seek(8);
+      raf.writeLong(seq + 1);
+    }
+    for (int i = 0; i < 1000; i++) {
+      Assert.assertEquals("first", region.get().getProperty("shared.name"));
+      Assert.assertEquals(seq, region.getSequence());
+    }
+
+    //重新写入后立即读取到新的配置
+    props.setProperty("shared.name", "second");
+    long next = SharedConfigRegion.publish(file, props);
+    Assert.assertEquals("second", region.get().getProperty("shared.name"));
+    Assert.assertEquals(next, region.getSequence());
+  }
+
+  @Test
+  public void testConsistentRead() throws Exception {
+    File file = new File(folder.getRoot(), "shared.region");
+    Properties props = new Properties();
+    props.setProperty("a", "0");
+    props.setProperty("b", "0");
+    SharedConfigRegion.publish(file, props);
+    AtomicBoolean running = new AtomicBoolean(true);
+    AtomicReference<Throwable> error = new AtomicReference<>();
+    Thread writer = new Thread(() -> {
+      try {
+        for (int i = 1; running.get(); i++) {
+          Properties p = new Properties();
+          p.setProperty("a", String.valueOf(i));
+          p.setProperty("b", String.valueOf(i));
+          SharedConfigRegion.publish(file, p);
+        }
+      } catch (Throwable e) {
+        error.set(e);
+      }
+    });
+    writer.start();
+    try {
+      SharedConfigRegion region = new SharedConfigRegion(file);
+      for (int i = 0; i < 20000; i++) {
+        Properties current = region.get();
+        Assert.assertEquals(current.getProperty("a"), current.getProperty("b"));
+      }
+    } finally {
+      running.set(false);
+      writer.join();
+    }
+    Assert.assertNull(error.get());
+  }
+
+  @Test
+  public void testSharedConfig() throws IOException {
+    File file = new File(folder.getRoot(), "shared.region");
+    Properties props = new Properties();
+    props.setProperty("shared.name", "shared");
+    SharedConfigRegion.publish(file, props);
+    System.setProperty(SharedConfig.FILE_KEY, file.getAbsolutePath());
+    try {
+      SharedConfig config = new SharedConfig();
+      Assert.assertEquals("shared", config.getStr("shared.name"));
+      props.setProperty("shared.name", "updated");
+      SharedConfigRegion.publish(file, props);
+      Assert.assertEquals("updated", config.getStr("shared.name"));
+    } finally {
+      System.clearProperty(SharedConfig.FILE_KEY);
+    }
+  }
+}